@@ -0,0 +1,447 @@
+package com.http.client;
+
+import com.http.protocol.HttpResponseReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 客户端连接池
+ * 按路由（主机:端口）保存空闲的长连接，后进先出地复用（最近用过的连接最不可能已被服务器关闭）。
+ * 每个路由和全部路由的连接数（包括正在使用的）都有上限，达到上限时等待其他请求归还连接，
+ * 总数已满但其他路由有空闲连接时关闭其中最久空闲的一个让位。
+ * 异步请求的非阻塞连接由事件循环自己保存，但与池中的连接共用名额，空闲时登记在这里：
+ * 名额被它们占满时请所属事件循环关闭其中最久空闲的一个，关闭后归还名额并唤醒等待的请求。
+ * 空闲超过idleTimeout的连接在下次借出或归还时关闭，借出前还会检查连接是否已被服务器关闭
+ */
+class ConnectionPool {
+
+    /**
+     * 池中的一个连接，同一时间只由一个请求使用
+     */
+    static final class PooledConnection {
+        private final String route;
+        private final Socket socket;
+        private final InputStream input;
+        private final OutputStream output;
+        private final HttpResponseReader reader;
+        private long idleSince;
+        private boolean reused; // 是否是从池中取出的旧连接
+
+        PooledConnection(String route, Socket socket) throws IOException {
+            this.route = route;
+            this.socket = socket;
+            this.input = socket.getInputStream();
+            this.output = socket.getOutputStream();
+            this.reader = new HttpResponseReader(input);
+        }
+
+        Socket socket() {
+            return socket;
+        }
+
+        OutputStream output() {
+            return output;
+        }
+
+        /**
+         * @return 连接级响应读取器，读多了的字节留给下一个响应
+         */
+        HttpResponseReader reader() {
+            return reader;
+        }
+
+        boolean isReused() {
+            return reused;
+        }
+
+        /**
+         * 检查空闲连接是否已经不可用：服务器已关闭（读到流结束）或者发来了不属于任何请求的数据。
+         * 只等待1毫秒，连接正常时读取超时
+         */
+        boolean isStale() {
+            if (socket.isClosed() || reader.hasBufferedData()) {
+                return true;
+            }
+            try {
+                int timeout = socket.getSoTimeout();
+                socket.setSoTimeout(1);
+                try {
+                    input.read();
+                    return true;
+                } finally {
+                    socket.setSoTimeout(timeout);
+                }
+            } catch (SocketTimeoutException e) {
+                return false;
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 忽略关闭异常
+            }
+        }
+    }
+
+    /**
+     * 在池外保存的空闲连接（异步请求的非阻塞连接）
+     */
+    interface IdleConnection {
+
+        /**
+         * @return 路由（主机:端口）
+         */
+        String route();
+
+        /**
+         * 请连接的所有者关闭连接（任意线程调用，不能阻塞），关闭后调用releaseReserved归还名额
+         */
+        void evict();
+    }
+
+    private final Map<String, Deque<PooledConnection>> idle = new HashMap<>(); // 每个路由的空闲连接，最近归还的在前
+    private final Deque<IdleConnection> idleElsewhere = new ArrayDeque<>();    // 池外的空闲连接，最近空闲的在前
+    private final Set<IdleConnection> evicting = new HashSet<>();              // 已请求关闭、还没有归还名额的池外连接
+    private final Map<String, Integer> routeCounts = new HashMap<>();          // 每个路由已打开的连接数
+    private int maxPerRoute;
+    private int maxTotal;
+    private long idleTimeoutMillis;
+    private int total;
+    private boolean closed;
+
+    /**
+     * @param maxPerRoute 每个路由的最大连接数
+     * @param maxTotal 全部路由的最大连接数
+     * @param idleTimeoutMillis 空闲连接的保留时间（毫秒）
+     */
+    ConnectionPool(int maxPerRoute, int maxTotal, long idleTimeoutMillis) {
+        setLimits(maxPerRoute, maxTotal);
+        setIdleTimeout(idleTimeoutMillis);
+    }
+
+    synchronized void setLimits(int maxPerRoute, int maxTotal) {
+        if (maxPerRoute <= 0 || maxTotal <= 0) {
+            throw new IllegalArgumentException("Connection limits must be positive: " + maxPerRoute + ", " + maxTotal);
+        }
+        this.maxPerRoute = maxPerRoute;
+        this.maxTotal = maxTotal;
+        notifyAll();
+    }
+
+    synchronized void setIdleTimeout(long idleTimeoutMillis) {
+        if (idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Idle timeout must not be negative: " + idleTimeoutMillis);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    synchronized int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    synchronized int getMaxTotal() {
+        return maxTotal;
+    }
+
+    synchronized long getIdleTimeout() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * 借出一个到指定主机的连接，优先复用空闲连接，否则在名额允许时新建连接
+     * @param host 主机
+     * @param port 端口
+     * @param timeoutMillis 等待名额和建立连接的超时时间（毫秒）
+     * @return 连接，使用完必须调用release
+     * @throws IOException 如果等待超时、连接失败或连接池已关闭
+     */
+    PooledConnection acquire(String host, int port, int timeoutMillis) throws IOException {
+        String route = host + ":" + port;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            PooledConnection candidate = reserve(route, deadline);
+            if (candidate == null) {
+                break; // 已占用新连接的名额
+            }
+            // 在锁外检查，避免阻塞其他线程
+            if (!candidate.isStale()) {
+                candidate.reused = true;
+                return candidate;
+            }
+            discard(candidate);
+        }
+
+        try {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+                socket.setTcpNoDelay(true);
+                return new PooledConnection(route, socket);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            releaseSlot(route);
+            throw e;
+        }
+    }
+
+    /**
+     * 不等待地为调用方自己管理的连接（异步请求的非阻塞连接）占用名额，与阻塞连接共用同样的上限；
+     * 同一路由的名额被池中的空闲连接占满时关闭其中最久空闲的一个让位，
+     * 被池外的空闲连接占满时请它们的所有者关闭一个，调用方稍后重试
+     * @param route 路由（主机:端口）
+     * @return true如果占用成功，连接关闭后必须调用releaseReserved
+     */
+    synchronized boolean tryReserve(String route) {
+        if (closed) {
+            return false;
+        }
+        evictExpired(System.currentTimeMillis());
+        Deque<PooledConnection> connections = idle.get(route);
+        if (routeCounts.getOrDefault(route, 0) >= maxPerRoute && connections != null) {
+            PooledConnection eldest = connections.pollLast();
+            if (connections.isEmpty()) {
+                idle.remove(route);
+            }
+            releaseCount(route);
+            eldest.close();
+        }
+        int routeCount = routeCounts.getOrDefault(route, 0);
+        if (routeCount < maxPerRoute && (total < maxTotal || evictEldestIdle())) {
+            routeCounts.put(route, routeCount + 1);
+            total++;
+            return true;
+        }
+        evictIdleElsewhere(routeCount >= maxPerRoute ? route : null);
+        return false;
+    }
+
+    /**
+     * 释放tryReserve占用的名额（连接没有建立起来）
+     * @param route 路由（主机:端口）
+     */
+    void releaseReserved(String route) {
+        releaseSlot(route);
+    }
+
+    /**
+     * 池外的连接关闭后释放它占用的名额，同时取消它的空闲登记
+     * @param connection 已关闭的连接
+     */
+    synchronized void releaseReserved(IdleConnection connection) {
+        idleElsewhere.remove(connection);
+        evicting.remove(connection);
+        releaseSlot(connection.route());
+    }
+
+    /**
+     * 登记池外的空闲连接，名额不足时可以请它让位
+     * @param connection 空闲连接
+     */
+    synchronized void addIdle(IdleConnection connection) {
+        idleElsewhere.addFirst(connection);
+        notifyAll();
+    }
+
+    /**
+     * 取消池外空闲连接的登记，所有者要重新使用它之前调用
+     * @param connection 空闲连接
+     * @return false如果连接已被请求关闭，不能再使用
+     */
+    synchronized boolean removeIdle(IdleConnection connection) {
+        return idleElsewhere.remove(connection);
+    }
+
+    /**
+     * 取出一个空闲连接，或者为新连接占用名额（返回null）；都不行时等待
+     */
+    private synchronized PooledConnection reserve(String route, long deadline) throws IOException {
+        while (true) {
+            if (closed) {
+                throw new IOException("Connection pool is closed");
+            }
+            evictExpired(System.currentTimeMillis());
+
+            Deque<PooledConnection> connections = idle.get(route);
+            if (connections != null && !connections.isEmpty()) {
+                return connections.pollFirst();
+            }
+            int routeCount = routeCounts.getOrDefault(route, 0);
+            if (routeCount < maxPerRoute && (total < maxTotal || evictEldestIdle())) {
+                routeCounts.put(route, routeCount + 1);
+                total++;
+                return null;
+            }
+            // 名额被异步请求的空闲连接占着时请它们让位，关闭后releaseReserved唤醒这里
+            evictIdleElsewhere(routeCount >= maxPerRoute ? route : null);
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Timeout waiting for connection to " + route
+                        + " (max " + maxPerRoute + " per route, " + maxTotal + " total)");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for connection to " + route, e);
+            }
+        }
+    }
+
+    /**
+     * 归还连接
+     * @param connection 借出的连接
+     * @param reusable 连接是否停在两个响应之间、可以继续使用
+     */
+    void release(PooledConnection connection, boolean reusable) {
+        synchronized (this) {
+            if (reusable && !closed && !connection.socket.isClosed()) {
+                connection.idleSince = System.currentTimeMillis();
+                idle.computeIfAbsent(connection.route, route -> new ArrayDeque<>()).addFirst(connection);
+                evictExpired(connection.idleSince);
+                notifyAll();
+                return;
+            }
+        }
+        discard(connection);
+    }
+
+    /**
+     * 关闭所有空闲连接，之后不能再借出连接；正在使用的连接归还时关闭
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            for (Deque<PooledConnection> connections : idle.values()) {
+                for (PooledConnection connection : connections) {
+                    releaseCount(connection.route);
+                    connection.close();
+                }
+            }
+            idle.clear();
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return 空闲连接数
+     */
+    synchronized int idleConnections() {
+        int count = 0;
+        for (Deque<PooledConnection> connections : idle.values()) {
+            count += connections.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return 已打开的连接数（包括正在使用的）
+     */
+    synchronized int openConnections() {
+        return total;
+    }
+
+    private void discard(PooledConnection connection) {
+        connection.close();
+        releaseSlot(connection.route);
+    }
+
+    private synchronized void releaseSlot(String route) {
+        releaseCount(route);
+        notifyAll();
+    }
+
+    private void releaseCount(String route) {
+        int count = routeCounts.getOrDefault(route, 0) - 1;
+        if (count <= 0) {
+            routeCounts.remove(route);
+        } else {
+            routeCounts.put(route, count);
+        }
+        total--;
+    }
+
+    /**
+     * 关闭空闲超时的连接（队尾是最久空闲的）
+     */
+    private void evictExpired(long now) {
+        Iterator<Deque<PooledConnection>> routes = idle.values().iterator();
+        while (routes.hasNext()) {
+            Deque<PooledConnection> connections = routes.next();
+            while (!connections.isEmpty() && now - connections.peekLast().idleSince >= idleTimeoutMillis) {
+                PooledConnection expired = connections.pollLast();
+                releaseCount(expired.route);
+                expired.close();
+            }
+            if (connections.isEmpty()) {
+                routes.remove();
+            }
+        }
+    }
+
+    /**
+     * 请池外最久空闲的一个连接让位；已有能腾出同样名额的连接正在关闭时不再请求，避免多关连接
+     * @param route 需要该路由的名额时传入路由，只需要总名额时传null
+     */
+    private void evictIdleElsewhere(String route) {
+        for (IdleConnection connection : evicting) {
+            if (route == null || route.equals(connection.route())) {
+                return;
+            }
+        }
+        Iterator<IdleConnection> iterator = idleElsewhere.descendingIterator();
+        while (iterator.hasNext()) {
+            IdleConnection connection = iterator.next();
+            if (route == null || route.equals(connection.route())) {
+                iterator.remove();
+                evicting.add(connection);
+                connection.evict();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 关闭所有路由中最久空闲的一个连接，给其他路由的新连接让位
+     * @return true如果有空闲连接被关闭
+     */
+    private boolean evictEldestIdle() {
+        PooledConnection eldest = null;
+        for (Deque<PooledConnection> connections : idle.values()) {
+            PooledConnection last = connections.peekLast();
+            if (last != null && (eldest == null || last.idleSince < eldest.idleSince)) {
+                eldest = last;
+            }
+        }
+        if (eldest == null) {
+            return false;
+        }
+        Deque<PooledConnection> connections = idle.get(eldest.route);
+        connections.pollLast();
+        if (connections.isEmpty()) {
+            idle.remove(eldest.route);
+        }
+        releaseCount(eldest.route);
+        eldest.close();
+        return true;
+    }
+}
@@ -3,23 +3,95 @@ package com.http.client;
 import com.http.protocol.HttpRequest;
 import com.http.protocol.HttpResponse;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * HTTP客户端
- * 负责发送HTTP请求并接收响应
+ * 负责发送HTTP请求并接收响应。连接保存在按主机复用的连接池中：
+ * 响应体按Content-Length或chunked读完、服务器没有要求关闭时，连接留给下一个请求，省去TCP建连。
+ * send在调用线程中阻塞完成；sendAsync交给少量NIO事件循环线程，等待响应期间不占用调用方线程；
+ * sendBatch把发往同一主机的一批请求流水线化地写到一个连接上，按顺序匹配响应。
+ * 线程安全，多个线程可以共享一个客户端；不再使用时调用close关闭空闲连接
  */
-public class HttpClient {
+public class HttpClient implements AutoCloseable {
     
     private static final int CONNECT_TIMEOUT = 10000; // 10秒连接超时
     private static final int READ_TIMEOUT = 30000;    // 30秒读取超时
     private static final int MAX_REDIRECTS = 5;       // 最大重定向次数
+    private static final int MAX_PIPELINE_DEPTH = 16;        // 流水线上最多同时等待响应的请求数
+    private static final int MAX_PIPELINE_BYTES = 16 * 1024; // 流水线上等待响应的请求总字节数上限
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+    public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 64;
+    public static final long DEFAULT_IDLE_TIMEOUT = 15000; // 15秒，短于服务器的30秒空闲超时
+    private static final int ASYNC_LOOPS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private final ConnectionPool pool = new ConnectionPool(
+            DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_TOTAL, DEFAULT_IDLE_TIMEOUT);
+    private NioClientLoop[] loops; // 异步请求的事件循环，第一次sendAsync时启动
+    private boolean closed;
+
+    /**
+     * 设置每个主机（主机:端口）的最大连接数，达到上限时请求等待其他请求归还连接
+     * @param maxConnections 最大连接数
+     */
+    public void setMaxConnectionsPerRoute(int maxConnections) {
+        pool.setLimits(maxConnections, pool.getMaxTotal());
+    }
+
+    /**
+     * 设置所有主机合计的最大连接数
+     * @param maxConnections 最大连接数
+     */
+    public void setMaxConnectionsTotal(int maxConnections) {
+        pool.setLimits(pool.getMaxPerRoute(), maxConnections);
+    }
+
+    /**
+     * 设置空闲连接的保留时间，超过后关闭；0表示不复用连接
+     * @param idleTimeoutMillis 保留时间（毫秒）
+     */
+    public void setIdleTimeout(long idleTimeoutMillis) {
+        pool.setIdleTimeout(idleTimeoutMillis);
+    }
+
+    /**
+     * @return 连接池中的空闲连接数
+     */
+    public int getIdleConnectionCount() {
+        return pool.idleConnections();
+    }
+
+    /**
+     * 关闭连接池中的空闲连接并停止异步事件循环（未完成的异步请求以异常结束），之后不能再发送请求
+     */
+    @Override
+    public void close() {
+        pool.close();
+        synchronized (this) {
+            closed = true;
+            if (loops != null) {
+                for (NioClientLoop loop : loops) {
+                    loop.shutdown();
+                }
+            }
+        }
+    }
     
     /**
      * 发送HTTP请求并接收响应
@@ -31,6 +103,226 @@ public class HttpClient {
         return sendWithRedirect(request, 0);
     }
     
+    /**
+     * 批量发送HTTP请求（HTTP/1.1流水线）
+     * 请求按主机分组，每组在一个池中的连接上连续写出多个请求、不等前一个响应，再按顺序读取响应，
+     * 省去每个请求一次的往返等待。只有没有请求体的幂等请求参与流水线，同时等待响应的请求
+     * 最多MAX_PIPELINE_DEPTH个、合计不超过MAX_PIPELINE_BYTES字节（远小于套接字缓冲区），
+     * 服务器因为我们还没有读取响应而停止读取时，已写出的请求仍然能全部放进缓冲区，两边不会互相阻塞；
+     * 非幂等请求（例如POST）和带请求体的请求等前面的响应读完后单独发送。
+     * 服务器中途关闭连接时，尚未收到响应的幂等请求在新连接上重发。
+     * 301/302响应在批量完成后逐个跟随重定向
+     * @param requests HTTP请求列表
+     * @return 与请求一一对应的响应列表
+     * @throws IOException 如果任何一个请求失败
+     */
+    public List<HttpResponse> sendBatch(List<HttpRequest> requests) throws IOException {
+        HttpResponse[] responses = new HttpResponse[requests.size()];
+
+        // 按主机分组，保持首次出现的顺序，记录每个请求在结果中的位置
+        Map<String, List<Integer>> routes = new LinkedHashMap<>();
+        Map<String, Target> targets = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Target target = resolveTarget(requests.get(i));
+            String route = target.host + ":" + target.port;
+            targets.putIfAbsent(route, target);
+            routes.computeIfAbsent(route, key -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> entry : routes.entrySet()) {
+            executePipelined(targets.get(entry.getKey()), requests, entry.getValue(), responses);
+        }
+
+        for (int i = 0; i < responses.length; i++) {
+            int statusCode = responses[i].getStatusCode();
+            if (statusCode == 301 || statusCode == 302) {
+                responses[i] = handleRedirect(responses[i], 0);
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * 在一个连接上流水线发送同一主机的请求，响应按发送顺序写入responses
+     * 连接在所有响应到达之前关闭时换一个新连接，从第一个没有响应的请求开始重发
+     * @param target 目标主机
+     * @param requests 全部请求
+     * @param indices 发往该主机的请求下标，按发送顺序
+     * @param responses 响应数组
+     * @throws IOException 如果网络通信失败
+     */
+    private void executePipelined(Target target, List<HttpRequest> requests, List<Integer> indices,
+                                  HttpResponse[] responses) throws IOException {
+        byte[][] encoded = new byte[indices.size()][]; // 编码后的请求，重发时不再编码
+        int received = 0; // 已收到响应的请求数
+        while (received < indices.size()) {
+            ConnectionPool.PooledConnection connection = pool.acquire(target.host, target.port, CONNECT_TIMEOUT);
+            boolean reusable = false;
+            int receivedBefore = received;
+            try {
+                connection.socket().setSoTimeout(READ_TIMEOUT);
+                OutputStream out = connection.output();
+                int sent = received; // 没有响应的请求都在这个连接上（重新）发送
+                int inFlightBytes = 0;
+                boolean open = true;
+                while (open && received < indices.size()) {
+                    // 填满发送窗口（按请求数和字节数），多个请求合并成一次写出
+                    ByteArrayOutputStream pending = new ByteArrayOutputStream();
+                    while (sent < indices.size() && sent - received < MAX_PIPELINE_DEPTH) {
+                        HttpRequest next = requests.get(indices.get(sent));
+                        if (sent > received
+                                && !(canPipeline(next) && canPipeline(requests.get(indices.get(sent - 1))))) {
+                            break;
+                        }
+                        if (encoded[sent] == null) {
+                            encoded[sent] = next.toBytes();
+                        }
+                        if (sent > received && inFlightBytes + encoded[sent].length > MAX_PIPELINE_BYTES) {
+                            break;
+                        }
+                        pending.write(encoded[sent]);
+                        inFlightBytes += encoded[sent].length;
+                        sent++;
+                    }
+                    if (pending.size() > 0) {
+                        pending.writeTo(out);
+                        out.flush();
+                    }
+
+                    // 读取最早发送的请求的响应，读多了的字节留给下一个响应
+                    HttpRequest request = requests.get(indices.get(received));
+                    responses[indices.get(received)] =
+                            connection.reader().readResponse("HEAD".equals(request.getMethod()));
+                    inFlightBytes -= encoded[received].length;
+                    received++;
+                    String connectionHeader = request.getHeader("Connection");
+                    open = connection.reader().isConnectionReusable()
+                            && (connectionHeader == null || !connectionHeader.equalsIgnoreCase("close"));
+                }
+                reusable = open;
+
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Request timeout", e);
+            } catch (EOFException | SocketException e) {
+                // 新连接上一个响应也没有收到时放弃，避免无限重试；非幂等请求可能已被执行，不能重发
+                if ((received == receivedBefore && !connection.isReused())
+                        || !isIdempotent(requests.get(indices.get(received)).getMethod())) {
+                    throw e;
+                }
+            } finally {
+                pool.release(connection, reusable);
+            }
+        }
+    }
+
+    /**
+     * 请求能否与其他请求同时在流水线上等待响应：必须是幂等的，并且没有请求体
+     */
+    private static boolean canPipeline(HttpRequest request) {
+        if (!isIdempotent(request.getMethod()) || request.isBodyStreaming()) {
+            return false;
+        }
+        byte[] body = request.getBody();
+        return body == null || body.length == 0;
+    }
+
+    /**
+     * 异步发送HTTP请求，使用默认超时（30秒）
+     * @param request HTTP请求对象
+     * @return 完成时得到HTTP响应的future
+     * @see #sendAsync(HttpRequest, long)
+     */
+    public CompletableFuture<HttpResponse> sendAsync(HttpRequest request) {
+        return sendAsync(request, READ_TIMEOUT);
+    }
+
+    /**
+     * 异步发送HTTP请求
+     * 建连、发送和接收都由NIO事件循环完成，调用方线程立即返回（只在这里解析主机名）；
+     * 超时覆盖包括重定向在内的整个请求，超时后future以SocketTimeoutException结束。
+     * 取消future（或者用orTimeout等方式提前完成它）会中止请求并关闭它的连接。
+     * 连接数与send共用每个主机和全部主机的上限，达到上限时请求排队等待连接，排队时间计入超时。
+     * future在公共线程池中完成，后续回调不会阻塞事件循环
+     * @param request HTTP请求对象
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 完成时得到HTTP响应的future
+     */
+    public CompletableFuture<HttpResponse> sendAsync(HttpRequest request, long timeoutMillis) {
+        CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+        sendAsyncWithRedirect(request, result, System.currentTimeMillis() + timeoutMillis, 0);
+        return result;
+    }
+
+    /**
+     * 异步发送一跳请求，收到301/302时继续发送重定向请求，所有跳共享同一个截止时间
+     */
+    private void sendAsyncWithRedirect(HttpRequest request, CompletableFuture<HttpResponse> result,
+                                       long deadline, int redirectCount) {
+        if (redirectCount >= MAX_REDIRECTS) {
+            result.completeExceptionally(new IOException("Too many redirects (max " + MAX_REDIRECTS + ")"));
+            return;
+        }
+        try {
+            Target target = resolveTarget(request);
+            InetSocketAddress address = new InetSocketAddress(target.host, target.port);
+            if (address.isUnresolved()) {
+                throw new UnknownHostException(target.host);
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new SocketTimeoutException("Request timeout");
+            }
+
+            CompletableFuture<HttpResponse> hop = new CompletableFuture<>();
+            // 调用方取消时中止当前这一跳
+            result.whenComplete((response, error) -> {
+                if (error != null) {
+                    hop.cancel(false);
+                }
+            });
+            hop.whenComplete((response, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                int statusCode = response.getStatusCode();
+                if (statusCode != 301 && statusCode != 302) {
+                    // 304 Not Modified - 使用缓存，不需要重新请求
+                    result.complete(response);
+                    return;
+                }
+                try {
+                    sendAsyncWithRedirect(createRedirectRequest(response), result, deadline, redirectCount + 1);
+                } catch (IOException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            loopFor(address).submit(new NioClientLoop.Exchange(request, address, hop, remaining));
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 同一路由的请求总是交给同一个事件循环，空闲连接才能被复用
+     */
+    private synchronized NioClientLoop loopFor(InetSocketAddress address) throws IOException {
+        if (closed) {
+            throw new IOException("HttpClient is closed");
+        }
+        if (loops == null) {
+            NioClientLoop[] created = new NioClientLoop[ASYNC_LOOPS];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = new NioClientLoop(pool, ForkJoinPool.commonPool());
+                Thread thread = new Thread(created[i], "HttpClientLoop-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            loops = created;
+        }
+        int hash = (address.getHostString() + ":" + address.getPort()).hashCode();
+        return loops[Math.floorMod(hash, loops.length)];
+    }
+
     /**
      * 发送HTTP请求并处理重定向
      * @param request HTTP请求对象
@@ -44,6 +336,89 @@ public class HttpClient {
             throw new IOException("Too many redirects (max " + MAX_REDIRECTS + ")");
         }
         
+        Target target = resolveTarget(request);
+        HttpResponse response = execute(target.host, target.port, request);
+
+        // 检查是否需要重定向
+        int statusCode = response.getStatusCode();
+        if (statusCode == 301 || statusCode == 302 || statusCode == 304) {
+            return handleRedirect(response, redirectCount);
+        }
+
+        return response;
+    }
+
+    /**
+     * 在池中的连接上发送请求并读取响应
+     * 复用的连接在收到任何响应字节之前被服务器关闭（空闲超时的竞争）时，幂等请求换一个新连接重试一次
+     * @throws IOException 如果网络通信失败
+     */
+    private HttpResponse execute(String host, int port, HttpRequest request) throws IOException {
+        boolean retried = false;
+        while (true) {
+            ConnectionPool.PooledConnection connection = pool.acquire(host, port, CONNECT_TIMEOUT);
+            boolean reusable = false;
+            try {
+                connection.socket().setSoTimeout(READ_TIMEOUT);
+
+                // 发送请求
+                OutputStream out = connection.output();
+                out.write(request.toBytes());
+                out.flush();
+
+                // 接收响应，读多了的字节留在连接的读取器中
+                HttpResponse response = connection.reader().readResponse("HEAD".equals(request.getMethod()));
+                String connectionHeader = request.getHeader("Connection");
+                reusable = connection.reader().isConnectionReusable()
+                        && (connectionHeader == null || !connectionHeader.equalsIgnoreCase("close"));
+                return response;
+
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Request timeout", e);
+            } catch (EOFException | SocketException e) {
+                if (!connection.isReused() || retried || !isIdempotent(request.getMethod())) {
+                    throw e;
+                }
+                retried = true;
+            } finally {
+                pool.release(connection, reusable);
+            }
+        }
+    }
+
+    static boolean isIdempotent(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "PUT":
+            case "DELETE":
+            case "OPTIONS":
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * 请求的目标主机和端口
+     */
+    static final class Target {
+        final String host;
+        final int port;
+
+        Target(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+    }
+
+    /**
+     * 从请求URI（或Host头）解析目标主机和端口，把请求URI改为路径部分并确保有Host头
+     * @param request HTTP请求对象
+     * @return 目标主机和端口
+     * @throws IOException 如果URI无效或无法确定主机
+     */
+    static Target resolveTarget(HttpRequest request) throws IOException {
         // 解析URI获取主机和端口
         URI uri;
         try {
@@ -83,44 +458,10 @@ public class HttpClient {
         if (request.getHeader("Host") == null) {
             request.setHeader("Host", host + (port != 80 ? ":" + port : ""));
         }
-        
-        Socket socket = null;
-        try {
-            // 创建Socket连接
-            socket = new Socket();
-            socket.connect(new java.net.InetSocketAddress(host, port), CONNECT_TIMEOUT);
-            socket.setSoTimeout(READ_TIMEOUT);
-            
-            // 发送请求
-            OutputStream out = socket.getOutputStream();
-            out.write(request.toBytes());
-            out.flush();
-            
-            // 接收响应
-            InputStream in = socket.getInputStream();
-            HttpResponse response = HttpResponse.parse(in);
-            
-            // 检查是否需要重定向
-            int statusCode = response.getStatusCode();
-            if (statusCode == 301 || statusCode == 302 || statusCode == 304) {
-                return handleRedirect(response, redirectCount);
-            }
-            
-            return response;
-            
-        } catch (SocketTimeoutException e) {
-            throw new IOException("Request timeout", e);
-        } finally {
-            if (socket != null && !socket.isClosed()) {
-                try {
-                    socket.close();
-                } catch (IOException e) {
-                    // 忽略关闭异常
-                }
-            }
-        }
+
+        return new Target(host, port);
     }
-    
+
     /**
      * 处理重定向响应
      * @param response 重定向响应
@@ -137,6 +478,17 @@ public class HttpClient {
         }
         
         // 301 Moved Permanently 或 302 Found - 需要重定向
+        // 递归发送重定向请求
+        return sendWithRedirect(createRedirectRequest(response), redirectCount + 1);
+    }
+
+    /**
+     * 按重定向响应的Location创建新的GET请求
+     * @param response 301或302响应
+     * @return 重定向请求
+     * @throws IOException 如果响应没有Location头
+     */
+    static HttpRequest createRedirectRequest(HttpResponse response) throws IOException {
         String location = response.getHeader("Location");
         if (location == null || location.isEmpty()) {
             throw new IOException("Redirect response missing Location header");
@@ -145,9 +497,6 @@ public class HttpClient {
         // 创建新的请求
         HttpRequest redirectRequest = new HttpRequest("GET", location);
         redirectRequest.setHeader("User-Agent", "HttpClient/1.0");
-        redirectRequest.setHeader("Connection", "close");
-        
-        // 递归发送重定向请求
-        return sendWithRedirect(redirectRequest, redirectCount + 1);
+        return redirectRequest;
     }
 }
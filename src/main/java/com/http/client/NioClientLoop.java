@@ -0,0 +1,515 @@
+package com.http.client;
+
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+import com.http.protocol.HttpResponseParser;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * 客户端NIO事件循环
+ * 一个Selector和一个线程驱动多个异步请求：非阻塞建连、写出请求、增量解析响应，等待期间不占用任何线程。
+ * 每个路由保留少量空闲长连接供后续请求复用，空闲期间关注OP_READ，服务器关闭连接时立即发现。
+ * 新连接与阻塞请求一样在ConnectionPool中占用名额（每个路由和全部路由的上限），空闲连接登记在ConnectionPool中，
+ * 阻塞请求或其他事件循环缺名额时可以请本循环关闭其中最久空闲的一个；
+ * 名额不足时请求按路由排队，等其他请求归还连接或关闭连接后再开始，排队时间计入请求超时。
+ * 请求的future在回调线程池中完成，调用方的后续处理不会阻塞事件循环；其他线程只能通过execute提交任务
+ */
+class NioClientLoop implements Runnable {
+
+    private static final long SELECT_TIMEOUT = 1000; // 最长等待时间（毫秒），用于检查空闲连接
+    private static final int BUFFER_SIZE = 8192;
+    private static final long WAITING_RETRY = 10; // 有请求排队时重试名额的间隔（毫秒），其他线程归还名额不会唤醒本循环
+
+    /**
+     * 一个非阻塞连接，同一时间只承载一个请求
+     */
+    private final class Connection implements ConnectionPool.IdleConnection {
+        final String route;
+        final SocketChannel channel;
+        final SelectionKey key;
+        final HttpResponseParser parser = new HttpResponseParser();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE); // 写模式，读取到的数据从0开始
+        Exchange exchange; // 正在进行的请求，空闲时为null
+        boolean reused;
+        boolean closed;
+        long idleSince;
+
+        Connection(String route, SocketChannel channel, SelectionKey key) {
+            this.route = route;
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void close() {
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 忽略关闭异常
+            }
+        }
+
+        @Override
+        public String route() {
+            return route;
+        }
+
+        @Override
+        public void evict() {
+            // 由连接池在其他线程中调用，在事件循环线程中关闭
+            execute(() -> {
+                removeIdle(this);
+                discard(this);
+            });
+        }
+    }
+
+    /**
+     * 一次请求/响应交换
+     */
+    static final class Exchange {
+        final HttpRequest request;
+        final InetSocketAddress address;
+        final String route;
+        final CompletableFuture<HttpResponse> future;
+        final long deadline;
+        final long timeoutMillis;
+        ByteBuffer output;
+        Connection connection;
+        boolean retried;
+
+        Exchange(HttpRequest request, InetSocketAddress address, CompletableFuture<HttpResponse> future,
+                 long timeoutMillis) {
+            this.request = request;
+            this.address = address;
+            this.route = address.getHostString() + ":" + address.getPort();
+            this.future = future;
+            this.timeoutMillis = timeoutMillis;
+            this.deadline = System.currentTimeMillis() + timeoutMillis;
+        }
+    }
+
+    private final Selector selector;
+    private final ConnectionPool limits; // 连接数名额、空闲连接数和空闲超时与阻塞连接池共用
+    private final Executor callbacks;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<Exchange> exchanges = new HashSet<>();
+    private final Map<String, Deque<Connection>> idle = new HashMap<>(); // 每个路由的空闲连接，最近归还的在前
+    private final Map<String, Deque<Exchange>> waiting = new LinkedHashMap<>(); // 等待连接名额的请求，按到达顺序
+    private volatile boolean running = true;
+
+    NioClientLoop(ConnectionPool limits, Executor callbacks) throws IOException {
+        this.selector = Selector.open();
+        this.limits = limits;
+        this.callbacks = callbacks;
+    }
+
+    /**
+     * 提交任务到事件循环线程执行
+     * @param task 任务
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * 开始一次交换；future被调用方取消或提前完成时中止请求并关闭它的连接
+     * @param exchange 请求/响应交换
+     */
+    void submit(Exchange exchange) {
+        if (!running) {
+            exchange.future.completeExceptionally(new IOException("HttpClient is closed"));
+            return;
+        }
+        exchange.future.whenComplete((response, error) -> {
+            if (error != null) {
+                execute(() -> abort(exchange));
+            }
+        });
+        execute(() -> start(exchange));
+    }
+
+    /**
+     * 停止事件循环，未完成的请求以异常结束
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(selectTimeout());
+                runTasks();
+                processSelectedKeys();
+                long now = System.currentTimeMillis();
+                expireExchanges(now);
+                closeIdleConnections(now);
+                // 本轮归还或关闭的连接（以及阻塞请求释放的名额）留给排队的请求
+                startWaiting();
+            }
+        } catch (IOException e) {
+            System.err.println("Client event loop error: " + e.getMessage());
+        } finally {
+            running = false;
+            runTasks();
+            for (Exchange exchange : new ArrayList<>(exchanges)) {
+                fail(exchange, new IOException("HttpClient is closed"));
+            }
+            for (Deque<Connection> connections : idle.values()) {
+                for (Connection connection : connections) {
+                    discard(connection);
+                }
+            }
+            idle.clear();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing selector: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 等到最近的请求超时为止，但不超过SELECT_TIMEOUT
+     */
+    private long selectTimeout() {
+        long timeout = waiting.isEmpty() ? SELECT_TIMEOUT : WAITING_RETRY;
+        long now = System.currentTimeMillis();
+        for (Exchange exchange : exchanges) {
+            timeout = Math.min(timeout, exchange.deadline - now);
+        }
+        return Math.max(1, timeout);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                System.err.println("Error running client event loop task: " + e.getMessage());
+            }
+        }
+    }
+
+    private void start(Exchange exchange) {
+        if (exchange.future.isDone()) {
+            return;
+        }
+        if (!running) {
+            complete(exchange.future, null, new IOException("HttpClient is closed"));
+            return;
+        }
+        exchanges.add(exchange);
+        if (exchange.output == null) {
+            exchange.output = ByteBuffer.wrap(exchange.request.toBytes());
+        }
+
+        Connection connection = takeIdle(exchange.route);
+        if (connection != null) {
+            connection.reused = true;
+            connection.exchange = exchange;
+            exchange.connection = connection;
+            connection.key.interestOps(SelectionKey.OP_WRITE);
+            return;
+        }
+        if (!limits.tryReserve(exchange.route)) {
+            // 达到连接数上限，排队等待其他请求归还或关闭连接（tryReserve已请最久空闲的连接让位）
+            waiting.computeIfAbsent(exchange.route, route -> new ArrayDeque<>()).addLast(exchange);
+            return;
+        }
+
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, 0);
+            connection = new Connection(exchange.route, channel, key);
+            key.attach(connection);
+            connection.exchange = exchange;
+            exchange.connection = connection;
+            if (channel.connect(exchange.address)) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(SelectionKey.OP_CONNECT);
+            }
+        } catch (IOException e) {
+            if (connection == null) {
+                // 连接还没有建立起来，fail不会释放名额
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // 忽略关闭异常
+                    }
+                }
+                limits.releaseReserved(exchange.route);
+            }
+            fail(exchange, e);
+        }
+    }
+
+    /**
+     * 重新开始所有排队的请求，仍然拿不到名额的按原顺序重新排队
+     */
+    private void startWaiting() {
+        if (waiting.isEmpty()) {
+            return;
+        }
+        List<Exchange> pending = new ArrayList<>();
+        for (Deque<Exchange> queue : waiting.values()) {
+            pending.addAll(queue);
+        }
+        waiting.clear();
+        for (Exchange exchange : pending) {
+            exchanges.remove(exchange);
+            start(exchange);
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            Exchange exchange = connection.exchange;
+            if (exchange == null) {
+                // 空闲连接变为可读：服务器关闭了连接或者发来了不属于任何请求的数据，都不能再用
+                removeIdle(connection);
+                discard(connection);
+                continue;
+            }
+            try {
+                if (key.isConnectable()) {
+                    connection.channel.finishConnect();
+                    key.interestOps(SelectionKey.OP_WRITE);
+                } else if (key.isWritable()) {
+                    onWritable(exchange);
+                } else if (key.isReadable()) {
+                    onReadable(exchange);
+                }
+            } catch (IOException e) {
+                onError(exchange, e);
+            }
+        }
+    }
+
+    private void onWritable(Exchange exchange) throws IOException {
+        Connection connection = exchange.connection;
+        connection.channel.write(exchange.output);
+        if (!exchange.output.hasRemaining()) {
+            connection.parser.setHeadRequest("HEAD".equals(exchange.request.getMethod()));
+            connection.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void onReadable(Exchange exchange) throws IOException {
+        Connection connection = exchange.connection;
+        ByteBuffer buffer = connection.buffer;
+        if (!buffer.hasRemaining()) {
+            // 响应头超过缓冲区大小，扩容
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            connection.buffer = buffer = larger;
+        }
+        int read = connection.channel.read(buffer);
+        if (read == -1) {
+            buffer.flip();
+            HttpResponse response = connection.parser.endOfStream();
+            if (response == null) {
+                throw new EOFException("Invalid HTTP response: connection closed before status line");
+            }
+            finish(exchange, response, false);
+            return;
+        }
+
+        buffer.flip();
+        HttpResponse response = connection.parser.parse(buffer);
+        boolean leftover = buffer.hasRemaining();
+        buffer.compact();
+        if (response != null) {
+            String connectionHeader = exchange.request.getHeader("Connection");
+            boolean reusable = connection.parser.isConnectionReusable() && !leftover
+                    && (connectionHeader == null || !connectionHeader.equalsIgnoreCase("close"));
+            finish(exchange, response, reusable);
+        }
+    }
+
+    /**
+     * 复用的连接在收到任何响应字节之前失败（服务器关闭了空闲连接），幂等请求换一个新连接重试一次
+     */
+    private void onError(Exchange exchange, IOException error) {
+        Connection connection = exchange.connection;
+        boolean retry = connection != null && connection.reused && !connection.parser.isInProgress()
+                && !exchange.retried && HttpClient.isIdempotent(exchange.request.getMethod());
+        if (!retry) {
+            fail(exchange, error);
+            return;
+        }
+        exchanges.remove(exchange);
+        discard(connection);
+        exchange.connection = null;
+        exchange.output = null; // 在新连接上从头发送
+        exchange.retried = true;
+        start(exchange);
+    }
+
+    private void finish(Exchange exchange, HttpResponse response, boolean reusable) {
+        exchanges.remove(exchange);
+        Connection connection = exchange.connection;
+        exchange.connection = null;
+        connection.exchange = null;
+        if (reusable && running) {
+            release(connection);
+        } else {
+            discard(connection);
+        }
+        complete(exchange.future, response, null);
+    }
+
+    private void fail(Exchange exchange, Throwable error) {
+        exchanges.remove(exchange);
+        Deque<Exchange> queue = waiting.get(exchange.route);
+        if (queue != null && queue.remove(exchange) && queue.isEmpty()) {
+            waiting.remove(exchange.route);
+        }
+        Connection connection = exchange.connection;
+        if (connection != null) {
+            exchange.connection = null;
+            discard(connection);
+        }
+        complete(exchange.future, null, error);
+    }
+
+    /**
+     * future已被取消或由调用方完成（例如orTimeout），关闭正在使用的连接
+     */
+    private void abort(Exchange exchange) {
+        if (exchanges.contains(exchange)) {
+            fail(exchange, new IOException("Request aborted"));
+        }
+    }
+
+    private void expireExchanges(long now) {
+        for (Exchange exchange : new ArrayList<>(exchanges)) {
+            if (now >= exchange.deadline) {
+                fail(exchange, new SocketTimeoutException("Request timeout after " + exchange.timeoutMillis + " ms"));
+            }
+        }
+    }
+
+    /**
+     * 在回调线程池中完成future，调用方注册的后续处理不在事件循环线程中执行
+     */
+    private void complete(CompletableFuture<HttpResponse> future, HttpResponse response, Throwable error) {
+        if (future.isDone()) {
+            return;
+        }
+        callbacks.execute(() -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(response);
+            }
+        });
+    }
+
+    private Connection takeIdle(String route) {
+        Deque<Connection> connections = idle.get(route);
+        if (connections == null) {
+            return null;
+        }
+        Connection connection;
+        do {
+            // 已被连接池请求关闭的连接不能再用，等evict任务关闭
+            connection = connections.pollFirst();
+        } while (connection != null && !limits.removeIdle(connection));
+        if (connections.isEmpty()) {
+            idle.remove(route);
+        }
+        return connection;
+    }
+
+    private void release(Connection connection) {
+        Deque<Connection> connections = idle.computeIfAbsent(connection.route, route -> new ArrayDeque<>());
+        if (connections.size() >= limits.getMaxPerRoute()) {
+            discard(connection);
+            return;
+        }
+        connection.idleSince = System.currentTimeMillis();
+        connection.key.interestOps(SelectionKey.OP_READ);
+        connections.addFirst(connection);
+        limits.addIdle(connection);
+    }
+
+    private void removeIdle(Connection connection) {
+        Deque<Connection> connections = idle.get(connection.route);
+        if (connections != null) {
+            connections.remove(connection);
+            if (connections.isEmpty()) {
+                idle.remove(connection.route);
+            }
+        }
+    }
+
+    /**
+     * 关闭空闲超时的连接（队尾是最久空闲的）
+     */
+    private void closeIdleConnections(long now) {
+        long idleTimeout = limits.getIdleTimeout();
+        Iterator<Deque<Connection>> routes = idle.values().iterator();
+        while (routes.hasNext()) {
+            Deque<Connection> connections = routes.next();
+            while (!connections.isEmpty() && now - connections.peekLast().idleSince >= idleTimeout) {
+                discard(connections.pollLast());
+            }
+            if (connections.isEmpty()) {
+                routes.remove();
+            }
+        }
+    }
+
+    /**
+     * 关闭连接并归还它在连接池中占用的名额（同时取消空闲登记）
+     */
+    private void discard(Connection connection) {
+        if (!connection.closed) {
+            connection.close();
+            limits.releaseReserved(connection);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 字节数组响应体
+ * 直接包装数组的一段，不复制，适合发送缓存内容的一部分或少量生成的数据
+ */
+final class BytesResponseBody implements ResponseBody {
+
+    private final ByteBuffer buffer;
+
+    BytesResponseBody(byte[] bytes, int offset, int length) {
+        this.buffer = ByteBuffer.wrap(bytes, offset, length);
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel target) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (target.write(buffer) == 0) {
+                // 非阻塞通道的发送缓冲区已满，等待下次可写
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+}
@@ -0,0 +1,233 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 预编码的不可变响应
+ * 状态行、响应头和响应体在创建时编码为完整的报文字节，保存在共享的只读ByteBuffer中，
+ * 可以被所有请求复用（重定向、304、错误页等内容固定的响应）。
+ * 连接层直接写出这些字节，只在响应头末尾插入每个请求不同的Date头（取自ServerClock）和Connection头；
+ * 所有修改方法都会抛出UnsupportedOperationException，需要修改时使用mutable()（返回copy()的结果）
+ */
+public final class CannedResponse extends HttpResponse {
+
+    private static final byte[] KEEP_ALIVE = "Connection: keep-alive\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] CLOSE = "Connection: close\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final ByteBuffer KEEP_ALIVE_BUFFER = ByteBuffer.wrap(KEEP_ALIVE).asReadOnlyBuffer();
+    private static final ByteBuffer CLOSE_BUFFER = ByteBuffer.wrap(CLOSE).asReadOnlyBuffer();
+
+    private final byte[] wire;          // 完整报文
+    private final int headEnd;          // 响应头结束空行的位置，Date和Connection头插在这里
+    private final ByteBuffer buffer;    // wire的只读视图
+    private final String connection;    // 响应自带的Connection头，null表示由连接层决定
+    private final boolean hasDate;      // 响应自带Date头时不再插入
+    private final CannedResponse headResponse; // 省略响应体的版本（HEAD请求）
+
+    private CannedResponse(HttpResponse source, HttpHeaders headers, CannedResponse getResponse) {
+        super(source.getStatusCode(), source.getStatusMessage());
+        super.setVersion(source.getVersion());
+        super.setHeaders(headers);
+        super.setBody(source.getBody());
+        super.setBodyOmitted(getResponse != null);
+
+        byte[] head = source.encodeHead();
+        byte[] body = getResponse != null ? new byte[0] : source.getBody();
+        this.wire = new byte[head.length + body.length];
+        System.arraycopy(head, 0, wire, 0, head.length);
+        System.arraycopy(body, 0, wire, head.length, body.length);
+        this.headEnd = head.length - 2;
+        this.buffer = ByteBuffer.wrap(wire).asReadOnlyBuffer();
+        this.connection = headers.get(HttpHeaders.CONNECTION);
+        this.hasDate = headers.contains(HttpHeaders.DATE);
+        this.headResponse = getResponse != null ? this : new CannedResponse(source, headers, this);
+    }
+
+    /**
+     * 把一个内存响应编码为不可变响应
+     * @param response 源响应（之后对它的修改不影响结果）
+     * @return 预编码的响应
+     * @throws IllegalArgumentException 如果源响应使用流式响应体
+     */
+    public static CannedResponse of(HttpResponse response) {
+        if (response instanceof CannedResponse) {
+            return (CannedResponse) response;
+        }
+        if (response.isStreaming()) {
+            throw new IllegalArgumentException("Streaming responses cannot be canned");
+        }
+        return new CannedResponse(response, response.getHeaders().toReadOnly(), null);
+    }
+
+    /**
+     * 创建纯文本响应
+     * @param status 状态码
+     * @param body 响应体文本
+     * @return 预编码的响应
+     */
+    public static CannedResponse text(HttpStatus status, String body) {
+        HttpResponse response = new HttpResponse(status);
+        response.setHeader("Content-Type", "text/plain");
+        response.setBody(body);
+        return of(response);
+    }
+
+    /**
+     * @return 完整报文（不含插入的Date和Connection头）的只读视图，每次返回独立的位置
+     */
+    public ByteBuffer wireBytes() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * @return 省略响应体、其余与本响应相同的版本，用于HEAD请求
+     */
+    public CannedResponse headResponse() {
+        return headResponse;
+    }
+
+    /**
+     * 响应是否自带Connection: close（例如错误响应），发送后应关闭连接
+     * @return true如果要求关闭连接
+     */
+    public boolean closesConnection() {
+        return connection != null && connection.equalsIgnoreCase("close");
+    }
+
+    /**
+     * 写出报文，在响应头末尾插入当前的Date头，没有自带Connection头时插入Connection头
+     * @param output 输出流
+     * @param keepAlive 是否保持连接
+     * @throws IOException 如果写出失败
+     */
+    public void writeTo(OutputStream output, boolean keepAlive) throws IOException {
+        output.write(wire, 0, headEnd);
+        if (!hasDate) {
+            output.write(ServerClock.dateHeader());
+        }
+        if (connection == null) {
+            output.write(keepAlive ? KEEP_ALIVE : CLOSE);
+        }
+        output.write(wire, headEnd, wire.length - headEnd);
+    }
+
+    /**
+     * 把报文切分为可以依次写入通道的缓冲区（共享内容，只复制位置信息）
+     * @param keepAlive 是否保持连接
+     * @return 待写出的缓冲区
+     */
+    public ByteBuffer[] toBuffers(boolean keepAlive) {
+        ByteBuffer[] buffers = new ByteBuffer[2 + (hasDate ? 0 : 1) + (connection == null ? 1 : 0)];
+        int count = 0;
+        ByteBuffer head = buffer.duplicate();
+        head.limit(headEnd);
+        buffers[count++] = head;
+        if (!hasDate) {
+            buffers[count++] = ServerClock.dateHeaderBuffer();
+        }
+        if (connection == null) {
+            buffers[count++] = (keepAlive ? KEEP_ALIVE_BUFFER : CLOSE_BUFFER).duplicate();
+        }
+        ByteBuffer rest = buffer.duplicate();
+        rest.position(headEnd);
+        buffers[count] = rest;
+        return buffers;
+    }
+
+    /**
+     * @return 内容相同、可以修改的普通响应
+     */
+    public HttpResponse copy() {
+        HttpResponse copy = new HttpResponse(getStatusCode(), getStatusMessage());
+        copy.setVersion(getVersion());
+        copy.setHeaders(new HttpHeaders(getHeaders()));
+        copy.setBody(getBody());
+        copy.setBodyOmitted(isBodyOmitted());
+        return copy;
+    }
+
+    @Override
+    public HttpResponse mutable() {
+        return copy();
+    }
+
+    @Override
+    public byte[] encodeHead() {
+        byte[] head = new byte[headEnd + 2];
+        System.arraycopy(wire, 0, head, 0, head.length);
+        return head;
+    }
+
+    @Override
+    public void writeTo(OutputStream output, WritableByteChannel channel) throws IOException {
+        output.write(wire);
+    }
+
+    @Override
+    public void setStatusCode(int statusCode) {
+        throw immutable();
+    }
+
+    @Override
+    public void setStatusMessage(String statusMessage) {
+        throw immutable();
+    }
+
+    @Override
+    public void setStatus(HttpStatus status) {
+        throw immutable();
+    }
+
+    @Override
+    public void setVersion(String version) {
+        throw immutable();
+    }
+
+    @Override
+    public void setHeaders(Map<String, String> headers) {
+        throw immutable();
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        throw immutable();
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        throw immutable();
+    }
+
+    @Override
+    public void setEncodedHeaders(EncodedHeaders encodedHeaders) {
+        throw immutable();
+    }
+
+    @Override
+    public void setBody(byte[] body) {
+        throw immutable();
+    }
+
+    @Override
+    public void setBody(ResponseBody body) {
+        throw immutable();
+    }
+
+    @Override
+    public void setBody(String bodyString) {
+        throw immutable();
+    }
+
+    @Override
+    public void setBodyOmitted(boolean bodyOmitted) {
+        throw immutable();
+    }
+
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("CannedResponse is immutable, use mutable() to modify it");
+    }
+}
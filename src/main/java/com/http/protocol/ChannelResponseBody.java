@@ -0,0 +1,78 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 基于ReadableByteChannel的响应体
+ * 通过一个固定大小的缓冲区分块搬运数据，内存占用与响应体大小无关
+ */
+final class ChannelResponseBody implements ResponseBody {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel source;
+    private final long contentLength;
+    private final ByteBuffer buffer;
+    private long remaining; // 长度已知时还需读取的字节数
+    private boolean endOfSource;
+
+    ChannelResponseBody(ReadableByteChannel source, long contentLength) {
+        this.source = source;
+        this.contentLength = contentLength;
+        this.remaining = contentLength;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel target) throws IOException {
+        while (true) {
+            // 先写出上次没写完的数据
+            while (buffer.hasRemaining()) {
+                if (target.write(buffer) == 0) {
+                    return false;
+                }
+            }
+            if (endOfSource) {
+                return true;
+            }
+
+            buffer.clear();
+            if (contentLength >= 0 && remaining < buffer.capacity()) {
+                // 长度已知时不多读，保证与Content-Length一致
+                buffer.limit((int) remaining);
+            }
+            int read = buffer.hasRemaining() ? source.read(buffer) : -1;
+            buffer.flip();
+            if (read == 0) {
+                // 非阻塞数据源暂时没有数据，交回调用方稍后重试，不在这里空转
+                return false;
+            }
+            if (read == -1) {
+                endOfSource = true;
+                if (remaining > 0) {
+                    throw new IOException("Response body ended " + remaining + " bytes before Content-Length");
+                }
+            } else if (contentLength >= 0) {
+                remaining -= read;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            source.close();
+        } catch (IOException ignored) {
+            // 忽略关闭异常
+        }
+    }
+}
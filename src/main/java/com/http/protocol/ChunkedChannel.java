@@ -0,0 +1,101 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * chunked传输编码通道
+ * 每次write的数据编码为一个块（十六进制长度 + CRLF + 数据 + CRLF），finish写出结束块。
+ * 支持非阻塞目标通道：上一个块没有写完时write返回0
+ */
+public final class ChunkedChannel implements WritableByteChannel {
+
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int FRAME_OVERHEAD = 12; // 最多8位十六进制长度 + 两个CRLF
+
+    private final WritableByteChannel target;
+    private ByteBuffer frame;
+    private boolean finished;
+    private boolean open;
+
+    public ChunkedChannel(WritableByteChannel target) {
+        this.target = target;
+        this.frame = ByteBuffer.allocate(0);
+        this.open = true;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (finished) {
+            throw new IOException("Chunked stream already finished");
+        }
+        if (!flushFrame()) {
+            return 0;
+        }
+        int length = src.remaining();
+        if (length == 0) {
+            return 0; // 长度为0的块表示结束，不能由普通写入产生
+        }
+
+        if (frame.capacity() < length + FRAME_OVERHEAD) {
+            frame = ByteBuffer.allocate(length + FRAME_OVERHEAD);
+        }
+        frame.clear();
+        putHex(length);
+        frame.put((byte) '\r').put((byte) '\n');
+        frame.put(src);
+        frame.put((byte) '\r').put((byte) '\n');
+        frame.flip();
+        flushFrame();
+        return length;
+    }
+
+    /**
+     * 写出结束块
+     * @return true如果所有数据（包括结束块）都已写出
+     * @throws IOException 如果写出失败
+     */
+    public boolean finish() throws IOException {
+        if (!finished) {
+            if (!flushFrame()) {
+                return false;
+            }
+            frame = ByteBuffer.wrap(LAST_CHUNK);
+            finished = true;
+        }
+        return flushFrame();
+    }
+
+    private boolean flushFrame() throws IOException {
+        while (frame.hasRemaining()) {
+            if (target.write(frame) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void putHex(int value) {
+        int shift = 28;
+        while (shift > 0 && ((value >>> shift) & 0xF) == 0) {
+            shift -= 4;
+        }
+        for (; shift >= 0; shift -= 4) {
+            frame.put(HEX_DIGITS[(value >>> shift) & 0xF]);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        // 不关闭底层Socket通道，只标记本编码通道不可再用
+        open = false;
+    }
+}
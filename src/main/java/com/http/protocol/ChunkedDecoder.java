@@ -0,0 +1,188 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 增量chunked解码器（Transfer-Encoding: chunked）
+ * 逐字节处理块大小行、块数据和结尾的trailer，数据不完整时记住进度，下次调用从停下的位置继续，
+ * 因此既可以在非阻塞连接上按到达的数据解码，也可以包装成输入流。
+ * 块扩展（;name=value）和trailer字段被跳过；解码后的总长度超过上限时抛出413。
+ * 非线程安全，一个解码器对应一个消息体
+ */
+final class ChunkedDecoder {
+
+    private static final int MAX_LINE_LENGTH = 4096; // 块大小行和单个trailer行的最大长度
+
+    private static final int SIZE = 0;          // 读取十六进制块大小
+    private static final int EXTENSION = 1;     // 跳过块扩展直到行尾
+    private static final int SIZE_LF = 2;       // 块大小行的CR之后
+    private static final int DATA = 3;          // 复制块数据
+    private static final int DATA_CR = 4;       // 块数据之后的CRLF
+    private static final int DATA_LF = 5;
+    private static final int TRAILER_START = 6; // trailer行开头，空行表示消息体结束
+    private static final int TRAILER = 7;       // 跳过一个trailer行
+    private static final int TRAILER_LF = 8;    // 结尾空行的CR之后
+    private static final int DONE = 9;
+
+    private final long maxSize;
+    private int state = SIZE;
+    private long chunkRemaining; // 当前块未读的字节数（读取大小时是已解析的值）
+    private int digits;          // 当前块大小行的十六进制位数
+    private int lineLength;      // 当前行已跳过的字节数
+    private long total;          // 已解码的总长度
+
+    /**
+     * @param maxSize 解码后的最大长度
+     */
+    ChunkedDecoder(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 从in中解码尽可能多的字节写入out，直到in耗尽、out写满或消息体结束
+     * @param in 读模式的输入缓冲区，position推进到已消费的位置
+     * @param out 写模式的输出缓冲区
+     * @return true如果最后一个块和trailer已经读完（之后的字节属于下一个消息）
+     * @throws RequestTooLargeException 如果解码后的长度超过上限
+     * @throws IOException 如果chunked格式错误
+     */
+    boolean decode(ByteBuffer in, ByteBuffer out) throws IOException {
+        while (state != DONE) {
+            if (state == DATA) {
+                int count = (int) Math.min(chunkRemaining, Math.min(in.remaining(), out.remaining()));
+                if (count == 0) {
+                    return false;
+                }
+                if (in.hasArray() && out.hasArray()) {
+                    System.arraycopy(in.array(), in.arrayOffset() + in.position(),
+                            out.array(), out.arrayOffset() + out.position(), count);
+                    in.position(in.position() + count);
+                    out.position(out.position() + count);
+                } else {
+                    ByteBuffer slice = in.slice();
+                    slice.limit(count);
+                    out.put(slice);
+                    in.position(in.position() + count);
+                }
+                chunkRemaining -= count;
+                if (chunkRemaining == 0) {
+                    state = DATA_CR;
+                }
+                continue;
+            }
+            if (!in.hasRemaining()) {
+                return false;
+            }
+            step(in.get());
+        }
+        return true;
+    }
+
+    /**
+     * 消息体是否已经结束
+     */
+    boolean isDone() {
+        return state == DONE;
+    }
+
+    /**
+     * 已解码的总长度
+     */
+    long decodedLength() {
+        return total;
+    }
+
+    private void step(byte b) throws IOException {
+        switch (state) {
+            case SIZE:
+                int digit = Character.digit(b, 16);
+                if (digit >= 0) {
+                    if (++digits > 15) {
+                        throw new IOException("Invalid chunk size: too many digits");
+                    }
+                    chunkRemaining = chunkRemaining * 16 + digit;
+                } else if (b == ';' || b == ' ' || b == '\t') {
+                    state = EXTENSION;
+                    lineLength = digits;
+                } else if (b == '\r') {
+                    state = SIZE_LF;
+                } else if (b == '\n') {
+                    endSizeLine();
+                } else {
+                    throw new IOException("Invalid chunk size character: 0x" + Integer.toHexString(b & 0xFF));
+                }
+                break;
+            case EXTENSION:
+                if (b == '\n') {
+                    endSizeLine();
+                } else if (++lineLength > MAX_LINE_LENGTH) {
+                    throw new IOException("Chunk size line exceeds " + MAX_LINE_LENGTH + " bytes");
+                }
+                break;
+            case SIZE_LF:
+                if (b != '\n') {
+                    throw new IOException("Invalid chunk size line: expected LF");
+                }
+                endSizeLine();
+                break;
+            case DATA_CR:
+                if (b == '\r') {
+                    state = DATA_LF;
+                } else if (b == '\n') {
+                    state = SIZE;
+                } else {
+                    throw new IOException("Invalid chunk: missing CRLF after chunk data");
+                }
+                break;
+            case DATA_LF:
+                if (b != '\n') {
+                    throw new IOException("Invalid chunk: missing CRLF after chunk data");
+                }
+                state = SIZE;
+                break;
+            case TRAILER_START:
+                if (b == '\r') {
+                    state = TRAILER_LF;
+                } else if (b == '\n') {
+                    state = DONE;
+                } else {
+                    state = TRAILER;
+                    lineLength = 1;
+                }
+                break;
+            case TRAILER:
+                if (b == '\n') {
+                    state = TRAILER_START;
+                } else if (++lineLength > MAX_LINE_LENGTH) {
+                    throw new IOException("Chunked trailer line exceeds " + MAX_LINE_LENGTH + " bytes");
+                }
+                break;
+            case TRAILER_LF:
+                if (b != '\n') {
+                    throw new IOException("Invalid chunked trailer: expected LF");
+                }
+                state = DONE;
+                break;
+            default:
+                throw new IllegalStateException("Unexpected decoder state: " + state);
+        }
+    }
+
+    private void endSizeLine() throws IOException {
+        if (digits == 0) {
+            throw new IOException("Invalid chunk size line: missing size");
+        }
+        digits = 0;
+        if (chunkRemaining == 0) {
+            state = TRAILER_START;
+            return;
+        }
+        if (chunkRemaining > maxSize - total) {
+            throw new RequestTooLargeException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Chunked body exceeds " + maxSize + " bytes");
+        }
+        total += chunkRemaining;
+        state = DATA;
+    }
+}
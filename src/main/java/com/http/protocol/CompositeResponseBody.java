@@ -0,0 +1,67 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * 组合响应体
+ * 按顺序发送多个响应体，例如multipart/byteranges中的分隔行和文件片段，
+ * 每个部分发送完立即释放，不会同时占用多个文件句柄
+ */
+final class CompositeResponseBody implements ResponseBody {
+
+    private final List<ResponseBody> parts;
+    private final long contentLength;
+    private int current;
+
+    CompositeResponseBody(List<ResponseBody> parts) {
+        this.parts = List.copyOf(parts);
+        long total = 0;
+        for (ResponseBody part : this.parts) {
+            long length = part.contentLength();
+            if (length < 0) {
+                total = -1;
+                break;
+            }
+            total += length;
+        }
+        this.contentLength = total;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel target) throws IOException {
+        while (current < parts.size()) {
+            ResponseBody part = parts.get(current);
+            if (!part.writeTo(target)) {
+                return false;
+            }
+            part.close();
+            current++;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isNonBlocking() {
+        for (ResponseBody part : parts) {
+            if (!part.isNonBlocking()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        for (int i = current; i < parts.size(); i++) {
+            parts.get(i).close();
+        }
+        current = parts.size();
+    }
+}
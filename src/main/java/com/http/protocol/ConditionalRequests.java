@@ -0,0 +1,159 @@
+package com.http.protocol;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * 条件请求工具
+ * 处理If-None-Match（ETag列表、弱比较）和If-Modified-Since（HTTP日期），判断是否可以返回304
+ */
+public final class ConditionalRequests {
+
+    // HTTP日期要求两位数的日，RFC_1123_DATE_TIME会输出一位数
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+    // 解析时不校验星期，日期本身已经确定了时间点
+    private static final DateTimeFormatter DATE_WITHOUT_WEEKDAY =
+            DateTimeFormatter.ofPattern("d MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * 根据文件大小和修改时间生成ETag，文件内容改变时两者至少有一个会变化
+     * @param size 文件大小
+     * @param lastModified 修改时间（毫秒）
+     * @return 带引号的ETag
+     */
+    public static String etag(long size, long lastModified) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * 格式化为HTTP日期（RFC 1123，GMT）
+     * @param millis 时间（毫秒）
+     * @return 例如 "Mon, 21 Oct 2024 07:28:00 GMT"
+     */
+    public static String formatDate(long millis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(millis));
+    }
+
+    /**
+     * 解析HTTP日期（RFC 1123），忽略星期部分
+     * @param value 日期字符串
+     * @return 时间（毫秒），无法解析时返回-1
+     */
+    public static long parseDate(String value) {
+        if (value == null) {
+            return -1;
+        }
+        String date = value.trim();
+        int comma = date.indexOf(',');
+        if (comma >= 0) {
+            date = date.substring(comma + 1).trim();
+        }
+        try {
+            return ZonedDateTime.parse(date, DATE_WITHOUT_WEEKDAY).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 判断请求的缓存副本是否仍然有效，可以返回304
+     * 有If-None-Match时只看ETag，忽略If-Modified-Since；只对GET和HEAD生效
+     * @param request HTTP请求
+     * @param etag 资源当前的ETag，可以为null
+     * @param lastModified 资源当前的修改时间（毫秒），未知时为-1
+     * @return true如果资源未修改
+     */
+    public static boolean isNotModified(HttpRequest request, String etag, long lastModified) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return etag != null && matchesAny(ifNoneMatch, etag);
+        }
+
+        String ifModifiedSince = request.getHeader("If-Modified-Since");
+        if (ifModifiedSince != null && lastModified >= 0) {
+            long since = parseDate(ifModifiedSince);
+            // HTTP日期只精确到秒
+            return since >= 0 && lastModified / 1000 <= since / 1000;
+        }
+        return false;
+    }
+
+    /**
+     * 判断Range请求是否应该生效
+     * 没有If-Range时总是生效；If-Range是ETag时需要强匹配，是日期时需要与修改时间相同
+     * @param request HTTP请求
+     * @param etag 资源当前的ETag
+     * @param lastModified 资源当前的修改时间（毫秒）
+     * @return true如果可以只返回请求的范围，false表示应返回完整内容
+     */
+    public static boolean isRangeApplicable(HttpRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // 弱ETag不能用于范围请求
+            return etag != null && !etag.startsWith("W/") && ifRange.equals(etag);
+        }
+        long date = parseDate(ifRange);
+        return date >= 0 && lastModified >= 0 && date / 1000 == lastModified / 1000;
+    }
+
+    /**
+     * If-None-Match列表中是否有与etag弱匹配的值（忽略W/前缀）
+     * @param header If-None-Match头的值，例如 "\"a\", W/\"b\"" 或 "*"
+     * @param etag 资源当前的ETag
+     * @return true如果匹配
+     */
+    public static boolean matchesAny(String header, String etag) {
+        String target = opaqueTag(etag);
+        int length = header.length();
+        int pos = 0;
+        while (pos < length) {
+            char c = header.charAt(pos);
+            if (c == ' ' || c == '\t' || c == ',') {
+                pos++;
+                continue;
+            }
+            if (c == '*') {
+                return true;
+            }
+
+            int start = pos;
+            if (header.startsWith("W/", pos)) {
+                pos += 2;
+            }
+            if (pos < length && header.charAt(pos) == '"') {
+                // 带引号的ETag中可以出现逗号，找到配对的引号
+                int close = header.indexOf('"', pos + 1);
+                pos = close < 0 ? length : close + 1;
+            } else {
+                while (pos < length && header.charAt(pos) != ',') {
+                    pos++;
+                }
+            }
+            if (opaqueTag(header.substring(start, pos).trim()).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,185 @@
+package com.http.protocol;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 内容编码（Content-Encoding）
+ * 负责根据Accept-Encoding协商编码，并用可复用的Deflater压缩响应体
+ */
+public enum ContentCoding {
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    // Deflater持有较大的本地内存，创建和销毁代价高，放在池中供工作线程复用
+    private static final BlockingQueue<Deflater> DEFLATERS =
+            new ArrayBlockingQueue<>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int ZLIB_HEADER_SIZE = 2;
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * @return Content-Encoding头中使用的名称
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * 根据Accept-Encoding选择编码
+     * 选择q值最高的受支持编码，q值相同时优先gzip；"*"适用于没有单独列出的编码
+     * @param acceptEncoding Accept-Encoding头的值，可以为null
+     * @return 选中的编码，客户端不接受任何受支持的编码时返回null（不压缩）
+     */
+    public static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double[] quality = qualities(acceptEncoding);
+        ContentCoding best = null;
+        double bestQuality = 0;
+        for (ContentCoding coding : values()) {
+            if (quality[coding.ordinal()] > bestQuality) {
+                best = coding;
+                bestQuality = quality[coding.ordinal()];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 客户端是否接受本编码（q值大于0，不要求是最优选择）
+     * @param acceptEncoding Accept-Encoding头的值，可以为null
+     * @return true如果可以使用本编码
+     */
+    public boolean isAcceptedBy(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return false;
+        }
+        return qualities(acceptEncoding)[ordinal()] > 0;
+    }
+
+    /**
+     * 解析Accept-Encoding，得到每种编码的q值（未列出且没有"*"时为0）
+     */
+    private static double[] qualities(String acceptEncoding) {
+        double[] quality = new double[values().length];
+        Arrays.fill(quality, -1);
+        double wildcard = -1;
+
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.split(";");
+            String name = parts[0].trim();
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equals("*")) {
+                wildcard = q;
+                continue;
+            }
+            for (ContentCoding coding : values()) {
+                if (coding.token.equalsIgnoreCase(name)
+                        || (coding == GZIP && name.equalsIgnoreCase("x-gzip"))) {
+                    quality[coding.ordinal()] = q;
+                }
+            }
+        }
+
+        for (ContentCoding coding : values()) {
+            if (quality[coding.ordinal()] < 0) {
+                quality[coding.ordinal()] = Math.max(wildcard, 0);
+            }
+        }
+        return quality;
+    }
+
+    /**
+     * 压缩数据
+     * @param data 原始数据
+     * @param offset 起始偏移
+     * @param length 字节数
+     * @return 按本编码格式（gzip或zlib）压缩后的数据
+     */
+    public byte[] encode(byte[] data, int offset, int length) {
+        int headerSize = this == GZIP ? GZIP_HEADER_SIZE : ZLIB_HEADER_SIZE;
+        // 不可压缩的数据最坏情况下略大于原始长度，预留足够空间避免大多数扩容
+        byte[] output = new byte[headerSize + length + length / 1000 + 64];
+        int size;
+
+        if (this == GZIP) {
+            output[0] = (byte) 0x1f;
+            output[1] = (byte) 0x8b;
+            output[2] = 8;              // CM: deflate
+            output[9] = (byte) 0xff;    // OS: unknown，其余（FLG、MTIME、XFL）为0
+        } else {
+            output[0] = 0x78;
+            output[1] = (byte) 0x9c;
+        }
+
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            size = headerSize;
+            while (!deflater.finished()) {
+                if (size == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                size += deflater.deflate(output, size, output.length - size);
+            }
+        } finally {
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+
+        if (output.length < size + 8) {
+            output = Arrays.copyOf(output, size + 8);
+        }
+        if (this == GZIP) {
+            CRC32 crc = new CRC32();
+            crc.update(data, offset, length);
+            size = writeIntLittleEndian(output, size, (int) crc.getValue());
+            size = writeIntLittleEndian(output, size, length);
+        } else {
+            Adler32 adler = new Adler32();
+            adler.update(data, offset, length);
+            int checksum = (int) adler.getValue();
+            output[size++] = (byte) (checksum >>> 24);
+            output[size++] = (byte) (checksum >>> 16);
+            output[size++] = (byte) (checksum >>> 8);
+            output[size++] = (byte) checksum;
+        }
+        return Arrays.copyOf(output, size);
+    }
+
+    private static int writeIntLittleEndian(byte[] output, int pos, int value) {
+        output[pos] = (byte) value;
+        output[pos + 1] = (byte) (value >>> 8);
+        output[pos + 2] = (byte) (value >>> 16);
+        output[pos + 3] = (byte) (value >>> 24);
+        return pos + 4;
+    }
+}
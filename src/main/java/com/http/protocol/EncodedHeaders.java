@@ -0,0 +1,60 @@
+package com.http.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 预编码的响应头
+ * 不可变，可被多个响应共享：发送时直接写出已编码好的字节，
+ * 查询时使用只读的HttpHeaders（名称不区分大小写），不需要每次重新拼接字符串
+ */
+public final class EncodedHeaders {
+
+    private final HttpHeaders headers;
+    private final byte[] bytes;
+
+    private EncodedHeaders(HttpHeaders headers, byte[] bytes) {
+        this.headers = headers;
+        this.bytes = bytes;
+    }
+
+    /**
+     * 编码一组响应头
+     * @param headers 响应头（按迭代顺序编码，HttpHeaders中的重复行分别编码）
+     * @return 预编码的响应头
+     */
+    public static EncodedHeaders of(Map<String, String> headers) {
+        HttpHeaders copy = new HttpHeaders(headers).toReadOnly();
+        StringBuilder encoded = new StringBuilder();
+        for (int i = 0; i < copy.size(); i++) {
+            encoded.append(copy.nameAt(i)).append(": ").append(copy.valueAt(i)).append("\r\n");
+        }
+        return new EncodedHeaders(copy, encoded.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String get(String name) {
+        return headers.get(name);
+    }
+
+    public boolean contains(String name) {
+        return headers.containsKey(name);
+    }
+
+    /**
+     * @return 只读的响应头集合
+     */
+    public Map<String, String> asMap() {
+        return headers;
+    }
+
+    HttpHeaders headers() {
+        return headers;
+    }
+
+    /**
+     * @return 编码后的响应头字节（每行以CRLF结尾，不含结束空行），调用方不能修改
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,70 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 文件响应体
+ * 使用FileChannel.transferTo发送文件的一段区域，目标是SocketChannel时由操作系统
+ * 直接从页缓存发送（sendfile），文件内容不经过Java堆
+ */
+final class FileResponseBody implements ResponseBody {
+
+    private final Path path;
+    private final long count;
+    private FileChannel file; // 第一次写出时才打开，未发送的响应不会占用文件句柄
+    private long position;
+    private long remaining;
+
+    FileResponseBody(Path path, long position, long count) {
+        this.path = path;
+        this.position = position;
+        this.count = count;
+        this.remaining = count;
+    }
+
+    @Override
+    public long contentLength() {
+        return count;
+    }
+
+    @Override
+    public boolean writeTo(WritableByteChannel target) throws IOException {
+        if (file == null) {
+            file = FileChannel.open(path, StandardOpenOption.READ);
+        }
+        while (remaining > 0) {
+            long written = file.transferTo(position, remaining, target);
+            if (written == 0) {
+                if (position >= file.size()) {
+                    throw new IOException("File shrank while sending: " + path);
+                }
+                // 非阻塞通道的发送缓冲区已满，等待下次可写
+                return false;
+            }
+            position += written;
+            remaining -= written;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+                // 忽略关闭异常
+            }
+            file = null;
+        }
+    }
+}
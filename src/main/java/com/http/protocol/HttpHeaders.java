@@ -0,0 +1,500 @@
+package com.http.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * HTTP头集合
+ * 按出现顺序保存每一行头的名称和值，名称查找不区分大小写（逐字符按ASCII折叠比较，不创建小写副本），
+ * 同名头（例如多个Set-Cookie）可以重复出现。
+ * 解析得到的头只保存原始字节中的偏移切片，被读取时才解码为String；
+ * 每个头记录名称的散列值（不区分大小写），查找时先比较散列值，不相等的头不逐字符比较。
+ * 作为Map使用时：get返回第一个同名头的值，put替换所有同名头，remove删除所有同名头，
+ * entrySet按顺序列出每一行（名称可能重复）。
+ * 非线程安全
+ */
+public final class HttpHeaders extends AbstractMap<String, String> {
+
+    // 常用头名称
+    public static final String CONNECTION = "Connection";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String CONTENT_LENGTH = "Content-Length";
+    public static final String CONTENT_TYPE = "Content-Type";
+    public static final String COOKIE = "Cookie";
+    public static final String DATE = "Date";
+    public static final String HOST = "Host";
+    public static final String LOCATION = "Location";
+    public static final String SET_COOKIE = "Set-Cookie";
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private byte[] data;          // 解析得到的原始头块，切片指向这里；手动创建的集合为null
+    private int[] slices;         // 每个头4个int：名称起始、名称结束、值起始、值结束
+    private String[] names;       // 已解码的名称，null表示尚未从切片解码
+    private String[] values;      // 已解码的值，null表示尚未从切片解码
+    private int[] hashes;         // 名称的散列值（不区分大小写）
+    private int size;
+    private boolean readOnly;
+    private Set<Map.Entry<String, String>> entrySet;
+
+    public HttpHeaders() {
+        this(null, INITIAL_CAPACITY);
+    }
+
+    /**
+     * 复制一组头（复制结果可以修改）
+     * @param headers 源头集合，HttpHeaders会保留重复的行
+     */
+    public HttpHeaders(Map<String, String> headers) {
+        this(null, Math.max(INITIAL_CAPACITY, headers.size()));
+        if (headers instanceof HttpHeaders) {
+            HttpHeaders source = (HttpHeaders) headers;
+            for (int i = 0; i < source.size; i++) {
+                add(source.nameAt(i), source.valueAt(i));
+            }
+        } else {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                add(header.getKey(), header.getValue());
+            }
+        }
+    }
+
+    /**
+     * 创建引用原始头块的集合（由HttpRequestParser使用）
+     * @param data 原始头块，之后不能再修改
+     */
+    HttpHeaders(byte[] data) {
+        this(data, 32);
+    }
+
+    private HttpHeaders(byte[] data, int capacity) {
+        this.data = data;
+        this.slices = data == null ? null : new int[capacity * 4];
+        this.names = new String[capacity];
+        this.values = new String[capacity];
+        this.hashes = new int[capacity];
+    }
+
+    /**
+     * 追加一个原始字节切片形式的头，名称和值在读取时才解码
+     */
+    void addRaw(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        checkWritable();
+        ensureCapacity();
+        int base = size * 4;
+        slices[base] = nameStart;
+        slices[base + 1] = nameEnd;
+        slices[base + 2] = valueStart;
+        slices[base + 3] = valueEnd;
+        names[size] = null;
+        values[size] = null;
+        hashes[size] = hash(data, nameStart, nameEnd);
+        size++;
+    }
+
+    /**
+     * 追加一行头，不影响已有的同名头（用于Set-Cookie等可以重复的头）
+     * @param name 头名称
+     * @param value 头的值
+     * @return 本集合
+     */
+    public HttpHeaders add(String name, String value) {
+        Objects.requireNonNull(name, "name");
+        checkWritable();
+        ensureCapacity();
+        if (slices != null) {
+            Arrays.fill(slices, size * 4, size * 4 + 4, -1);
+        }
+        names[size] = name;
+        values[size] = value;
+        hashes[size] = hash(name);
+        size++;
+        return this;
+    }
+
+    /**
+     * 获取第一个同名头的值
+     * @param name 头名称（不区分大小写）
+     * @return 头的值，不存在时返回null
+     */
+    public String get(String name) {
+        int index = indexOf(name, size);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    @Override
+    public String get(Object key) {
+        return key instanceof String ? get((String) key) : null;
+    }
+
+    /**
+     * 获取所有同名头的值
+     * @param name 头名称（不区分大小写）
+     * @return 按出现顺序排列的值，不存在时返回空列表
+     */
+    public List<String> getAll(String name) {
+        int hash = hash(name);
+        List<String> result = null;
+        for (int i = 0; i < size; i++) {
+            if (nameMatches(i, name, hash)) {
+                if (result == null) {
+                    result = new ArrayList<>(2);
+                }
+                result.add(valueAt(i));
+            }
+        }
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    /**
+     * @param name 头名称（不区分大小写）
+     * @return true如果存在该头
+     */
+    public boolean contains(String name) {
+        return indexOf(name, size) >= 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && contains((String) key);
+    }
+
+    /**
+     * 设置头的值：替换第一个同名头（保留原来的名称写法和位置），删除其余同名头；不存在时追加
+     * @param name 头名称（不区分大小写）
+     * @param value 头的值
+     * @return 原来第一个同名头的值，不存在时返回null
+     */
+    @Override
+    public String put(String name, String value) {
+        Objects.requireNonNull(name, "name");
+        checkWritable();
+        int index = indexOf(name, size);
+        if (index < 0) {
+            add(name, value);
+            return null;
+        }
+        String previous = valueAt(index);
+        names[index] = nameAt(index);
+        setValueAt(index, value);
+        int hash = hashes[index];
+        for (int i = size - 1; i > index; i--) {
+            if (nameMatches(i, name, hash)) {
+                removeAt(i);
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * 删除所有同名头
+     * @param key 头名称（不区分大小写）
+     * @return 第一个同名头的值，不存在时返回null
+     */
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        checkWritable();
+        String name = (String) key;
+        int hash = hash(name);
+        String removed = null;
+        for (int i = size - 1; i >= 0; i--) {
+            if (nameMatches(i, name, hash)) {
+                removed = valueAt(i);
+                removeAt(i);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * 清空后改为引用新的原始头块，保留已分配的数组（由复用的HttpRequest使用）
+     * @param data 新的原始头块
+     */
+    void reset(byte[] data) {
+        clear();
+        this.data = data;
+        if (data != null && slices == null) {
+            slices = new int[names.length * 4];
+        }
+    }
+
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * @return 头的行数（同名头分别计数）
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * @return 内容相同的只读集合，修改方法抛出UnsupportedOperationException
+     */
+    public HttpHeaders toReadOnly() {
+        if (readOnly) {
+            return this;
+        }
+        HttpHeaders copy = new HttpHeaders(this);
+        copy.readOnly = true;
+        return copy;
+    }
+
+    /**
+     * 第index行头的名称
+     */
+    String nameAt(int index) {
+        String name = names[index];
+        if (name == null) {
+            int base = index * 4;
+            name = new String(data, slices[base], slices[base + 1] - slices[base], StandardCharsets.ISO_8859_1);
+            names[index] = name;
+        }
+        return name;
+    }
+
+    /**
+     * 第index行头的值
+     */
+    String valueAt(int index) {
+        String value = values[index];
+        if (value == null && slices != null && slices[index * 4 + 2] >= 0) {
+            int base = index * 4;
+            value = new String(data, slices[base + 2], slices[base + 3] - slices[base + 2], StandardCharsets.UTF_8);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    private void setValueAt(int index, String value) {
+        values[index] = value;
+        if (slices != null) {
+            // 不再从原始切片解码
+            slices[index * 4 + 2] = -1;
+        }
+    }
+
+    /**
+     * 在前limit行中查找名称匹配的第一行
+     * @return 行号，不存在时返回-1
+     */
+    int indexOf(String name, int limit) {
+        int hash = hash(name);
+        for (int i = 0; i < limit; i++) {
+            if (nameMatches(i, name, hash)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean nameMatches(int index, String name, int hash) {
+        if (hashes[index] != hash) {
+            return false;
+        }
+        String decoded = names[index];
+        if (decoded != null) {
+            if (decoded.length() != name.length()) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (fold(decoded.charAt(i)) != fold(name.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        int start = slices[index * 4];
+        if (slices[index * 4 + 1] - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (fold(data[start + i] & 0xFF) != fold(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(names, index + 1, names, index, moved);
+            System.arraycopy(values, index + 1, values, index, moved);
+            System.arraycopy(hashes, index + 1, hashes, index, moved);
+            if (slices != null) {
+                System.arraycopy(slices, (index + 1) * 4, slices, index * 4, moved * 4);
+            }
+        }
+        size--;
+        names[size] = null;
+        values[size] = null;
+    }
+
+    private void ensureCapacity() {
+        if (size == names.length) {
+            int capacity = names.length * 2;
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            if (slices != null) {
+                slices = Arrays.copyOf(slices, capacity * 4);
+            }
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Headers are read-only");
+        }
+    }
+
+    private static int hash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + fold(name.charAt(i));
+        }
+        return hash;
+    }
+
+    private static int hash(byte[] data, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + fold(data[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    /**
+     * ASCII大写字母转小写，头名称只允许ASCII字符，不需要完整的Unicode大小写规则
+     */
+    private static int fold(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+
+        @Override
+        public Iterator<Map.Entry<String, String>> iterator() {
+            return new Iterator<>() {
+                private int next;
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Map.Entry<String, String> next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next++;
+                    return new Header(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    checkWritable();
+                    removeAt(last);
+                    next = last;
+                    last = -1;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            HttpHeaders.this.clear();
+        }
+    }
+
+    /**
+     * 一行头，getKey/getValue读取时才解码
+     */
+    private final class Header implements Map.Entry<String, String> {
+        private final int index;
+
+        Header(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return nameAt(index);
+        }
+
+        @Override
+        public String getValue() {
+            return valueAt(index);
+        }
+
+        @Override
+        public String setValue(String value) {
+            checkWritable();
+            String previous = valueAt(index);
+            setValueAt(index, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+            return Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
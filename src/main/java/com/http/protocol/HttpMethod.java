@@ -0,0 +1,41 @@
+package com.http.protocol;
+
+/**
+ * HTTP请求方法
+ * 路由按枚举分派，不再对方法字符串做重复比较
+ */
+public enum HttpMethod {
+    GET,
+    POST,
+    PUT,
+    DELETE,
+    HEAD,
+    OPTIONS;
+
+    /**
+     * 将请求行中的方法名转换为枚举（区分大小写，方法名按规范是大写的）
+     * @param method 方法名，可以为null
+     * @return 对应的枚举，不支持的方法返回null
+     */
+    public static HttpMethod resolve(String method) {
+        if (method == null) {
+            return null;
+        }
+        switch (method) {
+            case "GET":
+                return GET;
+            case "POST":
+                return POST;
+            case "PUT":
+                return PUT;
+            case "DELETE":
+                return DELETE;
+            case "HEAD":
+                return HEAD;
+            case "OPTIONS":
+                return OPTIONS;
+            default:
+                return null;
+        }
+    }
+}
@@ -1,12 +1,13 @@
 package com.http.protocol;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,13 +17,24 @@ import java.util.Map;
 public class HttpRequest {
     
     private String method; //请求方法
+    private HttpMethod httpMethod; // method对应的枚举，第一次访问时解析
     private String uri; // 资源分配符
     private String version; // http版本
-    private Map<String, String> headers; //请求头信息
+    private HttpHeaders headers; //请求头信息（解析得到的头保存为原始切片，读取时才解码）
     private byte[] body; //请求体内容
+    private InputStream bodyStream; // 尚未读入内存的请求体（大请求体按流读取）
+    private long bodyStreamLength; // 按流读取的请求体长度，0表示请求体已在body中，CHUNKED_BODY_STREAM表示chunked编码
+    private String path; // URI中查询字符串之前的部分，第一次访问时计算
+    private Map<String, String> pathParameters = Collections.emptyMap(); // 路由匹配得到的路径参数
+    private HttpResponse response; // 与请求配对的可复用响应，第一次访问时创建
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    /** bodyStreamLength的特殊值：请求体使用chunked编码，长度未知 */
+    static final long CHUNKED_BODY_STREAM = -1;
 
     public HttpRequest() {
-        this.headers = new HashMap<>();
+        this.headers = new HttpHeaders();
         this.body = new byte[0];
         this.version = "HTTP/1.1";
     }
@@ -35,71 +47,42 @@ public class HttpRequest {
 
     /**
      * 从InputStream解析HTTP请求
+     * 注意：为了按块读取，本方法可能读取超出当前请求的字节，这些字节会被丢弃；
+     * 需要在同一连接上连续读取多个请求时，应使用HttpRequestReader
      * @param input 输入流
      * @return 解析后的HttpRequest对象
      * @throws IOException 如果读取或解析失败
      */
     public static HttpRequest parse(InputStream input) throws IOException {
-        HttpRequest request = new HttpRequest();
-        // InputStreamReader用于将输入流转换为字符流
-        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
-        
-        // 解析请求行
-        // 第一行格式 "POST /api/login HTTP/1.1\r\n"
-        String requestLine = reader.readLine();
-        if (requestLine == null || requestLine.isEmpty()) {
+        HttpRequest request = new HttpRequestReader(input).readRequest();
+        if (request == null) {
             throw new IOException("Invalid HTTP request: empty request line");
         }
-        
-        String[] requestParts = requestLine.split(" ");
-        if (requestParts.length != 3) {
-            throw new IOException("Invalid HTTP request line: " + requestLine);
-        }
-        
-        request.method = requestParts[0];
-        request.uri = requestParts[1];
-        request.version = requestParts[2];
-        
-        // 解析请求头
-        /* 请求头是元数据部分 ， 示例如下
-         Host: www.example.com
-        User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/91.0
-        Accept: text/html,application/json
-        * */
-        String line;
-        while ((line = reader.readLine()) != null && !line.isEmpty()) {
-            int colonIndex = line.indexOf(':');
-            if (colonIndex > 0) {
-                String headerName = line.substring(0, colonIndex).trim();
-                String headerValue = line.substring(colonIndex + 1).trim();
-                request.headers.put(headerName, headerValue);
-            }
+        return request;
+    }
+
+    /**
+     * 重置为空请求并改为引用新的请求头块，保留请求头数组和配对的响应对象（由HttpRequestParser复用请求时调用）
+     * @param head 新请求的原始请求头块
+     */
+    void reset(byte[] head) {
+        method = null;
+        httpMethod = null;
+        uri = null;
+        version = "HTTP/1.1";
+        path = null;
+        pathParameters = Collections.emptyMap();
+        body = EMPTY_BODY;
+        bodyStream = null;
+        bodyStreamLength = 0;
+        if (headers.isReadOnly()) {
+            headers = new HttpHeaders(head);
+        } else {
+            headers.reset(head);
         }
-        //请求头和请求体以空行分割
-        // 解析请求体
-        String contentLengthStr = request.headers.get("Content-Length");
-        //读取长度 ，循环读取是确保读到完整数据的方式
-        if (contentLengthStr != null) {
-            try {
-                int contentLength = Integer.parseInt(contentLengthStr);
-                if (contentLength > 0) {
-                    char[] bodyChars = new char[contentLength];
-                    int totalRead = 0;
-                    while (totalRead < contentLength) {
-                        int read = reader.read(bodyChars, totalRead, contentLength - totalRead);
-                        if (read == -1) {
-                            break;
-                        }
-                        totalRead += read;
-                    }
-                    request.body = new String(bodyChars, 0, totalRead).getBytes(StandardCharsets.UTF_8);
-                }
-            } catch (NumberFormatException e) {
-                throw new IOException("Invalid Content-Length header: " + contentLengthStr);
-            }
+        if (response != null) {
+            response.reset();
         }
-        
-        return request;
     }
 
     /**
@@ -108,6 +91,7 @@ public class HttpRequest {
      */
     public byte[] toBytes() {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] body = getBody();
         
         try {
             // 写入请求行
@@ -115,14 +99,15 @@ public class HttpRequest {
             output.write(requestLine.getBytes(StandardCharsets.UTF_8));
             
             // 写入请求头
-            for (Map.Entry<String, String> header : headers.entrySet()) {
-                String headerLine = header.getKey() + ": " + header.getValue() + "\r\n";
+            for (int i = 0; i < headers.size(); i++) {
+                String headerLine = headers.nameAt(i) + ": " + headers.valueAt(i) + "\r\n";
                 output.write(headerLine.getBytes(StandardCharsets.UTF_8));
             }
             
-            // 如果有请求体，确保有Content-Length头
-            if (body != null && body.length > 0) {
-                if (!headers.containsKey("Content-Length")) {
+            // 声明了chunked编码时请求体作为一个块发出，否则确保有Content-Length头
+            boolean chunked = isChunked();
+            if (!chunked && body != null && body.length > 0) {
+                if (!headers.contains(HttpHeaders.CONTENT_LENGTH)) {
                     String contentLength = "Content-Length: " + body.length + "\r\n";
                     output.write(contentLength.getBytes(StandardCharsets.UTF_8));
                 }
@@ -132,7 +117,14 @@ public class HttpRequest {
             output.write("\r\n".getBytes(StandardCharsets.UTF_8));
             
             // 写入请求体
-            if (body != null && body.length > 0) {
+            if (chunked) {
+                if (body != null && body.length > 0) {
+                    output.write((Integer.toHexString(body.length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                    output.write(body);
+                    output.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                }
+                output.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            } else if (body != null && body.length > 0) {
                 output.write(body);
             }
             
@@ -144,6 +136,16 @@ public class HttpRequest {
         return output.toByteArray();
     }
 
+    /**
+     * 请求是否声明了Transfer-Encoding: chunked（解析得到的请求体已经解码）
+     * @return true如果最后一个传输编码是chunked
+     */
+    public boolean isChunked() {
+        String transferEncoding = headers.get(HttpHeaders.TRANSFER_ENCODING);
+        return transferEncoding != null && transferEncoding.regionMatches(true,
+                transferEncoding.length() - 7, "chunked", 0, 7);
+    }
+
     // 外部可能用到的接口
     
     public String getMethod() {
@@ -152,6 +154,18 @@ public class HttpRequest {
 
     public void setMethod(String method) {
         this.method = method;
+        this.httpMethod = null;
+    }
+
+    /**
+     * 获取请求方法的枚举形式
+     * @return 请求方法，不支持的方法返回null
+     */
+    public HttpMethod getHttpMethod() {
+        if (httpMethod == null) {
+            httpMethod = HttpMethod.resolve(method);
+        }
+        return httpMethod;
     }
 
     public String getUri() {
@@ -160,6 +174,71 @@ public class HttpRequest {
 
     public void setUri(String uri) {
         this.uri = uri;
+        this.path = null;
+    }
+
+    /**
+     * 获取请求路径（URI中 '?' 或 '#' 之前的部分）
+     * @return 请求路径，例如 "/api/login?x=1" 的路径为 "/api/login"
+     */
+    public String getPath() {
+        if (path == null && uri != null) {
+            int end = pathEnd(uri);
+            path = end == uri.length() ? uri : uri.substring(0, end);
+        }
+        return path;
+    }
+
+    /**
+     * 获取查询字符串（不含 '?'，不解码）
+     * @return 查询字符串，没有时返回null
+     */
+    public String getQuery() {
+        if (uri == null) {
+            return null;
+        }
+        int question = uri.indexOf('?');
+        if (question < 0) {
+            return null;
+        }
+        int fragment = uri.indexOf('#', question);
+        return uri.substring(question + 1, fragment < 0 ? uri.length() : fragment);
+    }
+
+    /**
+     * 计算URI中路径部分的结束位置，不创建子串
+     * @param uri 请求URI
+     * @return 第一个 '?' 或 '#' 的位置，没有时为URI长度
+     */
+    public static int pathEnd(String uri) {
+        for (int i = 0; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '?' || c == '#') {
+                return i;
+            }
+        }
+        return uri.length();
+    }
+
+    /**
+     * 获取路由匹配得到的路径参数，例如路由 "/api/users/{id}" 中的 id；
+     * 通配符路由 "/static/*" 匹配的剩余路径保存在参数 "*" 中
+     * @param name 参数名
+     * @return 参数值，不存在时返回null
+     */
+    public String getPathParameter(String name) {
+        return pathParameters.get(name);
+    }
+
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    /**
+     * 设置路径参数（由路由器在分派请求前调用）
+     */
+    public void setPathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = pathParameters == null ? Collections.emptyMap() : pathParameters;
     }
 
     public String getVersion() {
@@ -170,31 +249,138 @@ public class HttpRequest {
         this.version = version;
     }
 
-    public Map<String, String> getHeaders() {
+    /**
+     * 获取请求头集合（名称不区分大小写，同名头按出现顺序保留）
+     */
+    public HttpHeaders getHeaders() {
         return headers;
     }
 
+    /**
+     * 设置请求头，HttpHeaders直接使用，其他Map会被复制
+     */
     public void setHeaders(Map<String, String> headers) {
-        this.headers = headers;
+        if (headers == null) {
+            this.headers = new HttpHeaders();
+        } else if (headers instanceof HttpHeaders) {
+            this.headers = (HttpHeaders) headers;
+        } else {
+            this.headers = new HttpHeaders(headers);
+        }
     }
 
+    /**
+     * 获取请求头（名称不区分大小写，同名头返回第一个）
+     * @param name 请求头名称
+     * @return 请求头值，不存在则返回null
+     */
     public String getHeader(String name) {
         return headers.get(name);
     }
 
+    /**
+     * 获取所有同名请求头的值
+     * @param name 请求头名称（不区分大小写）
+     * @return 按出现顺序排列的值
+     */
+    public List<String> getHeaderValues(String name) {
+        return headers.getAll(name);
+    }
+
+    /**
+     * 设置请求头，替换已有的同名头
+     */
     public void setHeader(String name, String value) {
         headers.put(name, value);
     }
 
+    /**
+     * 追加请求头，保留已有的同名头
+     */
+    public void addHeader(String name, String value) {
+        headers.add(name, value);
+    }
+
+    /**
+     * 获取与本请求配对的响应对象（初始为200 OK，没有响应头和响应体），处理器可以填充后直接返回
+     * 连接复用请求对象时，这个响应也随之复用：解析同一连接上的下一个请求时会被重置，
+     * 因此处理器和过滤器不能在响应发送之后继续持有或修改它（需要保留时应复制其中的数据）
+     * @return 可复用的响应对象
+     */
+    public HttpResponse getResponse() {
+        if (response == null) {
+            response = new HttpResponse(HttpStatus.OK);
+        }
+        return response;
+    }
+
+    /**
+     * 获取请求体
+     * 请求体按流读取时，第一次调用会把流中剩余的字节全部读入内存（已经通过getBodyStream读走的部分不再包含）
+     * @return 请求体字节
+     * @throws UncheckedIOException 如果读取请求体失败
+     */
     public byte[] getBody() {
+        if (bodyStream != null) {
+            try {
+                body = bodyStream.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            bodyStream = null;
+        }
         return body;
     }
 
     public void setBody(byte[] body) {
         this.body = body;
+        this.bodyStream = null;
+        this.bodyStreamLength = 0;
+    }
+
+    /**
+     * 获取请求体输入流，处理器可以边读边处理大请求体而不把它全部读入内存
+     * 阻塞引擎中超过流式阈值的请求体和chunked请求体直接从连接读取（chunked边读边解码），
+     * 流在Content-Length处或最后一个块处结束；
+     * 其他情况下返回内存中请求体的输入流。只能读取一次，处理器没有读完的字节在读取下一个请求前被跳过
+     * @return 请求体输入流
+     */
+    public InputStream getBodyStream() {
+        if (bodyStream != null) {
+            return bodyStream;
+        }
+        return new ByteArrayInputStream(body);
+    }
+
+    /**
+     * 请求体是否尚未读入内存（按流读取）
+     * @return true如果应使用getBodyStream读取
+     */
+    public boolean isBodyStreaming() {
+        return bodyStream != null;
+    }
+
+    /**
+     * 设置按流读取的请求体（由HttpRequestReader调用）
+     */
+    void setBodyStream(InputStream bodyStream) {
+        this.bodyStream = bodyStream;
+        this.body = EMPTY_BODY;
+    }
+
+    /**
+     * @return 解析器留给调用方按流读取的请求体长度，0表示请求体已在内存中，CHUNKED_BODY_STREAM表示chunked编码
+     */
+    long getBodyStreamLength() {
+        return bodyStreamLength;
+    }
+
+    void setBodyStreamLength(long bodyStreamLength) {
+        this.bodyStreamLength = bodyStreamLength;
     }
 
     public String getBodyAsString() {
+        byte[] body = getBody();
         if (body == null || body.length == 0) {
             return "";
         }
@@ -202,6 +388,8 @@ public class HttpRequest {
     }
 
     public void setBody(String bodyString) {
+        this.bodyStream = null;
+        this.bodyStreamLength = 0;
         if (bodyString == null) {
             this.body = new byte[0];
         } else {
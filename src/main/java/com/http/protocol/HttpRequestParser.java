@@ -0,0 +1,443 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 字节级HTTP请求解析器
+ * 直接在ByteBuffer上查找CRLF边界，不经过字符解码；支持增量解析：
+ * 数据不完整时返回null并记住进度，下次调用从上次停下的位置继续。
+ * 请求体按Content-Length精确读取，或者按Transfer-Encoding: chunked逐块解码（同样是增量的）。
+ * 为防止请求走私：不一致的多个Content-Length返回400，chunked以外的传输编码返回501，
+ * 同时带Transfer-Encoding和Content-Length的请求处理完后关闭连接。
+ * 一个解析器对应一个连接，不是线程安全的
+ */
+public class HttpRequestParser {
+
+    private static final String[] KNOWN_METHODS = {"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH"};
+    private static final String[] KNOWN_VERSIONS = {"HTTP/1.1", "HTTP/1.0"};
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] TRANSFER_ENCODING = "transfer-encoding".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] CHUNKED = "chunked".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int MAX_BUFFERED_BODY = Integer.MAX_VALUE - 8;
+
+    private HttpRequest current;   // 请求头已解析、正在读取请求体的请求
+    private int bodyRead;          // 已读取的请求体字节数
+    private ChunkedDecoder chunked; // 当前请求的chunked请求体解码器
+    private byte[] chunkedBody;    // chunked请求体的解码结果，按需扩大
+    private int scanOffset;        // 查找请求头结束位置时已扫描过的字节数（相对position）
+    private boolean requestLineSeen; // 当前请求的请求行是否已经完整到达
+    private RequestLimits limits = RequestLimits.DEFAULT;
+    private long streamingThreshold = Long.MAX_VALUE; // 超过该长度的请求体不读入内存，由调用方按流读取
+    private boolean reuseRequests; // 是否复用同一个请求对象
+    private HttpRequest reusable;  // 复用的请求对象
+    private byte[] headBlock;      // 复用的请求头块数组，按需扩大
+
+    /**
+     * 从缓冲区解析一个请求
+     * 缓冲区处于读模式（position到limit为未读数据），解析器会推进position消费已解析的字节，
+     * 调用方可以在两次调用之间compact缓冲区
+     * @param buffer 输入缓冲区
+     * @return 完整的HttpRequest（请求体按流读取时只含请求头），如果数据不足则返回null
+     * @throws RequestTooLargeException 如果请求超出大小限制
+     * @throws RequestRejectedException 如果请求使用不支持的传输编码（501）
+     * @throws IOException 如果请求格式错误
+     */
+    public HttpRequest parse(ByteBuffer buffer) throws IOException {
+        if (current == null) {
+            int headEnd = findHeadEnd(buffer);
+            if (headEnd == -1) {
+                return null;
+            }
+            current = parseHead(buffer, headEnd);
+            bodyRead = 0;
+            if (current.getBodyStreamLength() != 0) {
+                // 大请求体或chunked请求体留在缓冲区和连接中，由调用方包装为输入流交给处理器
+                HttpRequest request = current;
+                current = null;
+                return request;
+            }
+        }
+
+        if (chunked != null) {
+            if (!decodeChunked(buffer)) {
+                return null;
+            }
+        } else {
+            byte[] body = current.getBody();
+            int needed = body.length - bodyRead;
+            if (needed > 0) {
+                int count = Math.min(needed, buffer.remaining());
+                buffer.get(body, bodyRead, count);
+                bodyRead += count;
+                if (bodyRead < body.length) {
+                    return null;
+                }
+            }
+        }
+
+        HttpRequest request = current;
+        current = null;
+        return request;
+    }
+
+    /**
+     * 解码缓冲区中的chunked请求体，解码结果按需扩大
+     * @return true如果请求体已经完整
+     */
+    private boolean decodeChunked(ByteBuffer buffer) throws IOException {
+        while (true) {
+            if (chunkedBody == null) {
+                chunkedBody = new byte[1024];
+            } else if (bodyRead == chunkedBody.length) {
+                // 长度已由解码器按上限检查
+                chunkedBody = Arrays.copyOf(chunkedBody, (int) Math.min(MAX_BUFFERED_BODY, chunkedBody.length * 2L));
+            }
+            ByteBuffer out = ByteBuffer.wrap(chunkedBody, bodyRead, chunkedBody.length - bodyRead);
+            boolean done = chunked.decode(buffer, out);
+            bodyRead = out.position();
+            if (done) {
+                current.setBody(Arrays.copyOf(chunkedBody, bodyRead));
+                chunked = null;
+                chunkedBody = null;
+                return true;
+            }
+            if (!buffer.hasRemaining()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 是否正处于一个请求的中间（已读取部分数据）
+     * @return true如果已开始解析但尚未完成
+     */
+    public boolean isInProgress() {
+        return current != null || scanOffset > 0;
+    }
+
+    /**
+     * 设置请求大小限制
+     * @param limits 请求大小限制
+     */
+    public void setLimits(RequestLimits limits) {
+        this.limits = limits == null ? RequestLimits.DEFAULT : limits;
+    }
+
+    /**
+     * 设置流式请求体的阈值
+     * Content-Length超过阈值时，parse在请求头完整后立即返回请求，不分配请求体数组，
+     * 请求体字节留给调用方从缓冲区和连接中按流读取（见HttpRequestReader）。
+     * 启用后chunked请求体（长度事先未知）也总是按流读取。默认不启用
+     * @param streamingThreshold 阈值（字节）
+     */
+    public void setStreamingThreshold(long streamingThreshold) {
+        this.streamingThreshold = streamingThreshold;
+    }
+
+    /**
+     * 设置是否复用请求对象
+     * 开启后每次解析都返回同一个HttpRequest，它的请求头数组、请求头块和配对的响应（getResponse）也一起复用，
+     * 在开始解析下一个请求时重置。调用方必须在一个请求处理完毕、响应已经编码或发出之后才能解析下一个请求，
+     * 处理器不能在响应完成后继续持有请求对象（取出的字符串和请求体数组不受影响，可以保留）
+     * @param reuseRequests true表示复用
+     */
+    public void setReuseRequests(boolean reuseRequests) {
+        this.reuseRequests = reuseRequests;
+        if (!reuseRequests) {
+            reusable = null;
+            headBlock = null;
+        }
+    }
+
+    /**
+     * 丢弃当前解析状态
+     */
+    public void reset() {
+        current = null;
+        bodyRead = 0;
+        chunked = null;
+        chunkedBody = null;
+        scanOffset = 0;
+        requestLineSeen = false;
+    }
+
+    /**
+     * 查找请求头块结束位置（空行之后的绝对下标），找不到返回-1
+     * 同时接受CRLF和单独的LF作为行结束符；扫描时检查请求行和请求头块的长度，超限立即拒绝
+     */
+    private int findHeadEnd(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        for (int i = start + scanOffset; i < limit; i++) {
+            if (buffer.get(i) != '\n') {
+                continue;
+            }
+            if (!requestLineSeen) {
+                checkRequestLine(i - start);
+                requestLineSeen = true;
+            }
+            if (i + 1 < limit && buffer.get(i + 1) == '\n') {
+                return headEnd(start, i + 2);
+            }
+            if (i + 2 < limit && buffer.get(i + 1) == '\r' && buffer.get(i + 2) == '\n') {
+                return headEnd(start, i + 3);
+            }
+            if (i + 2 >= limit) {
+                // 空行可能跨越本次数据的末尾，下次从这个换行符重新检查
+                scanOffset = i - start;
+                checkHeadSize(limit - start);
+                return -1;
+            }
+        }
+        scanOffset = Math.max(0, limit - start);
+        if (!requestLineSeen) {
+            checkRequestLine(limit - start);
+        }
+        checkHeadSize(limit - start);
+        return -1;
+    }
+
+    private int headEnd(int start, int headEnd) throws IOException {
+        scanOffset = 0;
+        requestLineSeen = false;
+        checkHeadSize(headEnd - start);
+        return headEnd;
+    }
+
+    private void checkRequestLine(int length) throws RequestTooLargeException {
+        if (length > limits.getMaxRequestLineLength()) {
+            reset();
+            throw new RequestTooLargeException(HttpStatus.URI_TOO_LONG,
+                    "Request line exceeds " + limits.getMaxRequestLineLength() + " bytes");
+        }
+    }
+
+    private void checkHeadSize(int length) throws RequestTooLargeException {
+        if (length > limits.getMaxHeaderSize()) {
+            reset();
+            throw new RequestTooLargeException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE,
+                    "Request header block exceeds " + limits.getMaxHeaderSize() + " bytes");
+        }
+    }
+
+    /**
+     * 解析请求行和请求头，请求头以偏移切片形式保存在HttpHeaders中
+     */
+    private HttpRequest parseHead(ByteBuffer buffer, int headEnd) throws IOException {
+        // 请求头块只复制一次，之后的请求头切片都指向这个数组
+        int headLength = headEnd - buffer.position();
+        byte[] head;
+        HttpRequest request;
+        if (reuseRequests) {
+            if (headBlock == null || headBlock.length < headLength) {
+                headBlock = new byte[Math.max(headLength, headBlock == null ? 1024 : headBlock.length * 2)];
+            }
+            head = headBlock;
+            if (reusable == null) {
+                reusable = new HttpRequest();
+            }
+            request = reusable;
+        } else {
+            head = new byte[headLength];
+            request = new HttpRequest();
+        }
+        buffer.get(head, 0, headLength);
+        request.reset(head);
+
+        int lineEnd = indexOf(head, 0, headLength, '\n');
+        int requestLineEnd = trimCr(head, 0, lineEnd);
+        if (requestLineEnd == 0) {
+            throw new IOException("Invalid HTTP request: empty request line");
+        }
+
+        // 请求行格式 "POST /api/login HTTP/1.1"
+        int firstSpace = indexOf(head, 0, requestLineEnd, ' ');
+        int secondSpace = firstSpace == -1 ? -1 : indexOf(head, firstSpace + 1, requestLineEnd, ' ');
+        if (firstSpace <= 0 || secondSpace == -1 || secondSpace == firstSpace + 1
+                || secondSpace == requestLineEnd - 1
+                || indexOf(head, secondSpace + 1, requestLineEnd, ' ') != -1) {
+            throw new IOException("Invalid HTTP request line: "
+                    + new String(head, 0, requestLineEnd, StandardCharsets.UTF_8));
+        }
+
+        request.setMethod(intern(head, 0, firstSpace, KNOWN_METHODS));
+        request.setUri(new String(head, firstSpace + 1, secondSpace - firstSpace - 1, StandardCharsets.UTF_8));
+        request.setVersion(intern(head, secondSpace + 1, requestLineEnd, KNOWN_VERSIONS));
+
+        // 解析请求头
+        HttpHeaders headers = request.getHeaders();
+        long contentLength = -1;
+        boolean chunkedEncoding = false;
+        int headerCount = 0;
+        int lineStart = lineEnd + 1;
+        while (lineStart < headLength) {
+            lineEnd = indexOf(head, lineStart, headLength, '\n');
+            int end = trimCr(head, lineStart, lineEnd);
+            if (end == lineStart) {
+                break; // 空行，请求头结束
+            }
+
+            if (++headerCount > limits.getMaxHeaderCount()) {
+                throw new RequestTooLargeException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE,
+                        "More than " + limits.getMaxHeaderCount() + " request headers");
+            }
+            int colonIndex = indexOf(head, lineStart, end, ':');
+            if (colonIndex > lineStart) {
+                int nameStart = skipWhitespace(head, lineStart, colonIndex);
+                int nameEnd = trimWhitespace(head, nameStart, colonIndex);
+                int valueStart = skipWhitespace(head, colonIndex + 1, end);
+                int valueEnd = trimWhitespace(head, valueStart, end);
+                headers.addRaw(nameStart, nameEnd, valueStart, valueEnd);
+
+                if (equalsIgnoreCase(head, nameStart, nameEnd, CONTENT_LENGTH)) {
+                    long value = parseContentLength(head, valueStart, valueEnd);
+                    if (contentLength != -1 && contentLength != value) {
+                        // 长度不一致时无法确定请求体的边界（RFC 9112 6.3）
+                        throw new IOException("Conflicting Content-Length headers: " + contentLength + ", " + value);
+                    }
+                    contentLength = value;
+                } else if (equalsIgnoreCase(head, nameStart, nameEnd, TRANSFER_ENCODING)) {
+                    checkChunked(head, valueStart, valueEnd);
+                    if (chunkedEncoding) {
+                        throw new IOException("Invalid Transfer-Encoding: chunked applied more than once");
+                    }
+                    chunkedEncoding = true;
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        if (chunkedEncoding) {
+            if (contentLength != -1) {
+                // 同时出现时以Transfer-Encoding为准，忽略Content-Length；
+                // 前面的代理可能按Content-Length理解请求（请求走私），处理完这个请求后关闭连接
+                headers.put(HttpHeaders.CONNECTION, "close");
+            }
+            if (streamingThreshold != Long.MAX_VALUE) {
+                request.setBodyStreamLength(HttpRequest.CHUNKED_BODY_STREAM);
+            } else {
+                chunked = newChunkedDecoder(MAX_BUFFERED_BODY);
+            }
+        } else if (contentLength > streamingThreshold) {
+            request.setBodyStreamLength(contentLength);
+        } else if (contentLength > 0) {
+            if (contentLength > Integer.MAX_VALUE - 8) {
+                throw new RequestTooLargeException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Request body of " + contentLength + " bytes cannot be buffered");
+            }
+            // 请求体按Content-Length精确复制字节
+            request.setBody(new byte[(int) contentLength]);
+        }
+        return request;
+    }
+
+    /**
+     * 创建按请求体大小限制检查长度的chunked解码器
+     * @param bufferLimit 调用方能容纳的最大长度
+     */
+    ChunkedDecoder newChunkedDecoder(long bufferLimit) {
+        return new ChunkedDecoder(Math.min(limits.getMaxBodySize(), bufferLimit));
+    }
+
+    /**
+     * 只支持单独的chunked传输编码；其他编码（例如gzip, chunked中的gzip）不解码，
+     * 与其把没有解码的字节交给处理器，不如返回501（RFC 9112 6.1）
+     */
+    private static void checkChunked(byte[] data, int start, int end) throws RequestRejectedException {
+        if (!equalsIgnoreCase(data, start, end, CHUNKED)) {
+            throw new RequestRejectedException(HttpStatus.NOT_IMPLEMENTED, "Unsupported Transfer-Encoding: "
+                    + new String(data, start, end - start, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * 解析Content-Length，超过请求体大小限制时立即拒绝（不等待请求体到达）
+     */
+    private long parseContentLength(byte[] data, int start, int end) throws IOException {
+        if (start == end) {
+            throw new IOException("Invalid Content-Length header: ");
+        }
+        long max = limits.getMaxBodySize();
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Invalid Content-Length header: "
+                        + new String(data, start, end - start, StandardCharsets.ISO_8859_1));
+            }
+            value = value * 10 + digit;
+            if (value > max || value > Long.MAX_VALUE / 10) {
+                throw new RequestTooLargeException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Request body exceeds " + max + " bytes");
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 常见的方法名和版本号直接返回常量，避免每个请求创建新字符串
+     */
+    private static String intern(byte[] data, int start, int end, String[] candidates) {
+        for (String candidate : candidates) {
+            if (candidate.length() == end - start && regionEquals(data, start, candidate)) {
+                return candidate;
+            }
+        }
+        return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean regionEquals(byte[] data, int start, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (data[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] data, int start, int end, byte[] lowerCase) {
+        if (end - start != lowerCase.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length; i++) {
+            int b = data[start + i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimCr(byte[] data, int start, int lineEnd) {
+        return lineEnd > start && data[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+    }
+
+    private static int skipWhitespace(byte[] data, int start, int end) {
+        while (start < end && (data[start] == ' ' || data[start] == '\t')) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimWhitespace(byte[] data, int start, int end) {
+        while (end > start && (data[end - 1] == ' ' || data[end - 1] == '\t')) {
+            end--;
+        }
+        return end;
+    }
+}
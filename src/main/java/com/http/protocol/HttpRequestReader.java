@@ -0,0 +1,269 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 连接级请求读取器
+ * 在一个连接的生命周期内复用同一个缓冲区和解析器，
+ * 读多了的字节（流水线中的下一个请求）保留在缓冲区中，不会随请求结束而丢失。
+ * 超过流式阈值的请求体和chunked请求体不读入内存，请求的getBodyStream直接从缓冲区和连接读取（chunked边读边解码），
+ * 读取下一个请求前会跳过处理器没有读完的部分
+ */
+public class HttpRequestReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    public static final long DEFAULT_STREAMING_THRESHOLD = 64 * 1024;
+
+    private final InputStream input;
+    private final HttpRequestParser parser;
+    private ByteBuffer buffer;
+    private BodyInputStream activeBody; // 上一个请求的流式请求体
+
+    public HttpRequestReader(InputStream input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    public HttpRequestReader(InputStream input, int bufferSize) {
+        this.input = input;
+        this.parser = new HttpRequestParser();
+        this.parser.setStreamingThreshold(DEFAULT_STREAMING_THRESHOLD);
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip(); // 缓冲区保持读模式，position到limit为未解析数据
+    }
+
+    /**
+     * 设置是否在连接内复用同一个请求对象（以及配对的响应对象），规则见HttpRequestParser.setReuseRequests
+     * @param reuseRequests true表示复用
+     */
+    public void setReuseRequests(boolean reuseRequests) {
+        parser.setReuseRequests(reuseRequests);
+    }
+
+    /**
+     * 设置请求大小限制
+     * @param limits 请求大小限制
+     */
+    public void setLimits(RequestLimits limits) {
+        parser.setLimits(limits);
+    }
+
+    /**
+     * 设置流式请求体的阈值，Content-Length超过阈值的请求体按流读取
+     * @param streamingThreshold 阈值（字节），Long.MAX_VALUE表示总是读入内存
+     */
+    public void setStreamingThreshold(long streamingThreshold) {
+        parser.setStreamingThreshold(streamingThreshold);
+    }
+
+    /**
+     * 读取下一个请求，优先使用缓冲区中已有的数据
+     * @return 解析后的HttpRequest对象；如果连接在两个请求之间正常关闭则返回null
+     * @throws IOException 如果读取失败、请求格式错误或连接在请求中途关闭
+     */
+    public HttpRequest readRequest() throws IOException {
+        skipActiveBody();
+        while (true) {
+            HttpRequest request = parser.parse(buffer);
+            if (request != null) {
+                return attachBody(request);
+            }
+
+            if (fill() == -1) {
+                if (!parser.isInProgress() && !buffer.hasRemaining()) {
+                    return null;
+                }
+                throw new IOException("Invalid HTTP request: unexpected end of stream");
+            }
+        }
+    }
+
+    /**
+     * 只用缓冲区中已有的数据尝试解析下一个请求，不会阻塞读取
+     * 客户端流水线发送的多个请求通常在一次读取中全部到达，可以连续取出
+     * @return 完整的HttpRequest，如果缓冲区中的数据不足则返回null
+     * @throws IOException 如果请求格式错误
+     */
+    public HttpRequest pollBufferedRequest() throws IOException {
+        skipActiveBody();
+        return attachBody(parser.parse(buffer));
+    }
+
+    /**
+     * 阻塞等待下一个请求的数据到达缓冲区，不解析
+     * 连接可以在等到第一个字节时离开空闲状态，而不是等整个请求解析完
+     * @return true如果缓冲区中有数据；false如果连接在两个请求之间关闭
+     * @throws IOException 如果读取失败
+     */
+    public boolean awaitData() throws IOException {
+        skipActiveBody();
+        return buffer.hasRemaining() || fill() > 0;
+    }
+
+    /**
+     * 缓冲区中是否还有未解析的字节（例如客户端流水线发送的后续请求）
+     * @return true如果有已缓冲的数据
+     */
+    public boolean hasBufferedData() {
+        return buffer.hasRemaining();
+    }
+
+    private HttpRequest attachBody(HttpRequest request) {
+        if (request != null && request.getBodyStreamLength() == HttpRequest.CHUNKED_BODY_STREAM) {
+            activeBody = new BodyInputStream(parser.newChunkedDecoder(Long.MAX_VALUE));
+            request.setBodyStream(activeBody);
+        } else if (request != null && request.getBodyStreamLength() > 0) {
+            activeBody = new BodyInputStream(request.getBodyStreamLength());
+            request.setBodyStream(activeBody);
+        }
+        return request;
+    }
+
+    /**
+     * 跳过上一个请求中处理器没有读完的请求体，使连接停在下一个请求的开头
+     */
+    private void skipActiveBody() throws IOException {
+        if (activeBody != null) {
+            BodyInputStream body = activeBody;
+            activeBody = null;
+            body.skipRemaining();
+        }
+    }
+
+    /**
+     * 请求体输入流，先读缓冲区中已有的字节，再直接从连接读取
+     * 长度为Content-Length，或者由chunked解码器决定在哪里结束
+     */
+    private final class BodyInputStream extends InputStream {
+        private long remaining;
+        private final ChunkedDecoder decoder;
+
+        BodyInputStream(long length) {
+            this.remaining = length;
+            this.decoder = null;
+        }
+
+        BodyInputStream(ChunkedDecoder decoder) {
+            this.remaining = 0;
+            this.decoder = decoder;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (decoder != null) {
+                return readChunked(b, off, len);
+            }
+            if (remaining == 0) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int count = (int) Math.min(len, remaining);
+            if (buffer.hasRemaining()) {
+                count = Math.min(count, buffer.remaining());
+                buffer.get(b, off, count);
+            } else {
+                // 缓冲区已空，大块数据直接读入调用方的数组，不经过缓冲区
+                count = input.read(b, off, count);
+                if (count == -1) {
+                    throw new IOException("Invalid HTTP request: unexpected end of stream in body");
+                }
+            }
+            remaining -= count;
+            return count;
+        }
+
+        /**
+         * 从缓冲区解码，缓冲区中没有完整的块数据时再从连接读取
+         */
+        private int readChunked(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer out = ByteBuffer.wrap(b, off, len);
+            while (true) {
+                boolean done = decoder.decode(buffer, out);
+                int count = out.position() - off;
+                if (count > 0) {
+                    return count;
+                }
+                if (done) {
+                    return -1;
+                }
+                if (fill() == -1) {
+                    throw new IOException("Invalid HTTP request: unexpected end of stream in chunked body");
+                }
+            }
+        }
+
+        @Override
+        public int available() {
+            if (decoder != null) {
+                return 0;
+            }
+            return (int) Math.min(remaining, buffer.remaining());
+        }
+
+        /**
+         * 关闭只表示处理器不再读取，剩余字节在读取下一个请求前跳过，连接不会被关闭
+         */
+        @Override
+        public void close() {
+            // 不关闭连接
+        }
+
+        void skipRemaining() throws IOException {
+            if (decoder != null) {
+                byte[] scratch = new byte[DEFAULT_BUFFER_SIZE];
+                while (read(scratch, 0, scratch.length) != -1) {
+                    // 丢弃剩余的块
+                }
+                return;
+            }
+            byte[] scratch = null;
+            while (remaining > 0) {
+                if (buffer.hasRemaining()) {
+                    int count = (int) Math.min(remaining, buffer.remaining());
+                    buffer.position(buffer.position() + count);
+                    remaining -= count;
+                } else {
+                    if (scratch == null) {
+                        scratch = new byte[(int) Math.min(remaining, DEFAULT_BUFFER_SIZE)];
+                    }
+                    if (read(scratch, 0, scratch.length) == -1) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 从输入流读取更多数据到缓冲区，必要时扩容
+     * @return 读取的字节数，流结束返回-1
+     */
+    private int fill() throws IOException {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            // 请求头超过缓冲区大小，扩容
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        int read = input.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (read > 0) {
+            buffer.position(buffer.position() + read);
+        }
+        buffer.flip();
+        return read;
+    }
+}
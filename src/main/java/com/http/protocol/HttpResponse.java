@@ -1,12 +1,14 @@
 package com.http.protocol;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,11 +20,16 @@ public class HttpResponse {
     private int statusCode;
     private String statusMessage;
     private String version;
-    private Map<String, String> headers;
+    private HttpHeaders headers;
     private byte[] body;
+    private ResponseBody streamingBody; // 流式响应体，设置后body不再使用
+    private EncodedHeaders encodedHeaders; // 共享的预编码响应头，修改其中的头时才复制到headers
+    private boolean bodyOmitted; // HEAD请求的响应：照常声明长度，但不发送响应体
+
+    private static final byte[] EMPTY_BODY = new byte[0];
 
     public HttpResponse() {
-        this.headers = new HashMap<>();
+        this.headers = new HttpHeaders();
         this.body = new byte[0];
         this.version = "HTTP/1.1";
     }
@@ -39,117 +46,139 @@ public class HttpResponse {
         this.statusMessage = statusMessage;
     }
 
+    /**
+     * 重置为200 OK的空响应，保留已分配的响应头数组（由复用响应的HttpRequest调用）
+     */
+    void reset() {
+        statusCode = HttpStatus.OK.getCode();
+        statusMessage = HttpStatus.OK.getMessage();
+        version = "HTTP/1.1";
+        if (headers.isReadOnly()) {
+            headers = new HttpHeaders();
+        } else {
+            headers.clear();
+        }
+        body = EMPTY_BODY;
+        streamingBody = null;
+        encodedHeaders = null;
+        bodyOmitted = false;
+    }
+
     /**
      * 从InputStream解析HTTP响应
+     * 响应体按Content-Length或chunked编码读取，都没有时读到流结束；
+     * 同一连接上要读取多个响应时应使用HttpResponseReader，保留读多了的字节
      * @param input 输入流
      * @return 解析后的HttpResponse对象
      * @throws IOException 如果读取或解析失败
      */
     public static HttpResponse parse(InputStream input) throws IOException {
-        HttpResponse response = new HttpResponse();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
-        
-        // 解析状态行
-        // 格式："HTTP/1.1 200 OK\r\n"
-        String statusLine = reader.readLine();
-        if (statusLine == null || statusLine.isEmpty()) {
-            throw new IOException("Invalid HTTP response: empty status line");
-        }
-        
-        String[] statusParts = statusLine.split(" ", 3);
-        if (statusParts.length < 2) {
-            throw new IOException("Invalid HTTP status line: " + statusLine);
-        }
-        
-        response.version = statusParts[0];
-        //把状态码抓出来
-        try {
-            response.statusCode = Integer.parseInt(statusParts[1]);
-        } catch (NumberFormatException e) {
-            throw new IOException("Invalid status code: " + statusParts[1]);
-        }
-        response.statusMessage = statusParts.length > 2 ? statusParts[2] : "";
-        
-        // 解析响应头
-        //格式："Content-Type: text/html\r\n" +
-        // "Content-Length: " + body.length() + "\r\n" +
-        // "Connection: keep-alive\r\n" +
-        String line;
-        while ((line = reader.readLine()) != null && !line.isEmpty()) {
-            int colonIndex = line.indexOf(':');
-            if (colonIndex > 0) {
-                String headerName = line.substring(0, colonIndex).trim();
-                //trim会移除开头和结尾的所有空格
-                String headerValue = line.substring(colonIndex + 1).trim();
-                response.headers.put(headerName, headerValue);
-            }
-        }
-        
-        // 解析响应体
-        String contentLengthStr = response.headers.get("Content-Length");
-        if (contentLengthStr != null) {
-            try {
-                int contentLength = Integer.parseInt(contentLengthStr);
-                if (contentLength > 0) {
-                    char[] bodyChars = new char[contentLength];
-                    int totalRead = 0;
-                    while (totalRead < contentLength) {
-                        int read = reader.read(bodyChars, totalRead, contentLength - totalRead);
-                        if (read == -1) {
-                            break;
-                        }
-                        totalRead += read;
-                    }
-                    response.body = new String(bodyChars, 0, totalRead).getBytes(StandardCharsets.UTF_8);
-                }
-            } catch (NumberFormatException e) {
-                throw new IOException("Invalid Content-Length header: " + contentLengthStr);
-            }
-        }
-        
-        return response;
+        return new HttpResponseReader(input).readResponse();
     }
 
     /**
      * 将HTTP响应转换为字节数组
+     * 流式响应体会被完整读入内存，只适合测试或小响应；服务器发送响应应使用writeTo
      * @return 响应的字节数组表示
      */
     public byte[] toBytes() {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         
         try {
-            // 写入状态行
-            String statusLine = version + " " + statusCode + " " + statusMessage + "\r\n";
-            output.write(statusLine.getBytes(StandardCharsets.UTF_8));
-            
-            // 写入响应头
-            for (Map.Entry<String, String> header : headers.entrySet()) {
-                String headerLine = header.getKey() + ": " + header.getValue() + "\r\n";
-                output.write(headerLine.getBytes(StandardCharsets.UTF_8));
-            }
-            
-            // 如果有响应体，确保有Content-Length头
-            if (body != null && body.length > 0) {
-                if (!headers.containsKey("Content-Length")) {
-                    String contentLength = "Content-Length: " + body.length + "\r\n";
-                    output.write(contentLength.getBytes(StandardCharsets.UTF_8));
-                }
+            writeTo(output);
+        } catch (IOException e) {
+            // ByteArrayOutputStream不会抛出IOException，只可能是流式响应体的数据源出错
+            throw new RuntimeException(e);
+        }
+        
+        return output.toByteArray();
+    }
+
+    /**
+     * 将状态行和响应头编码为字节数组（以空行结尾）
+     * 未设置Content-Length时按响应体补充；流式响应体长度未知时使用chunked编码；不补充Date头。
+     * 连接层应复用ResponseSerializer，直接写入缓冲区而不是创建数组
+     * @return 响应头字节
+     */
+    public byte[] encodeHead() {
+        ByteBuffer head = new ResponseSerializer(256, false, false).encodeHead(this);
+        byte[] bytes = new byte[head.remaining()];
+        head.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 将完整响应写入输出流（阻塞），流式响应体直接从数据源搬运到输出流
+     * @param output 输出流
+     * @throws IOException 如果写出失败
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        writeTo(output, null);
+    }
+
+    /**
+     * 将完整响应写入输出流（阻塞）
+     * 提供Socket的通道时，流式响应体直接写入通道，文件响应体因此可以使用sendfile零拷贝发送
+     * @param output 输出流（响应头和内存响应体写入这里）
+     * @param channel Socket对应的阻塞通道，可以为null
+     * @throws IOException 如果写出失败
+     */
+    public void writeTo(OutputStream output, WritableByteChannel channel) throws IOException {
+        output.write(encodeHead());
+        
+        if (bodyOmitted) {
+            if (streamingBody != null) {
+                streamingBody.close();
             }
-            
-            // 写入空行（分隔头和体）
-            output.write("\r\n".getBytes(StandardCharsets.UTF_8));
-            
-            // 写入响应体
+            return;
+        }
+        if (streamingBody == null) {
             if (body != null && body.length > 0) {
                 output.write(body);
             }
-            
-        } catch (IOException e) {
-            // ByteArrayOutputStream不会抛出IOException
-            throw new RuntimeException(e);
+            return;
         }
         
-        return output.toByteArray();
+        WritableByteChannel target = channel;
+        if (target == null) {
+            target = Channels.newChannel(output);
+        } else {
+            // 响应头可能还在输出流的缓冲区中，必须先于响应体发出
+            output.flush();
+        }
+        ResponseBodyWriter writer = new ResponseBodyWriter(streamingBody, target, isChunked());
+        try {
+            writer.writeFully();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * 该状态码的响应是否带响应体（1xx、204、304没有响应体，也不发送Content-Length: 0）
+     * 其他状态即使响应体为空也要声明长度，否则长连接上的客户端无法判断响应结束
+     */
+    boolean hasBodyByStatus() {
+        return statusCode >= 200 && statusCode != 204 && statusCode != 304;
+    }
+
+    /**
+     * 是否使用chunked传输编码（流式响应体长度未知且没有显式的Content-Length）
+     * @return true如果使用chunked编码
+     */
+    public boolean isChunked() {
+        return streamingBody != null && streamingBody.contentLength() < 0 && !hasHeader("Content-Length");
+    }
+
+    /**
+     * 获取响应体长度
+     * @return 字节数，流式响应体长度未知时返回-1
+     */
+    public long getContentLength() {
+        if (streamingBody != null) {
+            return streamingBody.contentLength();
+        }
+        return body == null ? 0 : body.length;
     }
 
     // Getters and Setters
@@ -183,28 +212,161 @@ public class HttpResponse {
         this.version = version;
     }
 
-    public Map<String, String> getHeaders() {
+    /**
+     * 获取可修改的响应头集合（名称不区分大小写），预编码的响应头会先被复制进来
+     */
+    public HttpHeaders getHeaders() {
+        materializeEncodedHeaders();
         return headers;
     }
 
+    /**
+     * 设置响应头，HttpHeaders直接使用，其他Map会被复制
+     */
     public void setHeaders(Map<String, String> headers) {
-        this.headers = headers;
+        if (headers == null) {
+            this.headers = new HttpHeaders();
+        } else if (headers instanceof HttpHeaders) {
+            this.headers = (HttpHeaders) headers;
+        } else {
+            this.headers = new HttpHeaders(headers);
+        }
+        this.encodedHeaders = null;
     }
 
+    /**
+     * 获取响应头（名称不区分大小写，同名头返回第一个）
+     * @param name 响应头名称
+     * @return 响应头值，不存在则返回null
+     */
     public String getHeader(String name) {
-        return headers.get(name);
+        String value = headers.get(name);
+        if (value == null && encodedHeaders != null) {
+            value = encodedHeaders.get(name);
+        }
+        return value;
+    }
+
+    /**
+     * 获取所有同名响应头的值
+     * @param name 响应头名称（不区分大小写）
+     * @return 按出现顺序排列的值
+     */
+    public List<String> getHeaderValues(String name) {
+        return getHeaders().getAll(name);
     }
 
+    /**
+     * 设置响应头，替换已有的同名头
+     */
     public void setHeader(String name, String value) {
+        if (encodedHeaders != null && encodedHeaders.contains(name)) {
+            // 覆盖共享的预编码头时不能修改共享对象，复制一份后再改
+            materializeEncodedHeaders();
+        }
         headers.put(name, value);
     }
 
+    /**
+     * 追加响应头，保留已有的同名头（例如多个Set-Cookie）
+     */
+    public void addHeader(String name, String value) {
+        if (encodedHeaders != null && encodedHeaders.contains(name)) {
+            materializeEncodedHeaders();
+        }
+        headers.add(name, value);
+    }
+
+    /**
+     * 附加一组预编码的响应头，发送时直接拼接它们的字节
+     * 预编码的头可以被多个响应共享（例如缓存的静态资源），不会被修改
+     * @param encodedHeaders 预编码的响应头
+     */
+    public void setEncodedHeaders(EncodedHeaders encodedHeaders) {
+        materializeEncodedHeaders();
+        this.encodedHeaders = encodedHeaders;
+    }
+
+    /**
+     * @return 响应头集合本身（不复制预编码的头），供序列化使用
+     */
+    HttpHeaders headerMap() {
+        return headers;
+    }
+
+    EncodedHeaders encodedHeaders() {
+        return encodedHeaders;
+    }
+
+    boolean hasHeader(String name) {
+        return headers.contains(name) || (encodedHeaders != null && encodedHeaders.contains(name));
+    }
+
+    private void materializeEncodedHeaders() {
+        if (encodedHeaders != null) {
+            // 已经设置过的同名头优先，预编码的重复行（例如多个Set-Cookie）一起复制
+            HttpHeaders encoded = encodedHeaders.headers();
+            int existing = headers.size();
+            for (int i = 0; i < encoded.size(); i++) {
+                String name = encoded.nameAt(i);
+                if (headers.indexOf(name, existing) < 0) {
+                    headers.add(name, encoded.valueAt(i));
+                }
+            }
+            encodedHeaders = null;
+        }
+    }
+
+    /**
+     * 获取内存中的响应体
+     * 流式响应体不会被读入内存，此时返回空数组，应使用getStreamingBody
+     */
     public byte[] getBody() {
         return body;
     }
 
     public void setBody(byte[] body) {
         this.body = body;
+        this.streamingBody = null;
+    }
+
+    /**
+     * 设置流式响应体，由连接层直接写到Socket
+     * @param body 流式响应体
+     */
+    public void setBody(ResponseBody body) {
+        this.streamingBody = body;
+        this.body = new byte[0];
+    }
+
+    public ResponseBody getStreamingBody() {
+        return streamingBody;
+    }
+
+    /**
+     * 设置是否省略响应体（用于HEAD请求）
+     * 响应头不变，Content-Length仍按响应体计算，与GET请求得到的一致
+     * @param bodyOmitted true表示只发送状态行和响应头
+     */
+    public void setBodyOmitted(boolean bodyOmitted) {
+        this.bodyOmitted = bodyOmitted;
+    }
+
+    public boolean isBodyOmitted() {
+        return bodyOmitted;
+    }
+
+    /**
+     * 返回可以修改的响应（写时复制）：普通响应就是自身，预编码的CannedResponse返回副本。
+     * 修改别的处理器返回的响应之前调用，例如 response = response.mutable()
+     * @return 可以修改的响应
+     */
+    public HttpResponse mutable() {
+        return this;
+    }
+
+    public boolean isStreaming() {
+        return streamingBody != null;
     }
 
     public String getBodyAsString() {
@@ -215,6 +377,7 @@ public class HttpResponse {
     }
 
     public void setBody(String bodyString) {
+        this.streamingBody = null;
         if (bodyString == null) {
             this.body = new byte[0];
         } else {
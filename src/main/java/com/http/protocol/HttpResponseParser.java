@@ -0,0 +1,292 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 字节级HTTP响应解析器（客户端）
+ * 与HttpRequestParser对应：直接在ByteBuffer上查找响应头结束位置，支持增量解析，
+ * 数据不完整时返回null并记住进度，阻塞读取（HttpResponseReader）和非阻塞通道都可以使用。
+ * 响应体按Content-Length精确读取、按chunked逐块解码，两者都没有时一直读到连接关闭（见endOfStream）；
+ * 1xx临时响应（例如100 Continue）被跳过。一个解析器对应一个连接，不是线程安全的
+ */
+public class HttpResponseParser {
+
+    private static final int MAX_HEAD_SIZE = 64 * 1024;
+    private static final int MAX_BODY_SIZE = Integer.MAX_VALUE - 8;
+
+    private HttpResponse current;    // 响应头已解析、正在读取响应体的响应
+    private byte[] body;             // 正在读取的响应体，按需扩大（chunked和读到关闭）
+    private int bodyRead;            // 已读取的响应体字节数
+    private long bodyLength;         // Content-Length，-1表示chunked或读到连接关闭
+    private ChunkedDecoder chunked;  // chunked响应体的解码器
+    private int scanOffset;          // 查找响应头结束位置时已扫描过的字节数（相对position）
+    private boolean headRequest;     // 下一个响应是否对应HEAD请求
+    private boolean reusable;        // 上一个响应之后连接能否继续使用
+
+    /**
+     * 从缓冲区解析一个响应
+     * 缓冲区处于读模式，解析器推进position消费已解析的字节，调用方可以在两次调用之间compact缓冲区
+     * @param buffer 输入缓冲区
+     * @return 完整的HttpResponse，如果数据不足则返回null
+     * @throws IOException 如果响应格式错误
+     */
+    public HttpResponse parse(ByteBuffer buffer) throws IOException {
+        while (current == null) {
+            int headEnd = findHeadEnd(buffer);
+            if (headEnd == -1) {
+                return null;
+            }
+            HttpResponse response = parseHead(buffer, headEnd);
+            int status = response.getStatusCode();
+            if (status >= 100 && status < 200 && status != 101) {
+                continue; // 临时响应，继续解析真正的响应
+            }
+            startBody(response);
+        }
+
+        if (chunked != null) {
+            if (!decodeChunked(buffer)) {
+                return null;
+            }
+        } else if (bodyLength >= 0) {
+            int count = (int) Math.min(bodyLength - bodyRead, buffer.remaining());
+            buffer.get(body, bodyRead, count);
+            bodyRead += count;
+            if (bodyRead < bodyLength) {
+                return null;
+            }
+        } else {
+            // 读到连接关闭，全部收下，由endOfStream结束
+            append(buffer);
+            return null;
+        }
+        return finish(true);
+    }
+
+    /**
+     * 连接已关闭时结束解析：以连接关闭为结束的响应体到此完整，其他情况说明响应被截断
+     * @return 完整的HttpResponse；如果连接在两个响应之间关闭则返回null
+     * @throws IOException 如果连接在响应中途关闭
+     */
+    public HttpResponse endOfStream() throws IOException {
+        if (current == null) {
+            if (scanOffset > 0) {
+                reset();
+                throw new IOException("Invalid HTTP response: unexpected end of stream in header");
+            }
+            return null;
+        }
+        if (chunked != null || bodyLength >= 0) {
+            reset();
+            throw new IOException("Invalid HTTP response: unexpected end of stream in body");
+        }
+        return finish(false);
+    }
+
+    /**
+     * 下一个响应是否对应HEAD请求（HEAD响应声明了长度但没有响应体），对一个响应有效
+     * @param headRequest true表示HEAD请求
+     */
+    public void setHeadRequest(boolean headRequest) {
+        this.headRequest = headRequest;
+    }
+
+    /**
+     * 是否正处于一个响应的中间（已读取部分数据）
+     * @return true如果已开始解析但尚未完成
+     */
+    public boolean isInProgress() {
+        return current != null || scanOffset > 0;
+    }
+
+    /**
+     * 上一个响应读完后连接能否继续使用
+     * 响应体必须由Content-Length或chunked确定结束位置（而不是连接关闭），并且服务器没有要求关闭连接
+     * （Connection: close，或者HTTP/1.0没有声明keep-alive）
+     * @return true如果可以在同一连接上发送下一个请求
+     */
+    public boolean isConnectionReusable() {
+        return reusable;
+    }
+
+    /**
+     * 丢弃当前解析状态
+     */
+    public void reset() {
+        current = null;
+        body = null;
+        bodyRead = 0;
+        chunked = null;
+        scanOffset = 0;
+        headRequest = false;
+    }
+
+    private void startBody(HttpResponse response) throws IOException {
+        current = response;
+        reusable = false;
+        bodyRead = 0;
+        int status = response.getStatusCode();
+        if (status == 101 || headRequest || status == 204 || status == 304) {
+            // 没有响应体；协议升级之后的字节不再是HTTP
+            bodyLength = 0;
+            body = new byte[0];
+            return;
+        }
+
+        // 同时出现时以Transfer-Encoding为准
+        String transferEncoding = response.getHeader(HttpHeaders.TRANSFER_ENCODING);
+        String contentLength = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (transferEncoding != null) {
+            bodyLength = -1;
+            if (transferEncoding.regionMatches(true, transferEncoding.length() - 7, "chunked", 0, 7)) {
+                chunked = new ChunkedDecoder(MAX_BODY_SIZE);
+            }
+            body = new byte[1024];
+        } else if (contentLength != null) {
+            try {
+                bodyLength = Long.parseLong(contentLength);
+            } catch (NumberFormatException e) {
+                reset();
+                throw new IOException("Invalid Content-Length header: " + contentLength);
+            }
+            if (bodyLength < 0 || bodyLength > MAX_BODY_SIZE) {
+                reset();
+                throw new IOException("Invalid Content-Length header: " + contentLength);
+            }
+            body = new byte[(int) bodyLength];
+        } else {
+            bodyLength = -1;
+            body = new byte[1024];
+        }
+    }
+
+    private HttpResponse finish(boolean delimited) {
+        HttpResponse response = current;
+        response.setBody(body.length == bodyRead ? body : Arrays.copyOf(body, bodyRead));
+        boolean upgrade = response.getStatusCode() == 101;
+        reset();
+        reusable = delimited && !upgrade && keepAlive(response);
+        return response;
+    }
+
+    private boolean decodeChunked(ByteBuffer buffer) throws IOException {
+        while (true) {
+            ensureCapacity();
+            ByteBuffer out = ByteBuffer.wrap(body, bodyRead, body.length - bodyRead);
+            boolean done = chunked.decode(buffer, out);
+            bodyRead = out.position();
+            if (done) {
+                return true;
+            }
+            if (!buffer.hasRemaining()) {
+                return false;
+            }
+        }
+    }
+
+    private void append(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            ensureCapacity();
+            int count = Math.min(body.length - bodyRead, buffer.remaining());
+            buffer.get(body, bodyRead, count);
+            bodyRead += count;
+        }
+    }
+
+    private void ensureCapacity() throws IOException {
+        if (bodyRead == body.length) {
+            if (body.length >= MAX_BODY_SIZE) {
+                reset();
+                throw new IOException("Response body exceeds " + MAX_BODY_SIZE + " bytes");
+            }
+            body = Arrays.copyOf(body, (int) Math.min(MAX_BODY_SIZE, body.length * 2L));
+        }
+    }
+
+    private static boolean keepAlive(HttpResponse response) {
+        String connection = response.getHeader(HttpHeaders.CONNECTION);
+        if (connection != null && connection.toLowerCase().contains("close")) {
+            return false;
+        }
+        if ("HTTP/1.0".equals(response.getVersion())) {
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
+        }
+        return true;
+    }
+
+    /**
+     * 查找响应头块结束位置（空行之后的绝对下标），找不到返回-1
+     */
+    private int findHeadEnd(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        for (int i = start + scanOffset; i < limit; i++) {
+            if (buffer.get(i) != '\n') {
+                continue;
+            }
+            if (i + 1 < limit && buffer.get(i + 1) == '\n') {
+                scanOffset = 0;
+                return i + 2;
+            }
+            if (i + 2 < limit && buffer.get(i + 1) == '\r' && buffer.get(i + 2) == '\n') {
+                scanOffset = 0;
+                return i + 3;
+            }
+            if (i + 2 >= limit) {
+                // 空行可能跨越本次数据的末尾，下次从这个换行符重新检查
+                scanOffset = i - start;
+                checkHeadSize(limit - start);
+                return -1;
+            }
+        }
+        scanOffset = Math.max(0, limit - start);
+        checkHeadSize(limit - start);
+        return -1;
+    }
+
+    private void checkHeadSize(int length) throws IOException {
+        if (length > MAX_HEAD_SIZE) {
+            reset();
+            throw new IOException("Response header block exceeds " + MAX_HEAD_SIZE + " bytes");
+        }
+    }
+
+    private static HttpResponse parseHead(ByteBuffer buffer, int headEnd) throws IOException {
+        byte[] head = new byte[headEnd - buffer.position()];
+        buffer.get(head);
+        String[] lines = new String(head, StandardCharsets.UTF_8).split("\r?\n");
+
+        // 解析状态行
+        // 格式："HTTP/1.1 200 OK"
+        String statusLine = lines.length == 0 ? "" : lines[0];
+        if (statusLine.isEmpty()) {
+            throw new IOException("Invalid HTTP response: empty status line");
+        }
+        String[] statusParts = statusLine.split(" ", 3);
+        if (statusParts.length < 2) {
+            throw new IOException("Invalid HTTP status line: " + statusLine);
+        }
+        int statusCode;
+        try {
+            statusCode = Integer.parseInt(statusParts[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid status code: " + statusParts[1]);
+        }
+        HttpResponse response = new HttpResponse(statusCode, statusParts.length > 2 ? statusParts[2] : "");
+        response.setVersion(statusParts[0]);
+
+        // 解析响应头，同名头（例如多个Set-Cookie）逐行保留
+        HttpHeaders headers = response.getHeaders();
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i];
+            int colonIndex = line.indexOf(':');
+            if (colonIndex > 0) {
+                headers.add(line.substring(0, colonIndex).trim(), line.substring(colonIndex + 1).trim());
+            }
+        }
+        return response;
+    }
+}
@@ -0,0 +1,102 @@
+package com.http.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 连接级响应读取器（客户端）
+ * 与HttpRequestReader对应：在一个连接的生命周期内复用同一个缓冲区和HttpResponseParser，
+ * 读多了的字节（同一连接上的下一个响应）保留在缓冲区中，不会丢失。
+ * 每个响应读完后，isConnectionReusable说明连接能否继续用于下一个请求（连接池据此决定是否归还连接）。非线程安全
+ */
+public class HttpResponseReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final InputStream input;
+    private final HttpResponseParser parser;
+    private ByteBuffer buffer;
+
+    public HttpResponseReader(InputStream input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    public HttpResponseReader(InputStream input, int bufferSize) {
+        this.input = input;
+        this.parser = new HttpResponseParser();
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip(); // 缓冲区保持读模式，position到limit为未解析数据
+    }
+
+    /**
+     * 读取下一个响应
+     * @return 解析后的HttpResponse对象
+     * @throws IOException 如果读取失败、响应格式错误或连接在响应中途关闭
+     */
+    public HttpResponse readResponse() throws IOException {
+        return readResponse(false);
+    }
+
+    /**
+     * 读取下一个响应，跳过之前的1xx临时响应（例如100 Continue）
+     * @param headRequest 响应是否对应HEAD请求（HEAD响应声明了长度但没有响应体）
+     * @return 解析后的HttpResponse对象
+     * @throws EOFException 如果连接在响应的第一个字节之前关闭（服务器可能已经关闭了空闲的长连接）
+     * @throws IOException 如果读取失败、响应格式错误或连接在响应中途关闭
+     */
+    public HttpResponse readResponse(boolean headRequest) throws IOException {
+        parser.setHeadRequest(headRequest);
+        while (true) {
+            HttpResponse response = parser.parse(buffer);
+            if (response != null) {
+                return response;
+            }
+
+            if (fill() == -1) {
+                response = parser.endOfStream();
+                if (response == null) {
+                    throw new EOFException("Invalid HTTP response: connection closed before status line");
+                }
+                return response;
+            }
+        }
+    }
+
+    /**
+     * 上一个响应读完后连接能否继续使用，规则见HttpResponseParser.isConnectionReusable
+     * @return true如果可以在同一连接上发送下一个请求
+     */
+    public boolean isConnectionReusable() {
+        return parser.isConnectionReusable();
+    }
+
+    /**
+     * 缓冲区中是否还有未解析的字节
+     * @return true如果有已缓冲的数据
+     */
+    public boolean hasBufferedData() {
+        return buffer.hasRemaining();
+    }
+
+    /**
+     * 从输入流读取更多数据到缓冲区，必要时扩容
+     * @return 读取的字节数，流结束返回-1
+     */
+    private int fill() throws IOException {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        int read = input.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (read > 0) {
+            buffer.position(buffer.position() + read);
+        }
+        buffer.flip();
+        return read;
+    }
+}
@@ -8,6 +8,10 @@ public enum HttpStatus {
     // 定义了一些枚举常量
     // 2xx 成功状态码
     OK(200, "OK"),
+    // 204 无内容，例如OPTIONS请求的响应
+    NO_CONTENT(204, "No Content"),
+    // 206 部分内容，响应Range请求
+    PARTIAL_CONTENT(206, "Partial Content"),
     // 3xx 重定向状态码
     // 301 永久重定向，资源已永久移动到新位置
     MOVED_PERMANENTLY(301, "Moved Permanently"),
@@ -24,9 +28,19 @@ public enum HttpStatus {
     NOT_FOUND(404, "Not Found"),
     // 405 请求方法不被允许
     METHOD_NOT_ALLOWED(405, "Method Not Allowed"),
+    // 413 请求体超过服务器允许的大小
+    PAYLOAD_TOO_LARGE(413, "Payload Too Large"),
+    // 414 请求行（URI）过长
+    URI_TOO_LONG(414, "URI Too Long"),
+    // 416 请求的范围超出资源大小
+    RANGE_NOT_SATISFIABLE(416, "Range Not Satisfiable"),
+    // 431 请求头过大或过多
+    REQUEST_HEADER_FIELDS_TOO_LARGE(431, "Request Header Fields Too Large"),
     // 5xx 服务器错误状态码
     // 500 服务器内部错误
     INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
+    // 501 服务器不支持请求所需的功能（例如未知的传输编码）
+    NOT_IMPLEMENTED(501, "Not Implemented"),
     // 503 服务不可用
     SERVICE_UNAVAILABLE(503, "Service Unavailable");
     // 有这两个类型
@@ -0,0 +1,52 @@
+package com.http.protocol;
+
+/**
+ * 请求大小限制
+ * 解析器在读到超限的请求行、请求头或Content-Length时立即拒绝（414/431/413），
+ * 不会先把超大的请求读入内存。不可变，可被多个连接共享
+ */
+public final class RequestLimits {
+
+    public static final RequestLimits DEFAULT = new RequestLimits(8192, 64 * 1024, 100, 10L * 1024 * 1024);
+
+    private final int maxRequestLineLength;
+    private final int maxHeaderSize;
+    private final int maxHeaderCount;
+    private final long maxBodySize;
+
+    /**
+     * @param maxRequestLineLength 请求行的最大字节数（超出返回414）
+     * @param maxHeaderSize 请求行加全部请求头的最大字节数（超出返回431）
+     * @param maxHeaderCount 请求头的最大行数（超出返回431）
+     * @param maxBodySize 请求体的最大字节数（Content-Length超出返回413），0表示不允许请求体
+     */
+    public RequestLimits(int maxRequestLineLength, int maxHeaderSize, int maxHeaderCount, long maxBodySize) {
+        if (maxRequestLineLength <= 0 || maxHeaderSize <= 0 || maxHeaderCount <= 0) {
+            throw new IllegalArgumentException("Request line and header limits must be positive: "
+                    + maxRequestLineLength + ", " + maxHeaderSize + ", " + maxHeaderCount);
+        }
+        if (maxBodySize < 0) {
+            throw new IllegalArgumentException("Max body size must not be negative: " + maxBodySize);
+        }
+        this.maxRequestLineLength = maxRequestLineLength;
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxHeaderCount = maxHeaderCount;
+        this.maxBodySize = maxBodySize;
+    }
+
+    public int getMaxRequestLineLength() {
+        return maxRequestLineLength;
+    }
+
+    public int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    public int getMaxHeaderCount() {
+        return maxHeaderCount;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+}
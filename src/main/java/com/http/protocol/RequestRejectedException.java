@@ -0,0 +1,58 @@
+package com.http.protocol;
+
+import java.io.IOException;
+
+/**
+ * 解析器拒绝请求时抛出，携带应返回给客户端的状态码
+ * 连接层应发送对应的预编码错误响应（带Connection: close）后关闭连接：
+ * 超出RequestLimits时是413、414或431（RequestTooLargeException），不支持的传输编码是501
+ */
+public class RequestRejectedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final CannedResponse PAYLOAD_TOO_LARGE = errorResponse(HttpStatus.PAYLOAD_TOO_LARGE);
+    private static final CannedResponse URI_TOO_LONG = errorResponse(HttpStatus.URI_TOO_LONG);
+    private static final CannedResponse HEADERS_TOO_LARGE =
+            errorResponse(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+    private static final CannedResponse NOT_IMPLEMENTED = errorResponse(HttpStatus.NOT_IMPLEMENTED);
+
+    private final HttpStatus status;
+
+    /**
+     * @param status 413、414、431或501
+     * @param message 详细信息
+     */
+    public RequestRejectedException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return 应发送给客户端的错误响应
+     */
+    public CannedResponse toResponse() {
+        switch (status) {
+            case PAYLOAD_TOO_LARGE:
+                return PAYLOAD_TOO_LARGE;
+            case URI_TOO_LONG:
+                return URI_TOO_LONG;
+            case NOT_IMPLEMENTED:
+                return NOT_IMPLEMENTED;
+            default:
+                return HEADERS_TOO_LARGE;
+        }
+    }
+
+    private static CannedResponse errorResponse(HttpStatus status) {
+        HttpResponse response = new HttpResponse(status);
+        response.setHeader("Content-Type", "text/plain");
+        response.setHeader("Connection", "close");
+        response.setBody(status.getCode() + " " + status.getMessage());
+        return CannedResponse.of(response);
+    }
+}
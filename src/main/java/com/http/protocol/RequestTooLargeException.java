@@ -0,0 +1,18 @@
+package com.http.protocol;
+
+/**
+ * 请求超出RequestLimits时由解析器抛出
+ * 连接层应发送对应的预编码错误响应（413、414或431，带Connection: close）后关闭连接
+ */
+public class RequestTooLargeException extends RequestRejectedException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param status 413、414或431
+     * @param message 详细信息
+     */
+    public RequestTooLargeException(HttpStatus status, String message) {
+        super(status, message);
+    }
+}
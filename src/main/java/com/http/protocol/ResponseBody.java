@@ -0,0 +1,99 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 流式响应体
+ * 响应体不需要整体放在内存中，由连接层直接写到Socket；
+ * 长度未知时服务器使用Transfer-Encoding: chunked发送
+ */
+public interface ResponseBody {
+
+    /**
+     * 获取响应体长度
+     * @return 字节数，未知时返回-1
+     */
+    long contentLength();
+
+    /**
+     * 将响应体写入目标通道
+     * 对非阻塞通道可能只写出一部分，调用方应在通道可写时再次调用，直到返回true；
+     * 非阻塞数据源暂时没有数据时同样返回false
+     * @param target 目标通道
+     * @return true如果响应体已全部写出
+     * @throws IOException 如果读取数据源或写出失败
+     */
+    boolean writeTo(WritableByteChannel target) throws IOException;
+
+    /**
+     * 释放数据源（响应发送完毕或连接中断时由连接层调用）
+     */
+    default void close() {
+    }
+
+    /**
+     * 数据源是否可以在事件循环线程中直接读取（内存、本地文件）
+     * 其他数据源（上游调用、数据库游标、生成器）可能阻塞，NIO引擎在工作线程中读取
+     * @return true如果读取数据源不会阻塞
+     */
+    default boolean isNonBlocking() {
+        return false;
+    }
+
+    /**
+     * 以InputStream作为数据源创建响应体
+     * @param input 数据源，发送完毕后关闭
+     * @param contentLength 字节数，未知时传-1
+     * @return 响应体
+     */
+    static ResponseBody ofStream(InputStream input, long contentLength) {
+        return new ChannelResponseBody(Channels.newChannel(input), contentLength);
+    }
+
+    /**
+     * 以ReadableByteChannel作为数据源创建响应体
+     * @param channel 数据源，发送完毕后关闭
+     * @param contentLength 字节数，未知时传-1
+     * @return 响应体
+     */
+    static ResponseBody ofChannel(ReadableByteChannel channel, long contentLength) {
+        return new ChannelResponseBody(channel, contentLength);
+    }
+
+    /**
+     * 以文件区域作为数据源创建响应体，连接层使用FileChannel.transferTo发送
+     * @param path 文件路径（第一次发送时才打开）
+     * @param position 起始偏移
+     * @param count 字节数
+     * @return 响应体
+     */
+    static ResponseBody ofFile(Path path, long position, long count) {
+        return new FileResponseBody(path, position, count);
+    }
+
+    /**
+     * 以字节数组的一段作为数据源创建响应体，不复制数组
+     * @param bytes 数据，发送完成前不能修改
+     * @param offset 起始偏移
+     * @param length 字节数
+     * @return 响应体
+     */
+    static ResponseBody ofBytes(byte[] bytes, int offset, int length) {
+        return new BytesResponseBody(bytes, offset, length);
+    }
+
+    /**
+     * 按顺序拼接多个响应体
+     * @param parts 各部分，任何一部分长度未知时整体长度也未知
+     * @return 响应体
+     */
+    static ResponseBody concat(List<ResponseBody> parts) {
+        return new CompositeResponseBody(parts);
+    }
+}
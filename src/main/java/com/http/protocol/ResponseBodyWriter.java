@@ -0,0 +1,63 @@
+package com.http.protocol;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 响应体发送状态
+ * 记录一个流式响应体发送到哪里，可以在非阻塞通道上多次调用write直到完成
+ */
+public final class ResponseBodyWriter {
+
+    private static final long SOURCE_RETRY_NANOS = 1_000_000; // 数据源没有数据时的重试间隔（1毫秒）
+
+    private final ResponseBody body;
+    private final WritableByteChannel target;
+    private final ChunkedChannel chunked;
+    private boolean bodyDone;
+
+    /**
+     * @param body 响应体
+     * @param channel Socket通道
+     * @param chunked 是否使用chunked编码
+     */
+    public ResponseBodyWriter(ResponseBody body, WritableByteChannel channel, boolean chunked) {
+        this.body = body;
+        this.chunked = chunked ? new ChunkedChannel(channel) : null;
+        this.target = chunked ? this.chunked : channel;
+    }
+
+    /**
+     * 尽可能写出剩余的响应体
+     * @return true如果响应体已全部写出
+     * @throws IOException 如果写出失败
+     */
+    public boolean write() throws IOException {
+        if (!bodyDone) {
+            bodyDone = body.writeTo(target);
+            if (!bodyDone) {
+                return false;
+            }
+        }
+        return chunked == null || chunked.finish();
+    }
+
+    /**
+     * 在阻塞通道上写出全部响应体
+     * 阻塞通道的每次写入都会推进，write返回false只能是数据源暂时没有数据，短暂等待后重试
+     * @throws IOException 如果写出失败
+     */
+    public void writeFully() throws IOException {
+        while (!write()) {
+            LockSupport.parkNanos(SOURCE_RETRY_NANOS);
+        }
+    }
+
+    /**
+     * 释放响应体数据源
+     */
+    public void close() {
+        body.close();
+    }
+}
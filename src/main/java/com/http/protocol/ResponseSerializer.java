@@ -0,0 +1,195 @@
+package com.http.protocol;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 响应头序列化器
+ * 把状态行和响应头直接写入一个可复用的ByteBuffer（每个连接一个），不经过String拼接和中间数组：
+ * 标准状态行和常用响应头名使用缓存的字节，Content-Length等数字直接按位写出，Date头取自ServerClock。
+ * 响应体不复制进来，连接层用聚集写（gathering write）把响应头和响应体一起发出。
+ * 非线程安全，返回的缓冲区在下一次encodeHead之前有效
+ */
+public final class ResponseSerializer {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] HEADER_SEPARATOR = {':', ' '};
+    private static final byte[] CONTENT_LENGTH = "Content-Length: ".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] TRANSFER_ENCODING_CHUNKED =
+            "Transfer-Encoding: chunked\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    // 按状态码索引的 "HTTP/1.1 200 OK\r\n"
+    private static final byte[][] STATUS_LINES = new byte[600][];
+    private static final String[] STATUS_MESSAGES = new String[600];
+    // 常用响应头名到 "Name: " 的字节
+    private static final Map<String, byte[]> HEADER_NAMES = new HashMap<>();
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            STATUS_LINES[status.getCode()] = ("HTTP/1.1 " + status.getCode() + " " + status.getMessage() + "\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            STATUS_MESSAGES[status.getCode()] = status.getMessage();
+        }
+        for (String name : new String[] {
+                "Accept-Ranges", "Allow", "Cache-Control", "Connection", "Content-Encoding", "Content-Length",
+                "Content-Range", "Content-Type", "Date", "ETag", "Last-Modified", "Location", "Retry-After",
+                "Server", "Set-Cookie", "Transfer-Encoding", "Vary"}) {
+            HEADER_NAMES.put(name, (name + ": ").getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private final boolean direct;
+    private final boolean dateHeader;
+    private ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+
+    /**
+     * 创建使用直接缓冲区、补充Date头的序列化器（供连接复用）
+     */
+    public ResponseSerializer() {
+        this(DEFAULT_CAPACITY, true, true);
+    }
+
+    /**
+     * @param capacity 初始容量，响应头放不下时自动扩容
+     * @param direct 是否使用直接缓冲区（写入通道时少一次复制）
+     * @param dateHeader 响应没有Date头时是否补充当前时间
+     */
+    public ResponseSerializer(int capacity, boolean direct, boolean dateHeader) {
+        this.direct = direct;
+        this.dateHeader = dateHeader;
+        this.buffer = allocate(capacity);
+    }
+
+    /**
+     * 编码状态行和响应头（以空行结尾）
+     * 未设置Content-Length时按响应体补充；流式响应体长度未知时声明chunked编码
+     * @param response HTTP响应
+     * @return 可读的缓冲区（position为0，limit为响应头长度），在下一次调用前有效
+     */
+    public ByteBuffer encodeHead(HttpResponse response) {
+        while (true) {
+            buffer.clear();
+            try {
+                writeHead(response);
+                buffer.flip();
+                return buffer;
+            } catch (BufferOverflowException e) {
+                // 响应头超出容量（很少见），扩容后重新编码
+                buffer = allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private void writeHead(HttpResponse response) {
+        writeStatusLine(response);
+
+        // 按行写出，同名头（例如多个Set-Cookie）各占一行
+        HttpHeaders headers = response.headerMap();
+        for (int i = 0; i < headers.size(); i++) {
+            writeHeader(headers.nameAt(i), headers.valueAt(i));
+        }
+        EncodedHeaders encoded = response.encodedHeaders();
+        if (encoded != null) {
+            // 预编码的响应头原样拼接
+            buffer.put(encoded.bytes());
+        }
+
+        if (dateHeader && !response.hasHeader("Date")) {
+            buffer.put(ServerClock.dateHeader());
+        }
+
+        // 确保有Content-Length头，或者声明chunked编码
+        if (!response.hasHeader("Content-Length")) {
+            if (response.isChunked()) {
+                if (!response.hasHeader("Transfer-Encoding")) {
+                    buffer.put(TRANSFER_ENCODING_CHUNKED);
+                }
+            } else {
+                long length = response.getContentLength();
+                if (length > 0 || response.hasBodyByStatus()) {
+                    buffer.put(CONTENT_LENGTH);
+                    writeDecimal(length);
+                    buffer.put(CRLF);
+                }
+            }
+        }
+
+        // 写入空行（分隔头和体）
+        buffer.put(CRLF);
+    }
+
+    private void writeStatusLine(HttpResponse response) {
+        int code = response.getStatusCode();
+        String message = response.getStatusMessage();
+        if (code >= 0 && code < STATUS_LINES.length && STATUS_LINES[code] != null
+                && "HTTP/1.1".equals(response.getVersion()) && STATUS_MESSAGES[code].equals(message)) {
+            buffer.put(STATUS_LINES[code]);
+            return;
+        }
+        writeString(response.getVersion());
+        buffer.put((byte) ' ');
+        writeDecimal(code);
+        buffer.put((byte) ' ');
+        writeString(message);
+        buffer.put(CRLF);
+    }
+
+    private void writeHeader(String name, String value) {
+        byte[] cachedName = HEADER_NAMES.get(name);
+        if (cachedName != null) {
+            buffer.put(cachedName);
+        } else {
+            writeString(name);
+            buffer.put(HEADER_SEPARATOR);
+        }
+        writeString(value);
+        buffer.put(CRLF);
+    }
+
+    /**
+     * 写出字符串，ASCII字符直接按字节写入，含非ASCII字符时按UTF-8编码
+     */
+    private void writeString(String value) {
+        if (value == null) {
+            writeString("null");
+            return;
+        }
+        int start = buffer.position();
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                buffer.position(start);
+                buffer.put(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    /**
+     * 按十进制写出整数，不创建字符串
+     */
+    private void writeDecimal(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        buffer.put(digits, pos, digits.length - pos);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+}
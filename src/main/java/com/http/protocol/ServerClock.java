@@ -0,0 +1,89 @@
+package com.http.protocol;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务器时钟
+ * 后台线程每秒更新一次当前时间和编码好的Date响应头，请求处理时只读取一个volatile引用：
+ * 不需要每个请求都格式化日期，时间戳也不需要每次都调用系统时钟。
+ * 精度为1秒，适合Date头、会话访问时间和访问日志；计算耗时应使用System.nanoTime
+ */
+public final class ServerClock {
+
+    private static final long TICK_MILLIS = 1000;
+
+    /**
+     * 某一秒的时间快照，不可变
+     */
+    private static final class Tick {
+        final long millis;
+        final String date;
+        final byte[] dateHeader;     // "Date: ...\r\n"
+        final ByteBuffer dateBuffer; // dateHeader的只读视图
+
+        Tick(long millis) {
+            this.millis = millis;
+            this.date = ConditionalRequests.formatDate(millis);
+            this.dateHeader = ("Date: " + date + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            this.dateBuffer = ByteBuffer.wrap(dateHeader).asReadOnlyBuffer();
+        }
+    }
+
+    private static volatile Tick current = new Tick(System.currentTimeMillis());
+
+    static {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ServerClock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 对齐到整秒，Date头在秒的边界附近切换
+        long delay = TICK_MILLIS - System.currentTimeMillis() % TICK_MILLIS;
+        ticker.scheduleAtFixedRate(ServerClock::tick, delay, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private ServerClock() {
+    }
+
+    static void tick() {
+        Tick previous = current;
+        // 系统时钟被往回调时保持不变，保证单调不减
+        long now = Math.max(previous.millis, System.currentTimeMillis());
+        if (now / 1000 != previous.millis / 1000) {
+            current = new Tick(now);
+        }
+    }
+
+    /**
+     * 获取当前时间（毫秒，精度约1秒，单调不减）
+     * @return 最近一次更新时的墙上时间
+     */
+    public static long nowMillis() {
+        return current.millis;
+    }
+
+    /**
+     * @return 当前时间的HTTP日期，例如 "Sat, 17 Oct 2026 08:00:00 GMT"
+     */
+    public static String httpDate() {
+        return current.date;
+    }
+
+    /**
+     * @return 编码好的Date响应头（含CRLF），调用方不能修改
+     */
+    static byte[] dateHeader() {
+        return current.dateHeader;
+    }
+
+    /**
+     * @return Date响应头的只读缓冲区，每次返回独立的位置
+     */
+    static ByteBuffer dateHeaderBuffer() {
+        return current.dateBuffer.duplicate();
+    }
+}
@@ -0,0 +1,78 @@
+package com.http.server;
+
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+import com.http.protocol.ServerClock;
+
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 访问日志过滤器
+ * 每个请求完成后输出一行：时间、请求行、状态码、响应体长度和处理耗时，例如
+ * {@code [Sat, 17 Oct 2026 08:00:00 GMT] "GET /index.html HTTP/1.1" 200 1024 3ms}。
+ * 时间取自ServerClock，不需要每个请求格式化日期；应作为第一个全局过滤器添加，统计包含其他过滤器的耗时
+ */
+public class AccessLogFilter implements RequestFilter {
+
+    private final PrintStream output;
+
+    public AccessLogFilter() {
+        this(System.out);
+    }
+
+    /**
+     * @param output 日志输出
+     */
+    public AccessLogFilter(PrintStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public HttpResponse filter(HttpRequest request, RequestHandler next) {
+        long start = System.nanoTime();
+        HttpResponse response = null;
+        try {
+            response = next.handle(request);
+            return response;
+        } finally {
+            log(request, response, start);
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> filterAsync(HttpRequest request, AsyncRequestHandler next) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse> future;
+        try {
+            future = next.handleAsync(request);
+        } catch (RuntimeException | Error e) {
+            // 异步处理器直接抛出异常（没有返回Future），同样记为500
+            log(request, null, start);
+            throw e;
+        }
+        // 异步处理器完成时记录，不等待
+        return future.whenComplete((response, error) -> log(request, response, start));
+    }
+
+    private void log(HttpRequest request, HttpResponse response, long start) {
+        StringBuilder line = new StringBuilder(128);
+        line.append('[').append(ServerClock.httpDate()).append("] \"")
+                .append(request.getMethod()).append(' ').append(request.getUri()).append(' ')
+                .append(request.getVersion()).append("\" ");
+        if (response == null) {
+            // 处理器抛出异常，连接层会返回500
+            line.append("500 -");
+        } else {
+            line.append(response.getStatusCode()).append(' ');
+            long length = response.getContentLength();
+            if (length >= 0) {
+                line.append(length);
+            } else {
+                line.append('-');
+            }
+        }
+        line.append(' ').append((System.nanoTime() - start) / 1_000_000).append("ms");
+        output.println(line);
+    }
+}
@@ -0,0 +1,38 @@
+package com.http.server;
+
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步请求处理器接口
+ * 处理器可以立即返回尚未完成的Future，把耗时操作交给其他线程或异步I/O，不占用请求工作线程；
+ * NIO引擎在响应完成前挂起连接，同一连接上的后续请求仍按顺序响应
+ */
+@FunctionalInterface
+public interface AsyncRequestHandler {
+
+    /**
+     * 处理HTTP请求
+     * @param request HTTP请求对象
+     * @return 完成时给出HTTP响应的Future，异常完成时服务器返回500
+     */
+    CompletableFuture<HttpResponse> handleAsync(HttpRequest request);
+
+    /**
+     * 把同步处理器适配为异步处理器（在调用线程中处理，返回已完成的Future）
+     * 处理器抛出的非受检异常通过异常完成的Future传递，外层过滤器在Future上追加的处理（日志等）同样能看到
+     * @param handler 同步处理器
+     * @return 异步处理器
+     */
+    static AsyncRequestHandler of(RequestHandler handler) {
+        return request -> {
+            try {
+                return CompletableFuture.completedFuture(handler.handle(request));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        };
+    }
+}
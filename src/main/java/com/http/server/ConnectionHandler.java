@@ -1,28 +1,112 @@
 package com.http.server;
 
+import com.http.protocol.CannedResponse;
 import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpRequestReader;
 import com.http.protocol.HttpResponse;
 import com.http.protocol.HttpStatus;
+import com.http.protocol.RequestLimits;
+import com.http.protocol.RequestRejectedException;
+import com.http.protocol.ResponseBodyWriter;
+import com.http.protocol.ResponseSerializer;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * 连接处理器
- * 处理单个客户端连接，支持HTTP/1.1长连接
+ * 处理单个客户端连接，支持HTTP/1.1长连接和流水线（pipelining）
+ * 阻塞模型下连接线程会等待异步处理器完成（使用虚拟线程时只是挂起，不占用平台线程）
  */
-public class ConnectionHandler implements Runnable {
+public class ConnectionHandler implements Runnable, ConnectionLimiter.Connection {
     
     private final Socket socket;
     private final RequestRouter router;
+    private final ConnectionLimiter limiter; // 可以为null（不限制连接数）
+    private final RequestLimits requestLimits;
     private static final int SOCKET_TIMEOUT = 30000; // 30秒超时
+    private static final CannedResponse INTERNAL_SERVER_ERROR =
+            CannedResponse.text(HttpStatus.INTERNAL_SERVER_ERROR, "500 Internal Server Error");
 
     public ConnectionHandler(Socket socket, RequestRouter router) {
+        this(socket, router, null, RequestLimits.DEFAULT);
+    }
+
+    /**
+     * @param socket 客户端Socket
+     * @param router 请求路由器
+     * @param limiter 连接数限制，连接结束时释放名额；等待下一个请求期间可能被它关闭
+     * @param requestLimits 请求大小限制
+     */
+    ConnectionHandler(Socket socket, RequestRouter router, ConnectionLimiter limiter, RequestLimits requestLimits) {
         this.socket = socket;
         this.router = router;
+        this.limiter = limiter;
+        this.requestLimits = requestLimits;
+    }
+
+    /**
+     * 关闭等待下一个请求的长连接（由ConnectionLimiter在其他线程中调用），
+     * 阻塞在读取上的连接线程随即退出循环
+     */
+    @Override
+    public void closeIdle() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 忽略关闭异常
+        }
+    }
+
+    /**
+     * 发送响应：响应头和内存中的响应体用一次聚集写发出，不需要拼接成一个数组
+     */
+    private static void writeResponse(WritableByteChannel channel, ResponseSerializer serializer,
+                                      HttpResponse response) throws IOException {
+        ByteBuffer head = serializer.encodeHead(response);
+        if (response.isBodyOmitted()) {
+            writeFully(channel, head);
+            if (response.isStreaming()) {
+                response.getStreamingBody().close();
+            }
+        } else if (response.isStreaming()) {
+            writeFully(channel, head);
+            ResponseBodyWriter writer = new ResponseBodyWriter(response.getStreamingBody(), channel, response.isChunked());
+            try {
+                writer.writeFully();
+            } finally {
+                writer.close();
+            }
+        } else if (response.getBody() != null && response.getBody().length > 0) {
+            writeFully(channel, head, ByteBuffer.wrap(response.getBody()));
+        } else {
+            writeFully(channel, head);
+        }
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer... buffers) throws IOException {
+        if (channel instanceof GatheringByteChannel) {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= ((GatheringByteChannel) channel).write(buffers);
+            }
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
     }
 
     @Override
@@ -32,33 +116,65 @@ public class ConnectionHandler implements Runnable {
             socket.setSoTimeout(SOCKET_TIMEOUT);
             
             InputStream input = socket.getInputStream();
-            OutputStream output = socket.getOutputStream();
+            OutputStream output = socket.getOutputStream(); // 只用于发送错误响应
+            // 响应通过通道发送：响应头编码到连接复用的直接缓冲区，与响应体一起聚集写出
+            WritableByteChannel channel = socket.getChannel() != null
+                    ? socket.getChannel() : Channels.newChannel(output);
+            ResponseSerializer serializer = new ResponseSerializer();
+            
+            // 连接级读取器：跨请求保留已读取但尚未解析的字节
+            // 请求按顺序逐个处理，上一个响应发出后才读取下一个请求，因此整个连接复用同一对请求/响应对象
+            HttpRequestReader reader = new HttpRequestReader(input);
+            reader.setReuseRequests(true);
+            // 超出大小限制的请求立即拒绝；超过流式阈值的请求体不读入内存，处理器通过getBodyStream从连接读取
+            reader.setLimits(requestLimits);
             
             // 长连接循环：持续读取请求直到连接关闭
             boolean keepAlive = true;
+            boolean served = false; // 新连接的第一个请求可能正在路上，不算空闲
             
             while (keepAlive && !socket.isClosed()) {
                 try {
-                    // 解析HTTP请求
-                    HttpRequest request = HttpRequest.parse(input);
+                    // 优先处理缓冲区中已到达的流水线请求
+                    HttpRequest request = reader.pollBufferedRequest();
+                    if (request == null) {
+                        if (limiter != null && served && !reader.hasBufferedData()) {
+                            // 等待下一个请求期间，连接数达到上限时可能被关闭；
+                            // 第一个字节到达即离开空闲状态，不会在请求读到一半时被关闭
+                            limiter.markIdle(this);
+                            boolean arrived = reader.awaitData();
+                            if (!limiter.markBusy(this) || !arrived) {
+                                // 已被选中关闭（名额已让给新连接）或客户端关闭了连接
+                                break;
+                            }
+                        }
+                        request = reader.readRequest();
+                        if (request == null) {
+                            // 客户端在两个请求之间关闭了连接
+                            break;
+                        }
+                    }
+                    served = true;
                     
-                    // 路由请求到处理器
-                    HttpResponse response = router.route(request);
+                    // 路由请求到处理器，异步处理器尚未完成时在这里等待
+                    HttpResponse response = RequestRouter.await(router.routeAsync(request));
                     
                     // 检查是否保持连接
                     String connectionHeader = request.getHeader("Connection");
-                    if (connectionHeader != null && connectionHeader.equalsIgnoreCase("close")) {
-                        keepAlive = false;
-                        response.setHeader("Connection", "close");
+                    keepAlive = connectionHeader == null || !connectionHeader.equalsIgnoreCase("close");
+                    
+                    // 按请求顺序写出响应；流式响应体直接写入Socket通道（文件使用transferTo零拷贝）
+                    if (response instanceof CannedResponse) {
+                        // 预编码的响应直接写出共享的字节，只插入Connection头
+                        CannedResponse canned = (CannedResponse) response;
+                        keepAlive = keepAlive && !canned.closesConnection();
+                        writeFully(channel, canned.toBuffers(keepAlive));
                     } else {
                         // HTTP/1.1默认保持连接
-                        response.setHeader("Connection", "keep-alive");
+                        response.setHeader("Connection", keepAlive ? "keep-alive" : "close");
+                        writeResponse(channel, serializer, response);
                     }
                     
-                    // 发送响应
-                    output.write(response.toBytes());
-                    output.flush();
-                    
                     // 如果不保持连接，退出循环
                     if (!keepAlive) {
                         break;
@@ -68,6 +184,15 @@ public class ConnectionHandler implements Runnable {
                     // 超时，关闭连接
                     System.out.println("Connection timeout, closing connection");
                     break;
+                } catch (RequestRejectedException e) {
+                    // 请求超出大小限制或使用不支持的传输编码，返回413/414/431/501后关闭连接
+                    try {
+                        e.toResponse().writeTo(output, false);
+                        output.flush();
+                    } catch (IOException ignored) {
+                        // 无法发送错误响应，忽略
+                    }
+                    break;
                 } catch (IOException e) {
                     // 连接已关闭或读取错误
                     if (!socket.isClosed()) {
@@ -90,11 +215,7 @@ public class ConnectionHandler implements Runnable {
                     e.printStackTrace();
                     
                     try {
-                        HttpResponse errorResponse = new HttpResponse(HttpStatus.INTERNAL_SERVER_ERROR);
-                        errorResponse.setBody("500 Internal Server Error");
-                        errorResponse.setHeader("Content-Type", "text/plain");
-                        errorResponse.setHeader("Connection", "close");
-                        output.write(errorResponse.toBytes());
+                        INTERNAL_SERVER_ERROR.writeTo(output, false);
                         output.flush();
                     } catch (IOException ignored) {
                         // 无法发送错误响应，忽略
@@ -106,6 +227,9 @@ public class ConnectionHandler implements Runnable {
         } catch (IOException e) {
             System.err.println("Error setting up connection: " + e.getMessage());
         } finally {
+            if (limiter != null) {
+                limiter.release(this);
+            }
             // 关闭Socket连接
             try {
                 if (!socket.isClosed()) {
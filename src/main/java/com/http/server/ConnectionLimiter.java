@@ -0,0 +1,164 @@
+package com.http.server;
+
+import com.http.protocol.CannedResponse;
+import com.http.protocol.HttpResponse;
+import com.http.protocol.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * 连接数限制
+ * 统计已打开的连接数，并按最近最少使用（LRU）顺序记录空闲的长连接（正在等待下一个请求）。
+ * 达到上限时先关闭最久空闲的长连接给新连接让位，没有空闲连接可关闭时拒绝新连接，
+ * 直接发送预编码的503响应（带Retry-After）后关闭，而不是让它排队等到客户端超时。
+ * 被选中的空闲连接一定会关闭：它在此之后收到数据时markBusy返回false，由连接自己关闭，
+ * 不会转而处理请求。被选中的连接在其线程中关闭并释放名额之前，连接数可能超过上限，
+ * 超出的数量不超过正在关闭的连接数
+ */
+class ConnectionLimiter {
+
+    /**
+     * 可被限制器关闭的连接
+     */
+    interface Connection {
+        /**
+         * 关闭被选中的空闲连接，可能在其他线程中调用；名额已经让给新连接，必须关闭，
+         * 关闭后调用release
+         */
+        void closeIdle();
+    }
+
+    static final int RETRY_AFTER_SECONDS = 1;
+    static final CannedResponse SERVICE_UNAVAILABLE;
+
+    static {
+        HttpResponse response = new HttpResponse(HttpStatus.SERVICE_UNAVAILABLE);
+        response.setHeader("Content-Type", "text/plain");
+        response.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+        response.setHeader("Connection", "close");
+        response.setBody("503 Service Unavailable");
+        SERVICE_UNAVAILABLE = CannedResponse.of(response);
+    }
+
+    private final int maxConnections;
+    private final LinkedHashSet<Connection> idle = new LinkedHashSet<>(); // 按变为空闲的先后排列
+    private int open;
+
+    /**
+     * @param maxConnections 最大连接数
+     */
+    ConnectionLimiter(int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Max connections must be positive: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * 为新连接申请名额，已满时关闭最久空闲的连接让位
+     * @return true如果可以接受新连接，之后必须调用release
+     */
+    synchronized boolean tryAcquire() {
+        if (open >= maxConnections && !evictIdle()) {
+            return false;
+        }
+        open++;
+        return true;
+    }
+
+    /**
+     * 连接关闭时释放名额
+     */
+    synchronized void release(Connection connection) {
+        idle.remove(connection);
+        open--;
+    }
+
+    /**
+     * 连接进入空闲状态（响应已发出、正在等待下一个请求）
+     */
+    synchronized void markIdle(Connection connection) {
+        idle.add(connection);
+    }
+
+    /**
+     * 空闲连接收到数据，开始处理新请求
+     * @return false如果连接已被选中关闭（名额已经让给新连接），调用方不能再处理请求，必须关闭连接
+     */
+    synchronized boolean markBusy(Connection connection) {
+        return idle.remove(connection);
+    }
+
+    /**
+     * 关闭最久空闲的一个连接
+     * @return true如果有空闲连接被选中关闭
+     */
+    synchronized boolean evictIdle() {
+        Iterator<Connection> iterator = idle.iterator();
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        Connection eldest = iterator.next();
+        iterator.remove();
+        eldest.closeIdle();
+        return true;
+    }
+
+    synchronized int openConnections() {
+        return open;
+    }
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * 向刚接受的阻塞Socket发送503并关闭
+     */
+    static void reject(Socket socket) {
+        try {
+            SERVICE_UNAVAILABLE.writeTo(socket.getOutputStream(), false);
+            socket.shutdownOutput();
+            // 丢弃已到达的请求字节，避免带着未读数据关闭时发送RST冲掉503
+            InputStream input = socket.getInputStream();
+            input.skip(input.available());
+        } catch (IOException ignored) {
+            // 客户端已断开，忽略
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 忽略关闭异常
+            }
+        }
+    }
+
+    /**
+     * 向刚接受的非阻塞通道发送503并关闭（报文很小，通常一次写入发送缓冲区）
+     */
+    static void reject(SocketChannel channel) {
+        try {
+            channel.configureBlocking(false);
+            channel.write(SERVICE_UNAVAILABLE.toBuffers(false));
+            channel.shutdownOutput();
+            ByteBuffer discard = ByteBuffer.allocate(1024);
+            while (channel.read(discard) > 0) {
+                discard.clear();
+            }
+        } catch (IOException ignored) {
+            // 客户端已断开，忽略
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // 忽略关闭异常
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.http.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作线程执行模式
+ * 决定ConnectionHandler和请求处理任务运行在什么线程上
+ */
+public enum ExecutorMode {
+    // 固定大小的平台线程池
+    POOL,
+    // 每个任务一个虚拟线程（需要Java 21+，否则回退到线程池）
+    VIRTUAL;
+
+    /**
+     * 检查当前运行时是否支持虚拟线程
+     * @return true如果支持虚拟线程
+     */
+    public static boolean isVirtualThreadSupported() {
+        return findVirtualThreadFactory() != null;
+    }
+
+    /**
+     * 按当前模式创建工作线程执行器
+     * 项目以Java 17编译，虚拟线程执行器通过反射获取
+     * @param threadPoolSize 线程池大小（POOL模式或回退时使用）
+     * @return 执行器
+     */
+    ExecutorService createExecutor(int threadPoolSize) {
+        return createExecutor(threadPoolSize, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按当前模式创建工作线程执行器，线程池的等待队列有界
+     * 队列已满时execute抛出RejectedExecutionException，由调用方快速拒绝（返回503）而不是无限排队；
+     * 虚拟线程没有等待队列，只受连接数限制
+     * @param threadPoolSize 线程池大小（POOL模式或回退时使用）
+     * @param queueCapacity 等待执行的任务数上限
+     * @return 执行器
+     */
+    ExecutorService createExecutor(int threadPoolSize, int queueCapacity) {
+        if (this == VIRTUAL) {
+            Method factory = findVirtualThreadFactory();
+            if (factory != null) {
+                try {
+                    return (ExecutorService) factory.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    System.err.println("Failed to create virtual thread executor: " + e.getMessage());
+                }
+            }
+            System.err.println("Virtual threads are not supported by this runtime (Java 21+ required), "
+                    + "falling back to a thread pool of " + threadPoolSize);
+        }
+        return new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity));
+    }
+
+    private static Method findVirtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
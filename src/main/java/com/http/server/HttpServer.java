@@ -1,27 +1,44 @@
 package com.http.server;
 
+import com.http.protocol.RequestLimits;
+
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
  * HTTP服务器
- * 基于Java Socket API实现的HTTP/1.1服务器
+ * 基于Java Socket API实现的HTTP/1.1服务器，支持阻塞和NIO两种I/O引擎
  */
 public class HttpServer {
     
     private final int port;
     private final RequestRouter router;
-    private final ExecutorService threadPool;
+    private final int threadPoolSize;
+    private ExecutorService threadPool;
+    private final ServerEngine engine;
+    private final ExecutorMode executorMode;
+    private final int eventLoopCount;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int maxPendingTasks = DEFAULT_MAX_PENDING_TASKS;
+    private ConnectionLimiter limiter;
+    private RequestLimits requestLimits = RequestLimits.DEFAULT;
     private ServerSocket serverSocket;
+    private NioServer nioServer;
     private volatile boolean running;
     private Thread acceptThread;
     
     private static final int DEFAULT_THREAD_POOL_SIZE = 20;
+    private static final int DEFAULT_EVENT_LOOP_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_MAX_CONNECTIONS = 10000;
+    private static final int DEFAULT_MAX_PENDING_TASKS = 1000;
 
     /**
      * 创建HTTP服务器
@@ -39,22 +56,156 @@ public class HttpServer {
      * @param threadPoolSize 线程池大小
      */
     public HttpServer(int port, RequestRouter router, int threadPoolSize) {
+        this(port, router, threadPoolSize, ServerEngine.BLOCKING);
+    }
+
+    /**
+     * 创建HTTP服务器
+     * @param port 监听端口
+     * @param router 请求路由器
+     * @param engine I/O引擎类型
+     */
+    public HttpServer(int port, RequestRouter router, ServerEngine engine) {
+        this(port, router, DEFAULT_THREAD_POOL_SIZE, engine);
+    }
+
+    /**
+     * 创建HTTP服务器
+     * @param port 监听端口
+     * @param router 请求路由器
+     * @param threadPoolSize 线程池大小
+     * @param engine I/O引擎类型
+     */
+    public HttpServer(int port, RequestRouter router, int threadPoolSize, ServerEngine engine) {
+        this(port, router, threadPoolSize, engine, DEFAULT_EVENT_LOOP_COUNT);
+    }
+
+    /**
+     * 创建HTTP服务器
+     * @param port 监听端口
+     * @param router 请求路由器
+     * @param threadPoolSize 线程池大小（处理完整请求的工作线程数）
+     * @param engine I/O引擎类型
+     * @param eventLoopCount NIO事件循环线程数（仅NIO引擎使用）
+     */
+    public HttpServer(int port, RequestRouter router, int threadPoolSize, ServerEngine engine, int eventLoopCount) {
+        this(port, router, threadPoolSize, engine, eventLoopCount, ExecutorMode.POOL);
+    }
+
+    /**
+     * 创建HTTP服务器
+     * @param port 监听端口
+     * @param router 请求路由器
+     * @param threadPoolSize 线程池大小（VIRTUAL模式下仅在运行时不支持虚拟线程时使用）
+     * @param executorMode 工作线程执行模式
+     */
+    public HttpServer(int port, RequestRouter router, int threadPoolSize, ExecutorMode executorMode) {
+        this(port, router, threadPoolSize, ServerEngine.BLOCKING, DEFAULT_EVENT_LOOP_COUNT, executorMode);
+    }
+
+    /**
+     * 创建HTTP服务器
+     * @param port 监听端口
+     * @param router 请求路由器
+     * @param threadPoolSize 线程池大小（VIRTUAL模式下仅在运行时不支持虚拟线程时使用）
+     * @param engine I/O引擎类型
+     * @param eventLoopCount NIO事件循环线程数（仅NIO引擎使用）
+     * @param executorMode 工作线程执行模式
+     */
+    public HttpServer(int port, RequestRouter router, int threadPoolSize, ServerEngine engine,
+                      int eventLoopCount, ExecutorMode executorMode) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Server engine cannot be null");
+        }
+        if (executorMode == null) {
+            throw new IllegalArgumentException("Executor mode cannot be null");
+        }
         this.port = port;
         this.router = router;
-        this.threadPool = Executors.newFixedThreadPool(threadPoolSize);
+        this.threadPoolSize = threadPoolSize;
+        this.engine = engine;
+        this.executorMode = executorMode;
+        this.eventLoopCount = eventLoopCount;
         this.running = false;
     }
 
+    /**
+     * 设置最大连接数（启动前调用）
+     * 达到上限时关闭最久空闲的长连接让位，没有空闲连接时新连接直接收到503
+     * @param maxConnections 最大连接数
+     */
+    public void setMaxConnections(int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Max connections must be positive: " + maxConnections);
+        }
+        checkNotRunning();
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * 设置等待工作线程的任务数上限（启动前调用，仅POOL模式）
+     * 阻塞引擎中每个连接是一个任务，NIO引擎中每个完整请求是一个任务；队列已满时返回503
+     * @param maxPendingTasks 等待队列容量
+     */
+    public void setMaxPendingTasks(int maxPendingTasks) {
+        if (maxPendingTasks <= 0) {
+            throw new IllegalArgumentException("Max pending tasks must be positive: " + maxPendingTasks);
+        }
+        checkNotRunning();
+        this.maxPendingTasks = maxPendingTasks;
+    }
+
+    /**
+     * 设置请求大小限制（启动前调用），超限的请求立即收到413、414或431
+     * @param requestLimits 请求大小限制
+     */
+    public void setRequestLimits(RequestLimits requestLimits) {
+        if (requestLimits == null) {
+            throw new IllegalArgumentException("Request limits cannot be null");
+        }
+        checkNotRunning();
+        this.requestLimits = requestLimits;
+    }
+
+    private void checkNotRunning() {
+        if (running) {
+            throw new IllegalStateException("Server is already running");
+        }
+    }
+
     /**
      * 启动服务器
      * @throws IOException 如果无法绑定端口
      */
     public void start() throws IOException {
-        if (running) {
-            throw new IllegalStateException("Server is already running");
+        checkNotRunning();
+        
+        threadPool = executorMode.createExecutor(threadPoolSize, maxPendingTasks);
+        limiter = new ConnectionLimiter(maxConnections);
+        
+        if (engine == ServerEngine.NIO) {
+            nioServer = new NioServer(port, router, threadPool, eventLoopCount, limiter, requestLimits);
+            try {
+                nioServer.start();
+            } catch (IOException e) {
+                threadPool.shutdown();
+                throw e;
+            }
+            running = true;
+            System.out.println("HTTP Server started on port " + port + " (NIO, " + eventLoopCount + " event loops)");
+            return;
         }
         
-        serverSocket = new ServerSocket(port);
+        // 通过ServerSocketChannel创建监听Socket，接受的Socket因此带有SocketChannel，
+        // 文件响应体可以用FileChannel.transferTo零拷贝发送
+        serverSocket = ServerSocketChannel.open().socket();
+        try {
+            serverSocket.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            serverSocket.close();
+            threadPool.shutdown();
+            throw e;
+        }
         running = true;
         
         System.out.println("HTTP Server started on port " + port);
@@ -67,9 +218,28 @@ public class HttpServer {
                     Socket clientSocket = serverSocket.accept();
                     System.out.println("Accepted connection from " + clientSocket.getRemoteSocketAddress());
                     
+                    if (!limiter.tryAcquire()) {
+                        // 连接数已满且没有空闲连接可以关闭，立即返回503
+                        ConnectionLimiter.reject(clientSocket);
+                        continue;
+                    }
+                    
                     // 为每个连接创建ConnectionHandler任务并提交到线程池
-                    ConnectionHandler handler = new ConnectionHandler(clientSocket, router);
-                    threadPool.execute(handler);
+                    ConnectionHandler handler = new ConnectionHandler(clientSocket, router, limiter, requestLimits);
+                    try {
+                        threadPool.execute(handler);
+                    } catch (RejectedExecutionException e) {
+                        // 等待队列已满（或正在关闭），不再排队
+                        limiter.release(handler);
+                        ConnectionLimiter.reject(clientSocket);
+                        continue;
+                    }
+                    
+                    // 有连接在排队等待工作线程时，关闭最久空闲的长连接腾出线程
+                    if (threadPool instanceof ThreadPoolExecutor
+                            && !((ThreadPoolExecutor) threadPool).getQueue().isEmpty()) {
+                        limiter.evictIdle();
+                    }
                     
                 } catch (SocketException e) {
                     // ServerSocket关闭时会抛出SocketException
@@ -107,6 +277,11 @@ public class HttpServer {
             System.err.println("Error closing server socket: " + e.getMessage());
         }
         
+        // 停止NIO事件循环
+        if (nioServer != null) {
+            nioServer.stop();
+        }
+        
         // 等待接受线程结束
         if (acceptThread != null) {
             try {
@@ -148,4 +323,20 @@ public class HttpServer {
     public int getPort() {
         return port;
     }
+
+    /**
+     * 获取服务器使用的I/O引擎
+     * @return 引擎类型
+     */
+    public ServerEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * 获取服务器的工作线程执行模式
+     * @return 执行模式
+     */
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
 }
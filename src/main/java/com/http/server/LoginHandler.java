@@ -10,7 +10,7 @@ import java.util.Map;
 /**
  * LoginHandler处理用户登录请求
  * 端点: /api/login
- * 方法: POST
+ * 方法: POST（由RequestRouter按方法分派，这里不再检查）
  * 请求体格式: {"username":"...", "password":"..."}
  */
 public class LoginHandler implements RequestHandler {
@@ -23,16 +23,11 @@ public class LoginHandler implements RequestHandler {
 
     @Override
     public HttpResponse handle(HttpRequest request) {
-        // 验证请求方法为 POST
-        if (!"POST".equalsIgnoreCase(request.getMethod())) {
-            return createErrorResponse(HttpStatus.METHOD_NOT_ALLOWED, "Only POST method is allowed");
-        }
-
         try {
             // 解析请求 body 的 JSON
             String bodyString = request.getBodyAsString();
             if (bodyString == null || bodyString.trim().isEmpty()) {
-                return createErrorResponse(HttpStatus.BAD_REQUEST, "Request body is required");
+                return createErrorResponse(request, HttpStatus.BAD_REQUEST, "Request body is required");
             }
 
             Map<String, String> jsonData = JsonParser.parseObject(bodyString);
@@ -43,10 +38,10 @@ public class LoginHandler implements RequestHandler {
 
             // 验证username和password不为空
             if (username == null || username.trim().isEmpty()) {
-                return createErrorResponse(HttpStatus.BAD_REQUEST, "Username is required");
+                return createErrorResponse(request, HttpStatus.BAD_REQUEST, "Username is required");
             }
             if (password == null || password.trim().isEmpty()) {
-                return createErrorResponse(HttpStatus.BAD_REQUEST, "Password is required");
+                return createErrorResponse(request, HttpStatus.BAD_REQUEST, "Password is required");
             }
 
             // 调用UserRegistry.login
@@ -54,26 +49,26 @@ public class LoginHandler implements RequestHandler {
 
             if (token != null) {
                 // 返回成功响应（200）带token
-                return createSuccessResponseWithToken("Login successful", token);
+                return createSuccessResponseWithToken(request, "Login successful", token);
             } else {
                 // 返回失败响应（401）- 用户名不存在或密码错误
-                return createErrorResponse(HttpStatus.UNAUTHORIZED, "Invalid username or password");
+                return createErrorResponse(request, HttpStatus.UNAUTHORIZED, "Invalid username or password");
             }
 
         } catch (IllegalArgumentException e) {
             // JSON解析错误
-            return createErrorResponse(HttpStatus.BAD_REQUEST, "Invalid JSON format: " + e.getMessage());
+            return createErrorResponse(request, HttpStatus.BAD_REQUEST, "Invalid JSON format: " + e.getMessage());
         } catch (Exception e) {
             // 其他未预期的错误
-            return createErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+            return createErrorResponse(request, HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
         }
     }
 
     /**
-     * 创建成功响应（带token）
+     * 创建成功响应（带token），填充请求配对的响应对象（连接内复用，不另外分配）
      */
-    private HttpResponse createSuccessResponseWithToken(String message, String token) {
-        HttpResponse response = new HttpResponse(HttpStatus.OK);
+    private HttpResponse createSuccessResponseWithToken(HttpRequest request, String message, String token) {
+        HttpResponse response = request.getResponse();
         String jsonBody = JsonParser.buildResponseWithToken(true, message, token);
         response.setBody(jsonBody);
         response.setHeader("Content-Type", "application/json");
@@ -84,8 +79,9 @@ public class LoginHandler implements RequestHandler {
     /**
      * 创建错误响应
      */
-    private HttpResponse createErrorResponse(HttpStatus status, String message) {
-        HttpResponse response = new HttpResponse(status);
+    private HttpResponse createErrorResponse(HttpRequest request, HttpStatus status, String message) {
+        HttpResponse response = request.getResponse();
+        response.setStatus(status);
         String jsonBody = JsonParser.buildResponse(false, message);
         response.setBody(jsonBody);
         response.setHeader("Content-Type", "application/json");
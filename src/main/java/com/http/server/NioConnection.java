@@ -0,0 +1,410 @@
+package com.http.server;
+
+import com.http.protocol.CannedResponse;
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpRequestParser;
+import com.http.protocol.HttpResponse;
+import com.http.protocol.HttpStatus;
+import com.http.protocol.RequestLimits;
+import com.http.protocol.RequestRejectedException;
+import com.http.protocol.ResponseBodyWriter;
+import com.http.protocol.ResponseSerializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * NIO连接
+ * 在事件循环线程中增量读取请求字节，只有收到完整请求后才提交给工作线程路由处理。
+ * 除handleRequest和respond外，所有方法都只在所属事件循环线程中调用
+ */
+class NioConnection implements ConnectionLimiter.Connection {
+
+    private static final int SOCKET_TIMEOUT = 30000; // 30秒超时
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final CannedResponse INTERNAL_SERVER_ERROR =
+            CannedResponse.text(HttpStatus.INTERNAL_SERVER_ERROR, "500 Internal Server Error");
+
+    private final NioEventLoop loop;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final RequestRouter router;
+    private final ExecutorService workers;
+    private final ConnectionLimiter limiter;
+    private final Queue<ByteBuffer> writeQueue;
+    private ByteBuffer[] gatherBuffers = new ByteBuffer[4]; // 聚集写使用的数组，按需扩大
+    private final ResponseSerializer serializer = new ResponseSerializer(); // 响应头编码到连接复用的直接缓冲区
+    private ResponseBodyWriter bodyWriter; // 正在发送的流式响应体，在writeQueue写完之后发送
+    private ResponseBodyPump bodyPump;     // 在工作线程中读取的流式响应体，读出的数据进入writeQueue
+    private boolean pumping;               // 是否有工作线程正在为bodyPump读取数据
+    private final HttpRequestParser parser;
+    private ByteBuffer readBuffer;
+    private boolean processing;      // 是否有请求正在工作线程中处理
+    private boolean closeAfterWrite; // 写完响应后关闭连接
+    private boolean idle;            // 是否已登记为空闲（等待下一个请求，可以被ConnectionLimiter关闭）
+    private boolean served;          // 是否已经取出过请求，新连接在第一个请求之前不算空闲
+    private boolean closed;
+    private long lastActivity;
+
+    NioConnection(NioEventLoop loop, SocketChannel channel, SelectionKey key,
+                  RequestRouter router, ExecutorService workers, ConnectionLimiter limiter,
+                  RequestLimits requestLimits) {
+        this.loop = loop;
+        this.channel = channel;
+        this.key = key;
+        this.router = router;
+        this.workers = workers;
+        this.limiter = limiter;
+        this.writeQueue = new ArrayDeque<>();
+        this.parser = new HttpRequestParser();
+        // 上一个响应进入写队列（processing复位）之后才解析下一个请求，可以复用同一对请求/响应对象
+        this.parser.setReuseRequests(true);
+        // 事件循环不能阻塞读取请求体，请求体总是完整读入内存，由大小限制保护
+        this.parser.setLimits(requestLimits);
+        this.readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * 通道可读：读取数据并尝试取出一个完整请求
+     */
+    void onReadable() {
+        try {
+            if (!readBuffer.hasRemaining()) {
+                // 缓冲区已满但请求头仍不完整，扩容
+                ByteBuffer larger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            }
+
+            int read = channel.read(readBuffer);
+            if (read == -1) {
+                // 客户端关闭连接
+                close();
+                return;
+            }
+            lastActivity = System.currentTimeMillis();
+            // 第一个字节到达即离开空闲状态，已被ConnectionLimiter选中时在这里关闭，不处理请求
+            setIdle(false);
+            if (closed) {
+                return;
+            }
+            processNextRequest();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * 通道可写：继续发送待写数据
+     */
+    void onWritable() {
+        flush();
+    }
+
+    /**
+     * 如果缓冲区中已有完整请求且当前没有请求在处理，则提交给工作线程
+     */
+    private void processNextRequest() {
+        if (processing || closeAfterWrite) {
+            return;
+        }
+
+        HttpRequest request;
+        // 在事件循环线程中增量解析，请求体按Content-Length直接复制出缓冲区
+        readBuffer.flip();
+        try {
+            request = parser.parse(readBuffer);
+        } catch (RequestRejectedException e) {
+            // 超出大小限制或不支持的传输编码，不再读取剩余数据
+            readBuffer.clear();
+            enqueueResponse(e.toResponse(), false);
+            return;
+        } catch (IOException e) {
+            readBuffer.clear();
+            enqueueResponse(createErrorResponse(HttpStatus.BAD_REQUEST, "400 Bad Request: " + e.getMessage()), false);
+            return;
+        }
+        readBuffer.compact();
+
+        if (request == null) {
+            // 请求尚不完整，继续等待数据
+            updateInterest();
+            return;
+        }
+
+        processing = true;
+        served = true;
+        updateInterest();
+        try {
+            workers.execute(() -> handleRequest(request));
+        } catch (RejectedExecutionException e) {
+            if (workers.isShutdown()) {
+                // 服务器正在关闭
+                close();
+                return;
+            }
+            // 工作线程的等待队列已满，立即返回503并关闭连接，不再排队
+            processing = false;
+            enqueueResponse(ConnectionLimiter.SERVICE_UNAVAILABLE, false);
+        }
+    }
+
+    /**
+     * 在工作线程中路由请求，响应完成后交回事件循环线程发送
+     * 异步处理器的响应未完成时工作线程直接返回，连接保持挂起（不读取后续请求），响应按请求顺序发送
+     */
+    private void handleRequest(HttpRequest request) {
+        router.routeAsync(request).whenComplete((response, error) -> respond(request, response, error));
+    }
+
+    /**
+     * 在完成响应的线程中调用（工作线程或异步处理器的线程）
+     */
+    private void respond(HttpRequest request, HttpResponse response, Throwable error) {
+        boolean keepAlive = true;
+        if (error == null && response == null) {
+            error = new IllegalStateException("Handler completed without a response: " + request);
+        }
+        if (error != null) {
+            // 处理其他未预期的异常
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            System.err.println("Error handling request: " + cause.getMessage());
+            cause.printStackTrace();
+            keepAlive = false;
+            response = INTERNAL_SERVER_ERROR;
+        } else {
+            // 检查是否保持连接
+            String connectionHeader = request.getHeader("Connection");
+            keepAlive = connectionHeader == null || !connectionHeader.equalsIgnoreCase("close");
+            if (!(response instanceof CannedResponse)) {
+                // HTTP/1.1默认保持连接；预编码的响应在发送时插入Connection头
+                response.setHeader("Connection", keepAlive ? "keep-alive" : "close");
+            }
+        }
+
+        HttpResponse finalResponse = response;
+        boolean finalKeepAlive = keepAlive;
+        loop.execute(() -> {
+            processing = false;
+            enqueueResponse(finalResponse, finalKeepAlive);
+        });
+    }
+
+    private void enqueueResponse(HttpResponse response, boolean keepAlive) {
+        if (!channel.isOpen()) {
+            return;
+        }
+        if (response instanceof CannedResponse) {
+            // 预编码的响应：共享报文字节（含响应体），不重新编码
+            CannedResponse canned = (CannedResponse) response;
+            keepAlive = keepAlive && !canned.closesConnection();
+            for (ByteBuffer buffer : canned.toBuffers(keepAlive)) {
+                writeQueue.add(buffer);
+            }
+        } else {
+            // 编码会覆盖复用的缓冲区，这里依赖一个不变式：进入这里时写队列总是空的。
+            // 下一个请求只在上一个响应全部写出后取出（flush检查hasPendingWrites，有待写数据时不关注读事件），
+            // 同一时刻也只有一个请求在处理，所以上一个响应头不会还在队列中
+            writeQueue.add(serializer.encodeHead(response));
+            if (response.isBodyOmitted()) {
+                if (response.isStreaming()) {
+                    response.getStreamingBody().close();
+                }
+            } else if (response.isStreaming() && response.getStreamingBody().isNonBlocking()) {
+                // 文件和内存响应体在事件循环线程中按通道可写情况分块发送
+                bodyWriter = new ResponseBodyWriter(response.getStreamingBody(), channel, response.isChunked());
+            } else if (response.isStreaming()) {
+                // 其他数据源可能阻塞，在工作线程中读取，不能拖住本事件循环上的所有连接
+                bodyPump = new ResponseBodyPump(response.getStreamingBody(), response.isChunked());
+            } else if (response.getBody() != null && response.getBody().length > 0) {
+                writeQueue.add(ByteBuffer.wrap(response.getBody()));
+            }
+        }
+        if (!keepAlive) {
+            closeAfterWrite = true;
+        }
+        flush();
+    }
+
+    /**
+     * 尽可能写出待发送数据，写完后处理缓冲区中的下一个请求
+     */
+    private void flush() {
+        try {
+            if (!writeQueue.isEmpty()) {
+                // 聚集写：响应头和响应体（以及预编码响应的各段）一次系统调用发出
+                gatherBuffers = writeQueue.toArray(gatherBuffers);
+                channel.write(gatherBuffers, 0, writeQueue.size());
+                while (!writeQueue.isEmpty() && !writeQueue.peek().hasRemaining()) {
+                    writeQueue.poll();
+                }
+                // 还有剩余说明发送缓冲区已满，等待OP_WRITE
+            }
+            if (writeQueue.isEmpty() && bodyWriter != null) {
+                if (bodyWriter.write()) {
+                    bodyWriter.close();
+                    bodyWriter = null;
+                }
+            }
+            if (writeQueue.isEmpty() && bodyPump != null && !pumping) {
+                if (bodyPump.isDone()) {
+                    bodyPump.close();
+                    bodyPump = null;
+                } else if (!pumpBody()) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+
+        lastActivity = System.currentTimeMillis();
+        if (!hasPendingWrites()) {
+            if (closeAfterWrite) {
+                close();
+                return;
+            }
+            // 长连接：处理已缓冲的下一个（流水线）请求
+            processNextRequest();
+        }
+        updateInterest();
+    }
+
+    /**
+     * 提交工作线程读取下一段响应体，读到的数据交回事件循环线程写出，写完后再读下一段
+     * @return false如果无法提交（连接已关闭）
+     */
+    private boolean pumpBody() {
+        ResponseBodyPump pump = bodyPump;
+        pumping = true;
+        try {
+            workers.execute(() -> {
+                ByteBuffer data;
+                try {
+                    data = pump.fill();
+                } catch (IOException e) {
+                    System.err.println("Error reading response body: " + e.getMessage());
+                    data = null;
+                }
+                ByteBuffer filled = data;
+                loop.execute(() -> {
+                    pumping = false;
+                    if (closed) {
+                        pump.close();
+                        return;
+                    }
+                    if (filled == null) {
+                        // 响应头已经发出，只能断开连接让客户端知道响应不完整
+                        close();
+                        return;
+                    }
+                    if (filled.hasRemaining()) {
+                        writeQueue.add(filled);
+                    }
+                    flush();
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // 服务器正在关闭或工作线程已饱和，响应已经开始发送，无法改为503
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    private void updateInterest() {
+        if (!key.isValid()) {
+            return;
+        }
+        int ops = 0;
+        if (!writeQueue.isEmpty() || bodyWriter != null) {
+            ops |= SelectionKey.OP_WRITE;
+        } else if (!hasPendingWrites() && !processing && !closeAfterWrite) {
+            ops |= SelectionKey.OP_READ;
+        }
+        // 工作线程正在读取响应体时不关注任何事件，数据交回后由flush继续
+        key.interestOps(ops);
+        // 只有处理过请求、正在等待下一个请求、没有读到一半的数据时才允许被连接数限制关闭
+        setIdle(served && ops == SelectionKey.OP_READ && readBuffer.position() == 0 && !parser.isInProgress());
+    }
+
+    private void setIdle(boolean idle) {
+        if (this.idle != idle) {
+            this.idle = idle;
+            if (idle) {
+                limiter.markIdle(this);
+            } else if (!limiter.markBusy(this)) {
+                // 已被选中关闭，名额已经让给了新连接
+                close();
+            }
+        }
+    }
+
+    /**
+     * 连接数达到上限时由ConnectionLimiter调用（任意线程），在事件循环线程中关闭。
+     * 在此之前收到数据的连接在setIdle(false)时已经关闭，不会开始处理请求
+     */
+    @Override
+    public void closeIdle() {
+        loop.execute(this::close);
+    }
+
+    private static HttpResponse createErrorResponse(HttpStatus status, String message) {
+        HttpResponse response = new HttpResponse(status);
+        response.setBody(message);
+        response.setHeader("Content-Type", "text/plain");
+        response.setHeader("Connection", "close");
+        return response;
+    }
+
+    /**
+     * 判断连接是否已空闲超时（没有进行中的请求和待写数据）
+     */
+    boolean isIdleSince(long now) {
+        return !processing && !hasPendingWrites() && now - lastActivity > SOCKET_TIMEOUT;
+    }
+
+    private boolean hasPendingWrites() {
+        return !writeQueue.isEmpty() || bodyWriter != null || bodyPump != null;
+    }
+
+    /**
+     * 关闭连接
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        limiter.release(this);
+        if (bodyWriter != null) {
+            bodyWriter.close();
+            bodyWriter = null;
+        }
+        if (bodyPump != null) {
+            if (!pumping) {
+                // 工作线程正在读取时由它交回后关闭，不能并发关闭数据源
+                bodyPump.close();
+            }
+            bodyPump = null;
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing socket: " + e.getMessage());
+        }
+        loop.connectionClosed(this);
+    }
+}
@@ -0,0 +1,173 @@
+package com.http.server;
+
+import com.http.protocol.RequestLimits;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * NIO事件循环
+ * 每个事件循环拥有一个Selector和一个线程，负责其上所有连接的读写。
+ * 其他线程只能通过execute提交任务来操作这些连接
+ */
+class NioEventLoop implements Runnable {
+
+    private static final long SELECT_TIMEOUT = 1000; // 空闲检查间隔（毫秒）
+
+    private final Selector selector;
+    private final RequestRouter router;
+    private final ExecutorService workers;
+    private final ConnectionLimiter limiter;
+    private final RequestLimits requestLimits;
+    private final Queue<Runnable> tasks;
+    private final Set<NioConnection> connections;
+    private volatile boolean running;
+
+    NioEventLoop(RequestRouter router, ExecutorService workers, ConnectionLimiter limiter,
+                 RequestLimits requestLimits) throws IOException {
+        this.selector = Selector.open();
+        this.router = router;
+        this.workers = workers;
+        this.limiter = limiter;
+        this.requestLimits = requestLimits;
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.connections = new HashSet<>();
+        this.running = true;
+    }
+
+    /**
+     * 注册监听通道（必须在事件循环线程启动前调用）
+     */
+    void registerAcceptor(ServerSocketChannel serverChannel, NioServer server) throws ClosedChannelException {
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT, server);
+    }
+
+    /**
+     * 将新接受的连接交给本事件循环
+     * @param channel 客户端通道
+     */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                NioConnection connection = new NioConnection(this, channel, key, router, workers, limiter,
+                        requestLimits);
+                key.attach(connection);
+                connections.add(connection);
+            } catch (IOException e) {
+                System.err.println("Error registering connection: " + e.getMessage());
+                // 连接对象尚未创建，只归还名额
+                limiter.release(null);
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // 忽略关闭异常
+                }
+            }
+        });
+    }
+
+    /**
+     * 提交任务到事件循环线程执行
+     * @param task 任务
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * 连接关闭时由NioConnection回调（事件循环线程中）
+     */
+    void connectionClosed(NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    /**
+     * 停止事件循环
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT);
+                runTasks();
+                processSelectedKeys();
+                closeIdleConnections();
+            }
+        } catch (IOException e) {
+            System.err.println("Event loop error: " + e.getMessage());
+        } finally {
+            for (NioConnection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Error closing selector: " + e.getMessage());
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                System.err.println("Error running event loop task: " + e.getMessage());
+            }
+        }
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+
+            Object attachment = key.attachment();
+            if (attachment instanceof NioServer) {
+                ((NioServer) attachment).acceptConnections();
+            } else if (attachment instanceof NioConnection) {
+                NioConnection connection = (NioConnection) attachment;
+                if (key.isReadable()) {
+                    connection.onReadable();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.onWritable();
+                }
+            }
+        }
+    }
+
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        for (NioConnection connection : new ArrayList<>(connections)) {
+            if (connection.isIdleSince(now)) {
+                System.out.println("Connection timeout, closing connection");
+                connection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.http.server;
+
+import com.http.protocol.RequestLimits;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * NIO服务器引擎
+ * 使用ServerSocketChannel和N个Selector事件循环线程处理连接，
+ * 空闲的长连接不再占用工作线程
+ */
+class NioServer {
+
+    private final int port;
+    private final RequestRouter router;
+    private final ExecutorService workers;
+    private final NioEventLoop[] eventLoops;
+    private final Thread[] loopThreads;
+    private final ConnectionLimiter limiter;
+    private final RequestLimits requestLimits;
+    private ServerSocketChannel serverChannel;
+    private int nextLoop;
+
+    /**
+     * 创建NIO服务器引擎
+     * @param port 监听端口
+     * @param router 请求路由器
+     * @param workers 执行请求处理的工作线程池
+     * @param eventLoopCount 事件循环线程数
+     * @param limiter 连接数限制
+     * @param requestLimits 请求大小限制
+     */
+    NioServer(int port, RequestRouter router, ExecutorService workers, int eventLoopCount,
+              ConnectionLimiter limiter, RequestLimits requestLimits) {
+        if (eventLoopCount <= 0) {
+            throw new IllegalArgumentException("Event loop count must be positive: " + eventLoopCount);
+        }
+        this.port = port;
+        this.router = router;
+        this.workers = workers;
+        this.eventLoops = new NioEventLoop[eventLoopCount];
+        this.loopThreads = new Thread[eventLoopCount];
+        this.limiter = limiter;
+        this.requestLimits = requestLimits;
+    }
+
+    /**
+     * 绑定端口并启动所有事件循环线程
+     * @throws IOException 如果无法绑定端口
+     */
+    void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new NioEventLoop(router, workers, limiter, requestLimits);
+            }
+            // 由第一个事件循环负责accept，新连接轮询分配给各个事件循环
+            eventLoops[0].registerAcceptor(serverChannel, this);
+        } catch (IOException e) {
+            closeQuietly();
+            throw e;
+        }
+
+        for (int i = 0; i < eventLoops.length; i++) {
+            loopThreads[i] = new Thread(eventLoops[i], "NioEventLoop-" + i);
+            loopThreads[i].start();
+        }
+    }
+
+    /**
+     * 接受所有就绪的连接（在接受事件循环线程中调用）
+     */
+    void acceptConnections() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                System.out.println("Accepted connection from " + channel.getRemoteAddress());
+                if (!limiter.tryAcquire()) {
+                    // 连接数已满且没有空闲连接可以关闭，立即返回503
+                    ConnectionLimiter.reject(channel);
+                    continue;
+                }
+                NioEventLoop loop = eventLoops[nextLoop];
+                nextLoop = (nextLoop + 1) % eventLoops.length;
+                loop.register(channel);
+            }
+        } catch (IOException e) {
+            if (serverChannel.isOpen()) {
+                System.err.println("Error accepting connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 停止所有事件循环并关闭监听通道
+     */
+    void stop() {
+        closeQuietly();
+
+        for (NioEventLoop loop : eventLoops) {
+            if (loop != null) {
+                loop.shutdown();
+            }
+        }
+        for (Thread thread : loopThreads) {
+            if (thread != null) {
+                try {
+                    thread.join(5000); // 等待最多5秒
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing server channel: " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.http.server;
 
+import com.http.protocol.CannedResponse;
+import com.http.protocol.ConditionalRequests;
 import com.http.protocol.HttpRequest;
 import com.http.protocol.HttpResponse;
 import com.http.protocol.HttpStatus;
@@ -7,12 +9,17 @@ import com.http.protocol.HttpStatus;
 /**
  * 304 Not Modified处理器
  * 用于处理条件请求，当资源未修改时返回304状态码
+ * 静态文件由StaticResourceHandler根据文件状态自动处理条件请求，这里用于验证器固定的资源
  */
 public class NotModifiedHandler implements RequestHandler {
 
+    private static final CannedResponse NOT_FOUND = CannedResponse.text(HttpStatus.NOT_FOUND, "404 Not Found");
+
     private final String etag;
     private final String lastModified;
+    private final long lastModifiedMillis; // 解析后的Last-Modified，无法解析时为-1
     private final RequestHandler actualHandler;
+    private final CannedResponse notModified; // 验证器固定，304响应构造时编码一次
 
     /**
      * 构造304处理器
@@ -24,26 +31,22 @@ public class NotModifiedHandler implements RequestHandler {
     public NotModifiedHandler(String etag, String lastModified, RequestHandler actualHandler) {
         this.etag = etag;
         this.lastModified = lastModified;
+        this.lastModifiedMillis = ConditionalRequests.parseDate(lastModified);
         this.actualHandler = actualHandler;
+        this.notModified = createNotModifiedResponse();
     }
 
     @Override
     public HttpResponse handle(HttpRequest request) {
-        // 检查If-None-Match头（ETag匹配）
-        String ifNoneMatch = request.getHeader("If-None-Match");
-        if (ifNoneMatch != null && ifNoneMatch.equals(etag)) {
-            return createNotModifiedResponse();
-        }
-
-        // 检查If-Modified-Since头（时间匹配）
-        String ifModifiedSince = request.getHeader("If-Modified-Since");
-        if (ifModifiedSince != null && ifModifiedSince.equals(lastModified)) {
-            return createNotModifiedResponse();
+        // 检查If-None-Match（ETag列表，弱比较），没有时按日期比较If-Modified-Since
+        if (ConditionalRequests.isNotModified(request, etag, lastModifiedMillis)) {
+            return notModified;
         }
 
         // 资源已修改，返回实际内容
         if (actualHandler != null) {
-            HttpResponse response = actualHandler.handle(request);
+            // 实际处理器可能返回共享的预编码响应（例如重定向），修改前取得可修改的版本
+            HttpResponse response = actualHandler.handle(request).mutable();
             // 添加缓存相关头
             if (etag != null) {
                 response.setHeader("ETag", etag);
@@ -55,16 +58,13 @@ public class NotModifiedHandler implements RequestHandler {
         }
 
         // 没有实际处理器，返回404
-        HttpResponse response = new HttpResponse(HttpStatus.NOT_FOUND);
-        response.setBody("404 Not Found");
-        response.setHeader("Content-Type", "text/plain");
-        return response;
+        return NOT_FOUND;
     }
 
     /**
      * 创建304 Not Modified响应
      */
-    private HttpResponse createNotModifiedResponse() {
+    private CannedResponse createNotModifiedResponse() {
         HttpResponse response = new HttpResponse(HttpStatus.NOT_MODIFIED);
         // 304响应不应包含响应体
         if (etag != null) {
@@ -73,6 +73,6 @@ public class NotModifiedHandler implements RequestHandler {
         if (lastModified != null) {
             response.setHeader("Last-Modified", lastModified);
         }
-        return response;
+        return CannedResponse.of(response);
     }
 }
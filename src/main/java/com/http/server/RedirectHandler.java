@@ -1,5 +1,6 @@
 package com.http.server;
 
+import com.http.protocol.CannedResponse;
 import com.http.protocol.HttpRequest;
 import com.http.protocol.HttpResponse;
 import com.http.protocol.HttpStatus;
@@ -10,8 +11,7 @@ import com.http.protocol.HttpStatus;
  */
 public class RedirectHandler implements RequestHandler {
 
-    private final HttpStatus redirectStatus;
-    private final String targetLocation;
+    private final CannedResponse response; // 重定向响应固定不变，构造时编码一次
 
     /**
      * 构造重定向处理器
@@ -20,12 +20,6 @@ public class RedirectHandler implements RequestHandler {
      * @param targetLocation 目标重定向地址
      */
     public RedirectHandler(HttpStatus redirectStatus, String targetLocation) {
-        this.redirectStatus = redirectStatus;
-        this.targetLocation = targetLocation;
-    }
-
-    @Override
-    public HttpResponse handle(HttpRequest request) {
         HttpResponse response = new HttpResponse(redirectStatus);
 
         // 设置Location头，指示重定向目标
@@ -39,6 +33,11 @@ public class RedirectHandler implements RequestHandler {
         response.setHeader("Content-Type", "text/plain");
         response.setHeader("Content-Length", String.valueOf(body.length()));
 
+        this.response = CannedResponse.of(response);
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest request) {
         return response;
     }
 
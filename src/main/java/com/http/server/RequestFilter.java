@@ -0,0 +1,71 @@
+package com.http.server;
+
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 请求过滤器接口
+ * 在处理器前后执行横切逻辑（计时、鉴权、缓存、压缩等），由RequestRouter按注册顺序组成过滤器链。
+ * 404、405、OPTIONS和重定向等响应是共享的不可变CannedResponse：filter中next.handle返回的响应
+ * 已经换成可以修改的副本，可以直接设置响应头；覆盖filterAsync的过滤器拿到的是原始响应，
+ * 修改之前要先调用HttpResponse.mutable()
+ */
+public interface RequestFilter {
+
+    /**
+     * 处理请求
+     * 调用next.handle继续执行链中的下一个过滤器或处理器；不调用时直接返回的响应即为最终响应（短路）
+     * @param request HTTP请求
+     * @param next 链中的下一个环节，返回的响应总是可以修改的
+     * @return HTTP响应
+     */
+    HttpResponse filter(HttpRequest request, RequestHandler next);
+
+    /**
+     * 异步处理请求，过滤器链实际调用的方法
+     * 默认实现调用filter：后续环节是同步处理器时没有额外开销，是异步处理器时会占用工作线程等待结果，
+     * RequestRouter在这种过滤器包住异步路由时打印警告；
+     * 后续环节返回的CannedResponse在交给filter之前复制为可以修改的响应。
+     * 会包住异步处理器的过滤器（计时、缓存、指标等）应覆盖本方法，在返回的Future上追加处理，修改响应前调用mutable()
+     * @param request HTTP请求
+     * @param next 链中的下一个环节
+     * @return 完成时给出HTTP响应的Future
+     */
+    default CompletableFuture<HttpResponse> filterAsync(HttpRequest request, AsyncRequestHandler next) {
+        return CompletableFuture.completedFuture(
+                filter(request, r -> RequestRouter.await(next.handleAsync(r)).mutable()));
+    }
+
+    /**
+     * 判断过滤器是否覆盖了filterAsync，包住异步处理器时不会阻塞
+     * @param filter 过滤器
+     * @return true如果过滤器提供了自己的filterAsync
+     */
+    static boolean isAsync(RequestFilter filter) {
+        try {
+            return filter.getClass().getMethod("filterAsync", HttpRequest.class, AsyncRequestHandler.class)
+                    .getDeclaringClass() != RequestFilter.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 将过滤器依次套在处理器外面，第一个过滤器在最外层
+     * @param filters 过滤器（按执行顺序）
+     * @param handler 最内层的处理器
+     * @return 组合后的处理器，没有过滤器时返回handler本身
+     */
+    static AsyncRequestHandler chain(List<? extends RequestFilter> filters, AsyncRequestHandler handler) {
+        AsyncRequestHandler next = handler;
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            RequestFilter filter = filters.get(i);
+            AsyncRequestHandler inner = next;
+            next = request -> filter.filterAsync(request, inner);
+        }
+        return next;
+    }
+}
@@ -1,77 +1,352 @@
 package com.http.server;
 
+import com.http.protocol.CannedResponse;
+import com.http.protocol.HttpMethod;
 import com.http.protocol.HttpRequest;
 import com.http.protocol.HttpResponse;
 import com.http.protocol.HttpStatus;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * 请求路由器
  * 负责将HTTP请求路由到相应的处理器
+ * 路由保存在基数树中，支持 {name} 路径参数和 /prefix/* 通配符，匹配时忽略查询字符串；
+ * 每个路径按请求方法分别注册处理器，HEAD和OPTIONS在没有单独注册时自动应答。
+ * 过滤器链：全局过滤器包住整个分派过程（包括404/405），路由过滤器只包住该路径的处理器；
+ * 链在注册时组合好，请求时直接调用。
+ * 同步处理器和异步处理器可以混合注册，内部统一按异步处理器组合，同步处理器返回已完成的Future
  */
 public class RequestRouter {
-    
-    private final Map<String, RequestHandler> routes;
-    private RequestHandler defaultHandler;
+
+    private static final CannedResponse NOT_FOUND = CannedResponse.text(HttpStatus.NOT_FOUND, "404 Not Found");
+
+    /**
+     * 一个路径上按方法注册的处理器
+     * Allow头和405/OPTIONS响应在注册时生成，请求时直接共享
+     */
+    private static final class Route {
+        final AsyncRequestHandler[] handlers = new AsyncRequestHandler[HttpMethod.values().length];
+        final AsyncRequestHandler[] chains = new AsyncRequestHandler[handlers.length]; // 套上路由过滤器后的处理器
+        final List<RequestFilter> filters = new ArrayList<>();
+        final String pattern;
+        boolean routable;                // 是否已放入路由树（注册过处理器）
+        boolean async;                   // 是否注册过异步处理器
+        CannedResponse options;          // OPTIONS响应
+        CannedResponse methodNotAllowed; // 405响应
+
+        Route(String pattern) {
+            this.pattern = pattern;
+            updateAllow();
+        }
+
+        void put(HttpMethod method, AsyncRequestHandler handler) {
+            handlers[method.ordinal()] = handler;
+            chains[method.ordinal()] = RequestFilter.chain(filters, handler);
+            updateAllow();
+        }
+
+        private void updateAllow() {
+            // 按枚举顺序列出方法，有GET时HEAD可用，OPTIONS总是可用
+            StringBuilder allow = new StringBuilder();
+            for (HttpMethod candidate : HttpMethod.values()) {
+                if (handlers[candidate.ordinal()] != null
+                        || (candidate == HttpMethod.HEAD && handlers[HttpMethod.GET.ordinal()] != null)
+                        || candidate == HttpMethod.OPTIONS) {
+                    if (allow.length() > 0) {
+                        allow.append(", ");
+                    }
+                    allow.append(candidate.name());
+                }
+            }
+            HttpResponse response = new HttpResponse(HttpStatus.NO_CONTENT);
+            response.setHeader("Allow", allow.toString());
+            options = CannedResponse.of(response);
+
+            response = new HttpResponse(HttpStatus.METHOD_NOT_ALLOWED);
+            response.setHeader("Allow", allow.toString());
+            response.setHeader("Content-Type", "text/plain");
+            response.setBody("405 Method Not Allowed");
+            methodNotAllowed = CannedResponse.of(response);
+        }
+
+        void addFilter(RequestFilter filter) {
+            if (async) {
+                warnIfBlocking(filter, pattern);
+            }
+            filters.add(filter);
+            for (int i = 0; i < handlers.length; i++) {
+                if (handlers[i] != null) {
+                    chains[i] = RequestFilter.chain(filters, handlers[i]);
+                }
+            }
+        }
+
+        AsyncRequestHandler handlerFor(HttpMethod method) {
+            AsyncRequestHandler handler = chains[method.ordinal()];
+            if (handler == null && method == HttpMethod.HEAD) {
+                // HEAD使用GET的处理器，发送时省略响应体
+                handler = chains[HttpMethod.GET.ordinal()];
+            }
+            return handler;
+        }
+    }
+
+    private final RouteTree<Route> routes;
+    private final Map<String, Route> routesByPattern = new HashMap<>(); // 注册时按模式找到已有的路由
+    private Route defaultRoute;
+    private final List<RequestFilter> filters = new ArrayList<>(); // 全局过滤器
+    private ResponseCompressor compressor = new ResponseCompressor(); // 为null时不压缩
+    private AsyncRequestHandler pipeline; // 全局过滤器 + 压缩 + 分派
 
     public RequestRouter() {
-        this.routes = new HashMap<>();
+        this.routes = new RouteTree<>();
+        rebuildPipeline();
     }
 
     /**
-     * 注册路径处理器
-     * @param path 请求路径
+     * 注册路径处理器，处理GET和POST请求
+     * 路径可以包含路径参数和末尾通配符，例如 "/api/users/{id}"、"/static/*"；
+     * 处理器通过HttpRequest.getPathParameter读取参数值
+     * @param path 请求路径（以 '/' 开头）
      * @param handler 处理器
+     * @throws IllegalArgumentException 如果路径格式错误或参数名与已注册的路由冲突
      */
     public void registerHandler(String path, RequestHandler handler) {
-        routes.put(path, handler);
+        registerHandler(HttpMethod.GET, path, handler);
+        registerHandler(HttpMethod.POST, path, handler);
+    }
+
+    /**
+     * 为指定方法注册路径处理器，同一路径的同一方法再次注册时覆盖原来的处理器
+     * @param method 请求方法
+     * @param path 请求路径（以 '/' 开头）
+     * @param handler 处理器
+     * @throws IllegalArgumentException 如果路径格式错误或参数名与已注册的路由冲突
+     */
+    public void registerHandler(HttpMethod method, String path, RequestHandler handler) {
+        routeFor(path).put(method, AsyncRequestHandler.of(handler));
+    }
+
+    /**
+     * 为指定方法注册异步处理器，响应完成前不占用工作线程
+     * @param method 请求方法
+     * @param path 请求路径（以 '/' 开头）
+     * @param handler 异步处理器
+     * @throws IllegalArgumentException 如果路径格式错误或参数名与已注册的路由冲突
+     */
+    public void registerAsyncHandler(HttpMethod method, String path, AsyncRequestHandler handler) {
+        Route route = routeFor(path);
+        route.put(method, handler);
+        if (!route.async) {
+            route.async = true;
+            for (RequestFilter filter : filters) {
+                warnIfBlocking(filter, path);
+            }
+            for (RequestFilter filter : route.filters) {
+                warnIfBlocking(filter, path);
+            }
+        }
+    }
+
+    /**
+     * 取得路径的路由并放入路由树（注册处理器时调用）
+     */
+    private Route routeFor(String path) {
+        Route route = pendingRoute(path);
+        if (!route.routable) {
+            routes.insert(path, route);
+            route.routable = true;
+        }
+        return route;
+    }
+
+    /**
+     * 取得路径的路由，新建的路由暂不放入路由树：只有过滤器、还没有处理器的路径不参与匹配，
+     * 请求仍然交给默认处理器或返回404，而不是405
+     */
+    private Route pendingRoute(String path) {
+        Route route = routesByPattern.get(path);
+        if (route == null) {
+            // 以null占位，立即校验模式和参数名，查找时不会匹配
+            routes.insert(path, null);
+            route = new Route(path);
+            routesByPattern.put(path, route);
+        }
+        return route;
+    }
+
+    public void get(String path, RequestHandler handler) {
+        registerHandler(HttpMethod.GET, path, handler);
+    }
+
+    public void post(String path, RequestHandler handler) {
+        registerHandler(HttpMethod.POST, path, handler);
+    }
+
+    public void put(String path, RequestHandler handler) {
+        registerHandler(HttpMethod.PUT, path, handler);
+    }
+
+    public void delete(String path, RequestHandler handler) {
+        registerHandler(HttpMethod.DELETE, path, handler);
     }
 
     /**
-     * 设置默认处理器（用于未匹配的路径）
+     * 添加全局过滤器，按添加顺序执行（先添加的在外层）
+     * 全局过滤器对所有请求生效，包括未匹配路由的404和不支持方法的405
+     * @param filter 过滤器
+     */
+    public void addFilter(RequestFilter filter) {
+        for (Route route : routesByPattern.values()) {
+            if (route.async) {
+                warnIfBlocking(filter, route.pattern);
+            }
+        }
+        filters.add(filter);
+        rebuildPipeline();
+    }
+
+    /**
+     * 只实现了filter的过滤器包住异步处理器时，会在工作线程中等待异步结果，
+     * 抵消异步处理器不占用工作线程的好处，注册时给出警告
+     */
+    private static void warnIfBlocking(RequestFilter filter, String path) {
+        if (!RequestFilter.isAsync(filter)) {
+            System.err.println("Warning: filter " + filter.getClass().getName() + " wraps async route " + path
+                    + " but does not override filterAsync; it will hold a worker thread until the response completes");
+        }
+    }
+
+    /**
+     * 为路径添加过滤器，对该路径所有方法的处理器生效（包括之后注册的），在全局过滤器之内执行；
+     * 该路径注册处理器之前，请求照常交给默认处理器或返回404
+     * @param path 已注册或将要注册的路径，与注册处理器时的写法相同
+     * @param filter 过滤器
+     * @throws IllegalArgumentException 如果路径格式错误或参数名与已注册的路由冲突
+     */
+    public void addFilter(String path, RequestFilter filter) {
+        pendingRoute(path).addFilter(filter);
+    }
+
+    /**
+     * 设置默认处理器（用于未匹配的路径），处理GET和POST请求
      * @param handler 默认处理器
      */
     public void setDefaultHandler(RequestHandler handler) {
-        this.defaultHandler = handler;
+        AsyncRequestHandler async = AsyncRequestHandler.of(handler);
+        Route route = new Route("*");
+        route.put(HttpMethod.GET, async);
+        route.put(HttpMethod.POST, async);
+        this.defaultRoute = route;
+    }
+
+    /**
+     * 设置响应压缩策略
+     * @param compressor 压缩器，null表示关闭即时压缩
+     */
+    public void setCompressor(ResponseCompressor compressor) {
+        this.compressor = compressor;
+        rebuildPipeline();
+    }
+
+    /**
+     * 重新组合全局处理链，压缩在全局过滤器之内，直接作用于分派结果
+     */
+    private void rebuildPipeline() {
+        List<RequestFilter> chain = new ArrayList<>(filters);
+        if (compressor != null) {
+            chain.add(compressor);
+        }
+        pipeline = RequestFilter.chain(chain, this::dispatch);
     }
 
     /**
-     * 路由请求到相应的处理器
+     * 经过滤器链将请求路由到相应的处理器，并按Accept-Encoding压缩响应
+     * 路由到异步处理器时等待其完成
      * @param request HTTP请求
      * @return HTTP响应
      */
     public HttpResponse route(HttpRequest request) {
-        // 检查请求方法是否为GET或POST
-        String method = request.getMethod();
-        if (!"GET".equalsIgnoreCase(method) && !"POST".equalsIgnoreCase(method)) {
-            // 不支持的方法返回405
-            HttpResponse response = new HttpResponse(HttpStatus.METHOD_NOT_ALLOWED);
-            response.setBody("405 Method Not Allowed: " + method);
-            response.setHeader("Content-Type", "text/plain");
-            response.setHeader("Allow", "GET, POST");
-            return response;
+        return await(routeAsync(request));
+    }
+
+    /**
+     * 异步路由请求，处理器抛出的异常也通过Future传递
+     * @param request HTTP请求
+     * @return 完成时给出HTTP响应的Future，同步处理器返回时已经完成
+     */
+    public CompletableFuture<HttpResponse> routeAsync(HttpRequest request) {
+        CompletableFuture<HttpResponse> future;
+        try {
+            future = pipeline.handleAsync(request);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (request.getHttpMethod() == HttpMethod.HEAD) {
+            future = future.thenApply(response -> {
+                if (response instanceof CannedResponse) {
+                    return ((CannedResponse) response).headResponse();
+                }
+                response.setBodyOmitted(true);
+                return response;
+            });
+        }
+        return future;
+    }
+
+    /**
+     * 等待响应完成，处理器抛出的非受检异常原样抛出
+     */
+    static HttpResponse await(CompletableFuture<HttpResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
         }
-        
+    }
+
+    /**
+     * 选择处理器并处理请求
+     */
+    private CompletableFuture<HttpResponse> dispatch(HttpRequest request) {
         String uri = request.getUri();
-        
-        // 尝试精确匹配
-        RequestHandler handler = routes.get(uri);
-        
+
+        // 在路由树中查找，路径在查询字符串处结束
+        RouteTree.Match<Route> match = routes.find(uri, HttpRequest.pathEnd(uri));
+        Route route;
+        if (match != null) {
+            request.setPathParameters(match.getParameters());
+            route = match.getValue();
+        } else if (defaultRoute != null) {
+            // 如果有默认处理器，使用默认处理器
+            route = defaultRoute;
+        } else {
+            // 未找到处理器，返回404
+            return CompletableFuture.completedFuture(NOT_FOUND);
+        }
+
+        HttpMethod method = request.getHttpMethod();
+        AsyncRequestHandler handler = method == null ? null : route.handlerFor(method);
         if (handler != null) {
-            return handler.handle(request);
-        }
-        
-        // 如果有默认处理器，使用默认处理器
-        if (defaultHandler != null) {
-            return defaultHandler.handle(request);
-        }
-        
-        // 未找到处理器，返回404
-        HttpResponse response = new HttpResponse(HttpStatus.NOT_FOUND);
-        response.setBody("404 Not Found: " + uri);
-        response.setHeader("Content-Type", "text/plain");
-        return response;
+            return handler.handleAsync(request);
+        }
+        if (method == HttpMethod.OPTIONS) {
+            return CompletableFuture.completedFuture(route.options);
+        }
+
+        // 该路径不支持的方法返回405
+        return CompletableFuture.completedFuture(route.methodNotAllowed);
     }
 }
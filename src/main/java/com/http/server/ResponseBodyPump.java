@@ -0,0 +1,90 @@
+package com.http.server;
+
+import com.http.protocol.ResponseBody;
+import com.http.protocol.ResponseBodyWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 流式响应体搬运器
+ * 可能阻塞的数据源（上游调用、数据库游标、生成器）不能在事件循环线程中读取：
+ * 工作线程调用fill把一段响应体（需要时已按chunked编码）读入缓冲区，事件循环线程把它写到Socket，
+ * 写完后再提交下一次fill。两个线程交替访问，同一时刻只有一个线程使用本对象
+ */
+final class ResponseBodyPump {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final long SOURCE_RETRY_NANOS = 1_000_000; // 数据源没有数据时的重试间隔（1毫秒）
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ResponseBodyWriter writer;
+    private boolean done;
+
+    /**
+     * @param body 响应体
+     * @param chunked 是否使用chunked编码
+     */
+    ResponseBodyPump(ResponseBody body, boolean chunked) {
+        this.writer = new ResponseBodyWriter(body, new BufferChannel(), chunked);
+    }
+
+    /**
+     * 在工作线程中读取下一段响应体，至少读到一个字节或者读完才返回
+     * @return 待发送的数据，写完之前不能再次调用fill（缓冲区会被复用）
+     * @throws IOException 如果读取数据源失败
+     */
+    ByteBuffer fill() throws IOException {
+        buffer.clear();
+        while (!(done = writer.write()) && buffer.position() == 0) {
+            // 缓冲区还是空的，说明数据源暂时没有数据
+            LockSupport.parkNanos(SOURCE_RETRY_NANOS);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * @return true如果响应体已全部读出（最后一段数据可能还在发送）
+     */
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * 释放响应体数据源
+     */
+    void close() {
+        writer.close();
+    }
+
+    /**
+     * 写入搬运缓冲区的通道，缓冲区满时返回0，与发送缓冲区已满的非阻塞Socket一样
+     */
+    private final class BufferChannel implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = Math.min(src.remaining(), buffer.remaining());
+            if (count == 0) {
+                return 0;
+            }
+            int limit = src.limit();
+            src.limit(src.position() + count);
+            buffer.put(src);
+            src.limit(limit);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // 缓冲区由ResponseBodyPump复用，不需要关闭
+        }
+    }
+}
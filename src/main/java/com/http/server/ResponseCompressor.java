@@ -0,0 +1,127 @@
+package com.http.server;
+
+import com.http.protocol.CannedResponse;
+import com.http.protocol.ContentCoding;
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 响应压缩
+ * 对内存中的响应体（例如/api的JSON）按Accept-Encoding即时压缩；
+ * 只压缩可压缩的MIME类型和达到最小长度的响应体，流式响应体（文件）由StaticResourceHandler负责；
+ * 作为过滤器时压缩链中后续环节返回的响应
+ */
+public class ResponseCompressor implements RequestFilter {
+
+    public static final int DEFAULT_MIN_SIZE = 256;
+
+    // text/*之外可压缩的类型，图片、压缩包等已经压缩过的格式不再压缩
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "application/json",
+            "application/javascript",
+            "application/xml",
+            "image/svg+xml");
+
+    private final int minSize;
+
+    public ResponseCompressor() {
+        this(DEFAULT_MIN_SIZE);
+    }
+
+    /**
+     * @param minSize 最小压缩长度，更短的响应体压缩收益抵不过gzip头和CPU开销
+     */
+    public ResponseCompressor(int minSize) {
+        this.minSize = minSize;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * 判断MIME类型是否值得压缩
+     * @param contentType Content-Type头的值，可以带参数（如charset）
+     * @return true如果是文本类格式
+     */
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String type = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType)
+                .trim().toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || COMPRESSIBLE_TYPES.contains(type);
+    }
+
+    @Override
+    public HttpResponse filter(HttpRequest request, RequestHandler next) {
+        return compress(request, next.handle(request));
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> filterAsync(HttpRequest request, AsyncRequestHandler next) {
+        // 在响应完成后压缩，不等待异步处理器
+        return next.handleAsync(request).thenApply(response -> compress(request, response));
+    }
+
+    /**
+     * 按需压缩响应体
+     * @param request HTTP请求（读取Accept-Encoding）
+     * @param response 处理器返回的响应，压缩时直接修改
+     * @return 同一个响应对象
+     */
+    public HttpResponse compress(HttpRequest request, HttpResponse response) {
+        // 预编码的响应不可修改
+        if (response instanceof CannedResponse || response.getStatusCode() != 200 || response.isStreaming()
+                || response.getHeader("Content-Encoding") != null
+                || !isCompressible(response.getHeader("Content-Type"))) {
+            return response;
+        }
+        byte[] body = response.getBody();
+        if (body == null || body.length < minSize) {
+            return response;
+        }
+        String vary = response.getHeader("Vary");
+        if (vary != null && vary.toLowerCase(Locale.ROOT).contains("accept-encoding")) {
+            // 处理器已经按Accept-Encoding选择过表示（例如静态文件的预压缩版本）
+            return response;
+        }
+
+        // 响应内容取决于Accept-Encoding，告知缓存按它区分
+        addVary(response);
+        ContentCoding coding = ContentCoding.negotiate(request.getHeader("Accept-Encoding"));
+        if (coding == null) {
+            return response;
+        }
+
+        byte[] compressed = coding.encode(body, 0, body.length);
+        if (compressed.length >= body.length) {
+            return response;
+        }
+        response.setBody(compressed);
+        response.setHeader("Content-Encoding", coding.getToken());
+        if (response.getHeader("Content-Length") != null) {
+            response.setHeader("Content-Length", String.valueOf(compressed.length));
+        }
+        String etag = response.getHeader("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            // 压缩后的字节与原始内容不同，强ETag降为弱ETag
+            response.setHeader("ETag", "W/" + etag);
+        }
+        return response;
+    }
+
+    static void addVary(HttpResponse response) {
+        String vary = response.getHeader("Vary");
+        if (vary == null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        } else if (!vary.toLowerCase(Locale.ROOT).contains("accept-encoding")) {
+            response.setHeader("Vary", vary + ", Accept-Encoding");
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.http.server;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 路由基数树（radix tree）
+ * 静态路径按公共前缀压缩存储，支持 {name} 路径参数（匹配一个路径段）和末尾的 * 通配符（匹配剩余路径）。
+ * 查找时沿路径逐字符走一遍，只在匹配成功后才为路径参数创建字符串；
+ * 同一位置的优先级为：静态路径 > 路径参数 > 通配符，分支失败时回溯尝试下一种
+ *
+ * @param <V> 路由对应的值（处理器）
+ */
+final class RouteTree<V> {
+
+    /**
+     * 通配符捕获的剩余路径使用的参数名
+     */
+    static final String WILDCARD = "*";
+
+    private static final class Node<V> {
+        String prefix;              // 静态前缀（参数节点为空串）
+        final String paramName;     // 参数节点的参数名，静态节点为null
+        Node<V>[] children;         // 静态子节点，首字符互不相同
+        Node<V> paramChild;
+        V value;
+        V wildcardValue;
+
+        Node(String prefix, String paramName) {
+            this.prefix = prefix;
+            this.paramName = paramName;
+        }
+
+        Node<V> childStartingWith(char c) {
+            if (children != null) {
+                for (Node<V> child : children) {
+                    if (child.prefix.charAt(0) == c) {
+                        return child;
+                    }
+                }
+            }
+            return null;
+        }
+
+        void addChild(Node<V> child) {
+            if (children == null) {
+                children = newArray(1);
+            } else {
+                children = Arrays.copyOf(children, children.length + 1);
+            }
+            children[children.length - 1] = child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] newArray(int length) {
+            return (Node<V>[]) new Node<?>[length];
+        }
+
+        void replaceChild(Node<V> old, Node<V> replacement) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == old) {
+                    children[i] = replacement;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 查找结果
+     */
+    static final class Match<V> {
+        private final V value;
+        private final Map<String, String> parameters;
+
+        Match(V value, Map<String, String> parameters) {
+            this.value = value;
+            this.parameters = parameters;
+        }
+
+        V getValue() {
+            return value;
+        }
+
+        /**
+         * @return 路径参数（名称到值），没有参数时为空Map
+         */
+        Map<String, String> getParameters() {
+            return parameters;
+        }
+    }
+
+    /**
+     * 查找过程中记录的参数位置，匹配成功后才创建字符串
+     */
+    private static final class Captures {
+        String[] names; // 第一次捕获参数时才分配，静态路由的查找不需要
+        int[] bounds;
+        int count;
+
+        void push(String name, int start, int end) {
+            if (names == null) {
+                names = new String[4];
+                bounds = new int[8];
+            } else if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                bounds = Arrays.copyOf(bounds, count * 4);
+            }
+            names[count] = name;
+            bounds[count * 2] = start;
+            bounds[count * 2 + 1] = end;
+            count++;
+        }
+
+        Map<String, String> toMap(String path) {
+            if (count == 0) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> parameters = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                parameters.put(names[i], path.substring(bounds[i * 2], bounds[i * 2 + 1]));
+            }
+            return parameters;
+        }
+    }
+
+    private final Node<V> root = new Node<>("", null);
+
+    /**
+     * 注册路由，相同的路由再次注册时覆盖原来的值
+     * @param pattern 路由模式，例如 "/api/users/{id}"、"/static/*"
+     * @param value 路由对应的值，null表示只校验模式并登记参数名，查找时不匹配
+     * @throws IllegalArgumentException 如果模式格式错误或与已有路由的参数名冲突
+     */
+    void insert(String pattern, V value) {
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Route must start with '/': " + pattern);
+        }
+        Node<V> node = root;
+        int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            char c = pattern.charAt(i);
+            if (c == '{') {
+                int close = pattern.indexOf('}', i);
+                if (close < 0 || close == i + 1 || pattern.charAt(i - 1) != '/'
+                        || (close + 1 < length && pattern.charAt(close + 1) != '/')) {
+                    throw new IllegalArgumentException("Path parameter must be a whole segment: " + pattern);
+                }
+                String name = pattern.substring(i + 1, close);
+                if (node.paramChild == null) {
+                    node.paramChild = new Node<>("", name);
+                } else if (!node.paramChild.paramName.equals(name)) {
+                    throw new IllegalArgumentException("Conflicting path parameter {" + name + "} in " + pattern
+                            + ", already registered as {" + node.paramChild.paramName + "}");
+                }
+                node = node.paramChild;
+                i = close + 1;
+            } else if (c == '*') {
+                if (i != length - 1 || pattern.charAt(i - 1) != '/') {
+                    throw new IllegalArgumentException("Wildcard must be the last segment: " + pattern);
+                }
+                node.wildcardValue = value;
+                return;
+            } else {
+                int end = i;
+                while (end < length && pattern.charAt(end) != '{' && pattern.charAt(end) != '*') {
+                    end++;
+                }
+                node = insertStatic(node, pattern.substring(i, end));
+                i = end;
+            }
+        }
+        node.value = value;
+    }
+
+    /**
+     * 插入一段静态路径，必要时拆分已有节点
+     * @return 前缀恰好在这段路径末尾结束的节点
+     */
+    private Node<V> insertStatic(Node<V> node, String segment) {
+        while (true) {
+            Node<V> child = node.childStartingWith(segment.charAt(0));
+            if (child == null) {
+                child = new Node<>(segment, null);
+                node.addChild(child);
+                return child;
+            }
+
+            int common = 0;
+            int max = Math.min(child.prefix.length(), segment.length());
+            while (common < max && child.prefix.charAt(common) == segment.charAt(common)) {
+                common++;
+            }
+            if (common < child.prefix.length()) {
+                // 拆分：公共部分成为新的中间节点
+                Node<V> middle = new Node<>(child.prefix.substring(0, common), null);
+                node.replaceChild(child, middle);
+                child.prefix = child.prefix.substring(common);
+                middle.addChild(child);
+                child = middle;
+            }
+            if (common == segment.length()) {
+                return child;
+            }
+            node = child;
+            segment = segment.substring(common);
+        }
+    }
+
+    /**
+     * 查找路由
+     * @param path 请求路径
+     * @param end 路径在字符串中的结束位置（例如查询字符串 '?' 的位置），查找不会越过它
+     * @return 匹配结果，没有匹配的路由时返回null
+     */
+    Match<V> find(String path, int end) {
+        if (end == 0 || path.charAt(0) != '/') {
+            return null;
+        }
+        Captures captures = new Captures();
+        V value = match(root, path, 0, end, captures);
+        if (value == null) {
+            return null;
+        }
+        return new Match<>(value, captures.toMap(path));
+    }
+
+    private V match(Node<V> node, String path, int pos, int end, Captures captures) {
+        if (pos == end && node.value != null) {
+            return node.value;
+        }
+
+        if (pos < end) {
+            // 静态子节点
+            Node<V> child = node.childStartingWith(path.charAt(pos));
+            if (child != null) {
+                int prefixLength = child.prefix.length();
+                if (pos + prefixLength <= end && path.regionMatches(pos, child.prefix, 0, prefixLength)) {
+                    V value = match(child, path, pos + prefixLength, end, captures);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+            }
+
+            // 路径参数：匹配到下一个 '/' 为止的非空路径段
+            if (node.paramChild != null) {
+                int segmentEnd = pos;
+                while (segmentEnd < end && path.charAt(segmentEnd) != '/') {
+                    segmentEnd++;
+                }
+                if (segmentEnd > pos) {
+                    int mark = captures.count;
+                    captures.push(node.paramChild.paramName, pos, segmentEnd);
+                    V value = match(node.paramChild, path, segmentEnd, end, captures);
+                    if (value != null) {
+                        return value;
+                    }
+                    captures.count = mark;
+                }
+            }
+        }
+
+        // 通配符：匹配剩余的全部路径（可以为空）
+        if (node.wildcardValue != null) {
+            captures.push(WILDCARD, pos, end);
+            return node.wildcardValue;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.http.server;
+
+/**
+ * 服务器I/O引擎类型
+ * 决定HttpServer如何接受连接和读取请求
+ */
+public enum ServerEngine {
+    // 阻塞模式：一个接受线程，每个连接在整个长连接生命周期内占用一个工作线程
+    BLOCKING,
+    // NIO模式：Selector事件循环非阻塞读取，只有完整请求才交给工作线程处理
+    NIO
+}
@@ -10,16 +10,22 @@ public class ServerMain {
     
     private static final int DEFAULT_PORT = 8080;
     private static final String STATIC_RESOURCES_PATH = "src/main/resources/static";
+    private static final int THREAD_POOL_SIZE = 20;
+    private static final String ENGINE_PROPERTY = "server.engine";     // -Dserver.engine=nio 启用NIO引擎
+    private static final String EXECUTOR_PROPERTY = "server.executor"; // -Dserver.executor=virtual 启用虚拟线程
     
     public static void main(String[] args) {
-        // 解析端口参数
+        // 解析端口参数和选项（--engine=nio、--executor=virtual）
         int port = DEFAULT_PORT;
-        if (args.length > 0) {
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                continue;
+            }
             try {
-                port = Integer.parseInt(args[0]);
+                port = Integer.parseInt(arg);
             } catch (NumberFormatException e) {
-                System.err.println("Invalid port number: " + args[0]);
-                System.err.println("Usage: java ServerMain [port]");
+                System.err.println("Invalid port number: " + arg);
+                printUsage();
                 System.exit(1);
             }
         }
@@ -30,16 +36,24 @@ public class ServerMain {
         // 创建RequestRouter并注册所有handler
         RequestRouter router = new RequestRouter();
         
+        // 访问日志作为最外层的全局过滤器
+        router.addFilter(new AccessLogFilter());
+        
         // 注册API端点
-        router.registerHandler("/api/register", new RegisterHandler(userRegistry));
-        router.registerHandler("/api/login", new LoginHandler(userRegistry));
+        router.post("/api/register", new RegisterHandler(userRegistry));
+        router.post("/api/login", new LoginHandler(userRegistry));
         
         // 设置StaticResourceHandler为默认handler
         StaticResourceHandler staticHandler = new StaticResourceHandler(STATIC_RESOURCES_PATH);
         router.setDefaultHandler(staticHandler);
         
+        // 选择I/O引擎和工作线程执行模式
+        ServerEngine engine = parseOption(args, "engine", ENGINE_PROPERTY, ServerEngine.class, ServerEngine.BLOCKING);
+        ExecutorMode executorMode = parseOption(args, "executor", EXECUTOR_PROPERTY, ExecutorMode.class, ExecutorMode.POOL);
+        
         // 创建HttpServer实例
-        HttpServer server = new HttpServer(port, router);
+        HttpServer server = new HttpServer(port, router, THREAD_POOL_SIZE, engine,
+                Runtime.getRuntime().availableProcessors(), executorMode);
         
         // 添加优雅关闭钩子
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -55,6 +69,9 @@ public class ServerMain {
             System.out.println("  POST http://localhost:" + port + "/api/register");
             System.out.println("  POST http://localhost:" + port + "/api/login");
             System.out.println("Static resources served from: " + STATIC_RESOURCES_PATH);
+            System.out.println("Engine: " + engine + ", executor: " + executorMode
+                    + (executorMode == ExecutorMode.VIRTUAL && !ExecutorMode.isVirtualThreadSupported()
+                        ? " (unsupported, using thread pool)" : ""));
             System.out.println("Press Ctrl+C to stop the server");
             
             // 保持主线程运行
@@ -69,4 +86,33 @@ public class ServerMain {
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * 读取枚举选项，命令行参数（--name=value）优先于系统属性（-Dproperty=value）
+     */
+    private static <E extends Enum<E>> E parseOption(String[] args, String name, String property,
+                                                     Class<E> type, E defaultValue) {
+        String value = System.getProperty(property);
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                value = arg.substring(prefix.length());
+            }
+        }
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid " + name + ": " + value);
+            printUsage();
+            System.exit(1);
+            return defaultValue;
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java ServerMain [port] [--engine=blocking|nio] [--executor=pool|virtual]");
+    }
 }
@@ -1,21 +1,26 @@
 package com.http.server;
 
+import com.http.protocol.ServerClock;
+
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * 会话数据模型，表示一个活跃的用户会话
+ * 时间戳取自ServerClock（精度1秒），每次访问只是一次volatile读取
  */
 public class Session {
     private final String token;
     private final String username;
-    private final LocalDateTime createdAt;
-    private LocalDateTime lastAccessTime;
+    private final long createdAt;
+    private volatile long lastAccessTime;
 
     public Session(String token, String username) {
         this.token = token;
         this.username = username;
-        this.createdAt = LocalDateTime.now();
-        this.lastAccessTime = LocalDateTime.now();
+        this.createdAt = ServerClock.nowMillis();
+        this.lastAccessTime = createdAt;
     }
 
     public String getToken() {
@@ -27,14 +32,25 @@ public class Session {
     }
 
     public LocalDateTime getCreatedAt() {
-        return createdAt;
+        return toLocalDateTime(createdAt);
     }
 
     public LocalDateTime getLastAccessTime() {
+        return toLocalDateTime(lastAccessTime);
+    }
+
+    /**
+     * @return 最后访问时间（毫秒）
+     */
+    public long getLastAccessMillis() {
         return lastAccessTime;
     }
 
     public void updateLastAccessTime() {
-        this.lastAccessTime = LocalDateTime.now();
+        this.lastAccessTime = ServerClock.nowMillis();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
     }
 }
@@ -0,0 +1,284 @@
+package com.http.server;
+
+import com.http.protocol.EncodedHeaders;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 静态资源缓存
+ * 缓存文件内容和预编码的响应头，按总字节数限制容量，超出时淘汰最久未访问的条目（LRU）。
+ * 通过WatchService监听根目录及其子目录，文件变化时使对应条目失效，
+ * 命中缓存时不需要任何文件系统调用；平台不支持WatchService时退化为每次命中检查修改时间和大小
+ */
+final class StaticResourceCache {
+
+    /**
+     * 文件的一种表示（原始内容或gzip压缩后的内容）：响应体、验证器和不随请求变化的响应头
+     */
+    static final class Variant {
+        final EncodedHeaders headers;
+        final EncodedHeaders notModifiedHeaders; // 304响应只带验证器
+        final byte[] body; // 被所有命中的响应共享，不能修改
+        final String etag;
+
+        Variant(EncodedHeaders headers, EncodedHeaders notModifiedHeaders, byte[] body, String etag) {
+            this.headers = headers;
+            this.notModifiedHeaders = notModifiedHeaders;
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+    /**
+     * 缓存条目：一个文件的原始表示和可选的gzip表示
+     */
+    static final class Entry {
+        final String mimeType;
+        final Variant identity;
+        final Variant gzip; // 不可压缩或压缩无收益时为null
+        final long lastModified;
+
+        Entry(String mimeType, Variant identity, Variant gzip, long lastModified) {
+            this.mimeType = mimeType;
+            this.identity = identity;
+            this.gzip = gzip;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return 条目占用的内容字节数
+         */
+        long size() {
+            return identity.body.length + (gzip != null ? gzip.body.length : 0);
+        }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long generation; // 每次失效时递增，防止把失效前读到的旧内容放进缓存
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    /**
+     * 创建缓存并开始监听根目录
+     * @param rootPath 静态资源根目录（绝对路径）
+     * @param maxBytes 缓存内容总字节数上限
+     * @param maxEntryBytes 单个文件的字节数上限，更大的文件不缓存
+     */
+    StaticResourceCache(Path rootPath, long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.watchService = startWatching(rootPath);
+    }
+
+    /**
+     * 文件是否足够小，可以放入缓存
+     */
+    boolean accepts(long size) {
+        return size <= maxEntryBytes && size <= maxBytes;
+    }
+
+    /**
+     * 查找缓存条目
+     * @param path 文件路径（绝对、规范化）
+     * @return 缓存条目，不存在或已过期时返回null
+     */
+    Entry get(Path path) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(path);
+        }
+        if (entry != null && watchService == null && isStale(path, entry)) {
+            invalidate(path);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * 当前代数，加载文件前读取，放入缓存时传回给put
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * 放入缓存条目，加载期间发生过失效时放弃（读到的可能是旧内容）
+     * @param path 文件路径（绝对、规范化）
+     * @param entry 缓存条目
+     * @param loadGeneration 开始加载前的代数
+     */
+    synchronized void put(Path path, Entry entry, long loadGeneration) {
+        if (loadGeneration != generation || entry.size() > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(path, entry);
+        if (previous != null) {
+            totalBytes -= previous.size();
+        }
+        totalBytes += entry.size();
+
+        // 按访问顺序从最久未访问的条目开始淘汰
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * 使路径及其下所有条目失效（路径可能是被删除或重命名的目录）
+     */
+    synchronized void invalidate(Path path) {
+        generation++;
+        Iterator<Map.Entry<Path, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Entry> cached = iterator.next();
+            if (cached.getKey().startsWith(path)) {
+                totalBytes -= cached.getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * 停止监听文件变化
+     */
+    void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Error closing watch service: " + e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isStale(Path path, Entry entry) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() != entry.lastModified
+                    || attributes.size() != entry.identity.body.length;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private WatchService startWatching(Path rootPath) {
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("File watching unavailable, static cache will check modification times: "
+                    + e.getMessage());
+            return null;
+        }
+        try {
+            registerTree(service, rootPath);
+        } catch (IOException e) {
+            System.err.println("File watching unavailable, static cache will check modification times: "
+                    + e.getMessage());
+            try {
+                service.close();
+            } catch (IOException ignored) {
+                // 已经在退化处理中
+            }
+            return null;
+        }
+
+        Thread watcher = new Thread(() -> watchLoop(service), "StaticResourceWatcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        return service;
+    }
+
+    private void registerTree(WatchService service, Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                synchronized (watchedDirectories) {
+                    watchedDirectories.put(key, dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 监听线程：把文件变化事件转换为缓存失效
+     */
+    private void watchLoop(WatchService service) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory;
+            synchronized (watchedDirectories) {
+                directory = watchedDirectories.get(key);
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    // 丢失了事件，无法知道哪些文件变了
+                    clear();
+                    continue;
+                }
+                Path changed = directory.resolve((Path) event.context());
+                invalidate(changed);
+                String name = changed.getFileName().toString();
+                if (name.endsWith(".gz")) {
+                    // 预压缩文件属于原文件的缓存条目
+                    invalidate(changed.resolveSibling(name.substring(0, name.length() - 3)));
+                }
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                    try {
+                        registerTree(service, changed);
+                    } catch (IOException | ClosedWatchServiceException e) {
+                        System.err.println("Error watching directory " + changed + ": " + e.getMessage());
+                    }
+                }
+            }
+
+            if (!key.reset()) {
+                // 目录已被删除
+                synchronized (watchedDirectories) {
+                    watchedDirectories.remove(key);
+                }
+                if (directory != null) {
+                    invalidate(directory);
+                }
+            }
+        }
+    }
+}
@@ -1,29 +1,65 @@
 package com.http.server;
 
+import com.http.protocol.ByteRange;
+import com.http.protocol.ConditionalRequests;
+import com.http.protocol.ContentCoding;
+import com.http.protocol.EncodedHeaders;
 import com.http.protocol.HttpRequest;
 import com.http.protocol.HttpResponse;
 import com.http.protocol.HttpStatus;
 import com.http.protocol.MimeType;
+import com.http.protocol.ResponseBody;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.FileSystemException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 静态资源处理器
  * 从指定根目录读取并提供静态文件服务
+ * 小文件连同响应头缓存在内存中，大文件每次用transferTo从磁盘发送。
+ * 响应带ETag（由文件大小和修改时间生成）和Last-Modified，客户端缓存仍然有效时返回304；
+ * 支持Range请求（单个范围和multipart/byteranges），只发送请求的字节。
+ * 客户端接受gzip时，文本类文件优先使用同目录下的.gz预压缩文件，没有时压缩一次后随缓存保存
  */
 public class StaticResourceHandler implements RequestHandler {
     
-    private final String rootDirectory;
+    public static final long DEFAULT_CACHE_SIZE = 32 * 1024 * 1024;
+    public static final long DEFAULT_MAX_CACHED_FILE_SIZE = 1024 * 1024;
+    
+    private final Path rootPath;
+    private final StaticResourceCache cache; // 为null时不缓存
 
     /**
-     * 构造静态资源处理器
+     * 构造静态资源处理器，使用默认大小的缓存
      * @param rootDirectory 静态资源根目录路径
      */
     public StaticResourceHandler(String rootDirectory) {
-        this.rootDirectory = rootDirectory;
+        this(rootDirectory, DEFAULT_CACHE_SIZE, DEFAULT_MAX_CACHED_FILE_SIZE);
+    }
+
+    /**
+     * 构造静态资源处理器
+     * @param rootDirectory 静态资源根目录路径
+     * @param cacheSize 缓存内容的总字节数上限，0表示不缓存
+     * @param maxCachedFileSize 可以缓存的单个文件大小上限
+     */
+    public StaticResourceHandler(String rootDirectory, long cacheSize, long maxCachedFileSize) {
+        this.rootPath = Paths.get(rootDirectory).toAbsolutePath().normalize();
+        this.cache = cacheSize > 0 && Files.isDirectory(rootPath)
+                ? new StaticResourceCache(rootPath, cacheSize, maxCachedFileSize)
+                : null;
     }
 
     /**
@@ -36,8 +72,8 @@ public class StaticResourceHandler implements RequestHandler {
         HttpResponse response = new HttpResponse();
         
         try {
-            // 获取请求的URI
-            String uri = request.getUri();
+            // 获取请求路径（忽略查询字符串，例如 /app.js?v=3）
+            String uri = request.getPath();
             
             // 如果URI是根路径，默认返回index.html
             if (uri.equals("/") || uri.isEmpty()) {
@@ -45,8 +81,7 @@ public class StaticResourceHandler implements RequestHandler {
             }
             
             // 构建文件路径
-            Path filePath = Paths.get(rootDirectory, uri).normalize();
-            Path rootPath = Paths.get(rootDirectory).normalize();
+            Path filePath = Paths.get(rootPath.toString(), uri).normalize();
             
             // 安全检查：防止路径遍历攻击
             if (!filePath.startsWith(rootPath)) {
@@ -56,26 +91,96 @@ public class StaticResourceHandler implements RequestHandler {
                 return response;
             }
             
-            // 检查文件是否存在
-            if (!Files.exists(filePath) || !Files.isRegularFile(filePath)) {
+            // 范围请求总是针对原始内容，不使用压缩表示
+            boolean acceptsGzip = request.getHeader("Range") == null
+                    && ContentCoding.GZIP.isAcceptedBy(request.getHeader("Accept-Encoding"));
+            
+            // 命中缓存：不访问文件系统
+            if (cache != null) {
+                StaticResourceCache.Entry cached = cache.get(filePath);
+                if (cached != null) {
+                    return cachedResponse(request, cached, acceptsGzip);
+                }
+            }
+            long generation = cache != null ? cache.generation() : 0;
+            
+            // 检查文件是否存在（一次stat同时得到类型和大小）
+            BasicFileAttributes attributes = readAttributes(filePath);
+            if (attributes == null || !attributes.isRegularFile()) {
                 response.setStatus(HttpStatus.NOT_FOUND);
                 response.setBody("404 Not Found");
                 response.setHeader("Content-Type", "text/plain");
                 return response;
             }
             
-            // 读取文件内容
-            byte[] fileContent = Files.readAllBytes(filePath);
-            
             // 根据文件扩展名设置Content-Type
             String filename = filePath.getFileName().toString();
             String mimeType = MimeType.getByExtension(filename);
             
-            // 构建成功响应
+            long fileSize = attributes.size();
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (cache != null && cache.accepts(fileSize)) {
+                StaticResourceCache.Entry loaded = load(filePath, mimeType, fileSize, lastModified);
+                if (loaded != null) {
+                    cache.put(filePath, loaded, generation);
+                    return cachedResponse(request, loaded, acceptsGzip);
+                }
+            }
+            
+            // 大文件不在内存中压缩，只使用已有的.gz预压缩文件
+            boolean compressible = ResponseCompressor.isCompressible(mimeType);
+            String etag = ConditionalRequests.etag(fileSize, lastModified);
+            Path bodyPath = filePath;
+            long bodySize = fileSize;
+            boolean gzip = false;
+            if (compressible && acceptsGzip) {
+                Path gzipPath = precompressedPath(filePath);
+                BasicFileAttributes gzipAttributes = readAttributes(gzipPath);
+                if (isFreshPrecompressed(gzipAttributes, lastModified)) {
+                    bodyPath = gzipPath;
+                    bodySize = gzipAttributes.size();
+                    etag = gzipEtag(etag);
+                    gzip = true;
+                }
+            }
+            
+            String lastModifiedDate = ConditionalRequests.formatDate(lastModified);
+            if (ConditionalRequests.isNotModified(request, etag, lastModified)) {
+                response.setStatus(HttpStatus.NOT_MODIFIED);
+                response.setHeader("ETag", etag);
+                response.setHeader("Last-Modified", lastModifiedDate);
+                if (compressible) {
+                    response.setHeader("Vary", "Accept-Encoding");
+                }
+                return response;
+            }
+            
+            HttpResponse partial = rangeResponse(request, mimeType, fileSize, etag, lastModified,
+                    range -> ResponseBody.ofFile(filePath, range.getStart(), range.getLength()));
+            if (partial != null) {
+                partial.setHeader("ETag", etag);
+                partial.setHeader("Last-Modified", lastModifiedDate);
+                if (compressible) {
+                    partial.setHeader("Vary", "Accept-Encoding");
+                }
+                return partial;
+            }
+            
+            // 构建成功响应，文件内容不读入堆，由连接层用transferTo直接发送
             response.setStatus(HttpStatus.OK);
-            response.setBody(fileContent);
+            response.setBody(ResponseBody.ofFile(bodyPath, 0, bodySize));
             response.setHeader("Content-Type", mimeType);
-            response.setHeader("Content-Length", String.valueOf(fileContent.length));
+            response.setHeader("Content-Length", String.valueOf(bodySize));
+            if (gzip) {
+                response.setHeader("Content-Encoding", "gzip");
+            } else {
+                response.setHeader("Accept-Ranges", "bytes");
+            }
+            if (compressible) {
+                response.setHeader("Vary", "Accept-Encoding");
+            }
+            response.setHeader("ETag", etag);
+            response.setHeader("Last-Modified", lastModifiedDate);
             
         } catch (IOException e) {
             // 文件读取错误，返回500
@@ -86,4 +191,213 @@ public class StaticResourceHandler implements RequestHandler {
         
         return response;
     }
+
+    /**
+     * 停止缓存的文件监听，服务器关闭后不再使用处理器时调用
+     */
+    public void close() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    /**
+     * 用缓存条目构建响应，响应头和响应体都与缓存共享
+     */
+    private static HttpResponse cachedResponse(HttpRequest request, StaticResourceCache.Entry entry,
+                                               boolean acceptsGzip) {
+        StaticResourceCache.Variant variant = acceptsGzip && entry.gzip != null ? entry.gzip : entry.identity;
+        if (ConditionalRequests.isNotModified(request, variant.etag, entry.lastModified)) {
+            HttpResponse response = new HttpResponse(HttpStatus.NOT_MODIFIED);
+            response.setEncodedHeaders(variant.notModifiedHeaders);
+            return response;
+        }
+        byte[] content = entry.identity.body;
+        HttpResponse partial = rangeResponse(request, entry.mimeType, content.length,
+                entry.identity.etag, entry.lastModified,
+                range -> ResponseBody.ofBytes(content, (int) range.getStart(), (int) range.getLength()));
+        if (partial != null) {
+            partial.setEncodedHeaders(entry.identity.notModifiedHeaders);
+            return partial;
+        }
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.setEncodedHeaders(variant.headers);
+        response.setBody(variant.body);
+        return response;
+    }
+
+    /**
+     * 处理Range请求
+     * @param slicer 根据范围创建只包含这段数据的响应体
+     * @return 206或416响应；没有Range头、Range头无效或If-Range不匹配时返回null，表示返回完整内容
+     */
+    private static HttpResponse rangeResponse(HttpRequest request, String mimeType, long size, String etag,
+                                              long lastModified, RangeSlicer slicer) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        List<ByteRange> ranges = ByteRange.parse(request.getHeader("Range"), size);
+        if (ranges == null || !ConditionalRequests.isRangeApplicable(request, etag, lastModified)) {
+            return null;
+        }
+        
+        if (ranges.isEmpty()) {
+            HttpResponse response = new HttpResponse(HttpStatus.RANGE_NOT_SATISFIABLE);
+            response.setHeader("Content-Range", "bytes */" + size);
+            return response;
+        }
+        
+        HttpResponse response = new HttpResponse(HttpStatus.PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setBody(slicer.slice(range));
+            response.setHeader("Content-Type", mimeType);
+            response.setHeader("Content-Range", range.toContentRange(size));
+            response.setHeader("Content-Length", String.valueOf(range.getLength()));
+            return response;
+        }
+        
+        // 多个范围：multipart/byteranges，每个部分前是分隔行和该部分的头
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong()) + "byteranges";
+        List<ResponseBody> parts = new ArrayList<>(ranges.size() * 2 + 1);
+        for (ByteRange range : ranges) {
+            parts.add(ascii("\r\n--" + boundary + "\r\n" +
+                    "Content-Type: " + mimeType + "\r\n" +
+                    "Content-Range: " + range.toContentRange(size) + "\r\n\r\n"));
+            parts.add(slicer.slice(range));
+        }
+        parts.add(ascii("\r\n--" + boundary + "--\r\n"));
+        
+        ResponseBody body = ResponseBody.concat(parts);
+        response.setBody(body);
+        response.setHeader("Content-Type", "multipart/byteranges; boundary=" + boundary);
+        response.setHeader("Content-Length", String.valueOf(body.contentLength()));
+        return response;
+    }
+
+    private static ResponseBody ascii(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return ResponseBody.ofBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 按范围截取资源内容（文件区域或缓存数组的一段）
+     */
+    @FunctionalInterface
+    private interface RangeSlicer {
+        ResponseBody slice(ByteRange range);
+    }
+
+    /**
+     * 把文件读入内存并预编码响应头，文本类文件同时准备gzip表示
+     * @return 缓存条目，读取期间文件大小发生变化时返回null
+     */
+    private static StaticResourceCache.Entry load(Path filePath, String mimeType, long size, long lastModified)
+            throws IOException {
+        byte[] content = readFully(filePath, size);
+        if (content == null) {
+            return null;
+        }
+        
+        boolean compressible = ResponseCompressor.isCompressible(mimeType);
+        String etag = ConditionalRequests.etag(size, lastModified);
+        String lastModifiedDate = ConditionalRequests.formatDate(lastModified);
+        StaticResourceCache.Variant identity =
+                variant(mimeType, content, etag, lastModifiedDate, compressible, false);
+        
+        StaticResourceCache.Variant gzip = null;
+        if (compressible) {
+            byte[] compressed = null;
+            Path gzipPath = precompressedPath(filePath);
+            BasicFileAttributes gzipAttributes = readAttributes(gzipPath);
+            if (isFreshPrecompressed(gzipAttributes, lastModified)) {
+                compressed = readFully(gzipPath, gzipAttributes.size());
+            }
+            if (compressed == null && size >= ResponseCompressor.DEFAULT_MIN_SIZE) {
+                compressed = ContentCoding.GZIP.encode(content, 0, content.length);
+                if (compressed.length >= size) {
+                    compressed = null; // 压缩没有收益
+                }
+            }
+            if (compressed != null) {
+                gzip = variant(mimeType, compressed, gzipEtag(etag), lastModifiedDate, true, true);
+            }
+        }
+        return new StaticResourceCache.Entry(mimeType, identity, gzip, lastModified);
+    }
+
+    /**
+     * 预编码一种表示的响应头
+     */
+    private static StaticResourceCache.Variant variant(String mimeType, byte[] body, String etag,
+                                                       String lastModifiedDate, boolean vary, boolean gzip) {
+        Map<String, String> notModified = new LinkedHashMap<>();
+        notModified.put("ETag", etag);
+        notModified.put("Last-Modified", lastModifiedDate);
+        if (vary) {
+            notModified.put("Vary", "Accept-Encoding");
+        }
+        
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", mimeType);
+        headers.put("Content-Length", String.valueOf(body.length));
+        if (gzip) {
+            headers.put("Content-Encoding", "gzip");
+        } else {
+            headers.put("Accept-Ranges", "bytes");
+        }
+        headers.putAll(notModified);
+        return new StaticResourceCache.Variant(EncodedHeaders.of(headers), EncodedHeaders.of(notModified), body, etag);
+    }
+
+    /**
+     * 读取整个文件
+     * @return 文件内容，实际大小与预期不符（文件正在被修改）时返回null
+     */
+    private static byte[] readFully(Path path, long size) throws IOException {
+        byte[] content = new byte[(int) size];
+        try (FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    return null;
+                }
+            }
+            if (channel.size() != size) {
+                return null;
+            }
+        }
+        return content;
+    }
+
+    private static Path precompressedPath(Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + ".gz");
+    }
+
+    /**
+     * 预压缩文件存在且不比原文件旧时才使用，避免原文件更新后发送过期内容
+     */
+    private static boolean isFreshPrecompressed(BasicFileAttributes attributes, long lastModified) {
+        return attributes != null && attributes.isRegularFile()
+                && attributes.lastModifiedTime().toMillis() >= lastModified;
+    }
+
+    /**
+     * gzip表示使用不同的ETag，两种表示的字节不同
+     */
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * 读取文件属性，文件不可访问时返回null
+     */
+    private static BasicFileAttributes readAttributes(Path filePath) throws IOException {
+        try {
+            return Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (FileSystemException e) {
+            // 文件不存在、路径中间不是目录或无权访问，与Files.exists返回false的情况一致
+            return null;
+        }
+    }
 }
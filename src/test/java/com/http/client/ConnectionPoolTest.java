@@ -0,0 +1,165 @@
+package com.http.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ConnectionPool单元测试
+ */
+class ConnectionPoolTest {
+
+    private ServerSocket server;
+    private Thread acceptThread;
+    private final List<Socket> accepted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new ServerSocket(0);
+        acceptThread = new Thread(() -> {
+            try {
+                while (true) {
+                    Socket socket = server.accept();
+                    synchronized (accepted) {
+                        accepted.add(socket);
+                    }
+                }
+            } catch (IOException ignored) {
+                // 服务器关闭
+            }
+        });
+        acceptThread.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+        acceptThread.join(1000);
+        synchronized (accepted) {
+            for (Socket socket : accepted) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void testReleasedConnectionIsReused() throws IOException {
+        ConnectionPool pool = new ConnectionPool(2, 10, 60000);
+        ConnectionPool.PooledConnection first = pool.acquire("localhost", server.getLocalPort(), 1000);
+        assertFalse(first.isReused());
+        pool.release(first, true);
+
+        ConnectionPool.PooledConnection second = pool.acquire("localhost", server.getLocalPort(), 1000);
+        assertSame(first, second);
+        assertTrue(second.isReused());
+        pool.release(second, false);
+        assertEquals(0, pool.openConnections());
+    }
+
+    @Test
+    void testRouteLimitWaitsForRelease() throws Exception {
+        ConnectionPool pool = new ConnectionPool(1, 10, 60000);
+        ConnectionPool.PooledConnection first = pool.acquire("localhost", server.getLocalPort(), 1000);
+
+        IOException e = assertThrows(IOException.class,
+                () -> pool.acquire("localhost", server.getLocalPort(), 100));
+        assertTrue(e.getMessage().contains("Timeout waiting for connection"), e.getMessage());
+
+        // 另一个线程归还连接后，等待中的请求拿到它
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+            pool.release(first, true);
+        });
+        releaser.start();
+        assertSame(first, pool.acquire("localhost", server.getLocalPort(), 2000));
+        releaser.join();
+        assertEquals(1, pool.openConnections());
+    }
+
+    @Test
+    void testTotalLimitEvictsIdleConnectionOfAnotherRoute() throws IOException {
+        ConnectionPool pool = new ConnectionPool(5, 1, 60000);
+        ConnectionPool.PooledConnection first = pool.acquire("localhost", server.getLocalPort(), 1000);
+        pool.release(first, true);
+
+        // 127.0.0.1是另一个路由，总数已满时关闭localhost的空闲连接让位
+        ConnectionPool.PooledConnection second = pool.acquire("127.0.0.1", server.getLocalPort(), 1000);
+        assertNotSame(first, second);
+        assertTrue(first.socket().isClosed());
+        assertEquals(1, pool.openConnections());
+        assertEquals(0, pool.idleConnections());
+        pool.release(second, false);
+    }
+
+    @Test
+    void testExpiredAndStaleConnectionsAreClosed() throws Exception {
+        ConnectionPool pool = new ConnectionPool(5, 10, 0);
+        ConnectionPool.PooledConnection expired = pool.acquire("localhost", server.getLocalPort(), 1000);
+        pool.release(expired, true);
+        assertTrue(expired.socket().isClosed(), "Idle timeout 0 disables pooling");
+        assertEquals(0, pool.openConnections());
+
+        pool.setIdleTimeout(60000);
+        ConnectionPool.PooledConnection stale = pool.acquire("localhost", server.getLocalPort(), 1000);
+        pool.release(stale, true);
+        // 服务器端关闭连接，借出前的检查发现并换一个新连接
+        synchronized (accepted) {
+            while (accepted.size() < 2) {
+                accepted.wait(10);
+            }
+            accepted.get(1).close();
+        }
+        Thread.sleep(50);
+        ConnectionPool.PooledConnection fresh = pool.acquire("localhost", server.getLocalPort(), 1000);
+        assertNotSame(stale, fresh);
+        assertFalse(fresh.isReused());
+        pool.release(fresh, false);
+        assertEquals(0, pool.openConnections());
+    }
+
+    @Test
+    void testIdleConnectionsElsewhereAreEvictedOneAtATime() {
+        ConnectionPool pool = new ConnectionPool(2, 10, 60000);
+        List<ConnectionPool.IdleConnection> evicted = new ArrayList<>();
+        List<ConnectionPool.IdleConnection> idle = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            assertTrue(pool.tryReserve("a:1"));
+            ConnectionPool.IdleConnection connection = new ConnectionPool.IdleConnection() {
+                @Override
+                public String route() {
+                    return "a:1";
+                }
+
+                @Override
+                public void evict() {
+                    evicted.add(this);
+                }
+            };
+            idle.add(connection);
+            pool.addIdle(connection);
+        }
+
+        // 名额已满：请最久空闲的连接让位，关闭完成之前不重复请求
+        assertFalse(pool.tryReserve("a:1"));
+        assertFalse(pool.tryReserve("a:1"));
+        assertEquals(List.of(idle.get(0)), evicted);
+        assertFalse(pool.removeIdle(idle.get(0)), "An evicted connection must not be reused");
+
+        pool.releaseReserved(idle.get(0));
+        assertTrue(pool.tryReserve("a:1"));
+        assertTrue(pool.removeIdle(idle.get(1)));
+        assertEquals(2, pool.openConnections());
+    }
+}
@@ -1,20 +1,29 @@
 package com.http.client;
 
 import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpRequestReader;
 import com.http.protocol.HttpResponse;
 import com.http.protocol.HttpStatus;
+import com.http.protocol.ResponseBody;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -337,6 +346,481 @@ class HttpClientTest {
         assertTrue(exception.getMessage().contains("Too many redirects"));
     }
     
+    @Test
+    void testKeepAliveConnectionIsReused() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+
+        serverThread = new Thread(() -> {
+            try {
+                Socket client = testServer.accept();
+                accepted.incrementAndGet();
+                HttpRequestReader reader = new HttpRequestReader(client.getInputStream());
+                OutputStream out = client.getOutputStream();
+                HttpRequest request;
+                while ((request = reader.readRequest()) != null) {
+                    HttpResponse response = new HttpResponse(HttpStatus.OK);
+                    response.setBody("echo " + request.getUri());
+                    out.write(response.toBytes());
+                    out.flush();
+                }
+                client.close();
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        try (HttpClient client = new HttpClient()) {
+            for (int i = 0; i < 3; i++) {
+                HttpResponse response = client.send(new HttpRequest("GET", "http://localhost:" + testPort + "/r" + i));
+                assertEquals("echo /r" + i, response.getBodyAsString());
+            }
+            assertEquals(1, accepted.get(), "All requests should share one connection");
+            assertEquals(1, client.getIdleConnectionCount());
+        }
+    }
+
+    @Test
+    void testClosedPooledConnectionIsReplaced() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+
+        serverThread = new Thread(() -> {
+            try {
+                for (int i = 0; i < 2; i++) {
+                    // 每个连接只处理一个请求就关闭，但响应没有声明Connection: close
+                    Socket client = testServer.accept();
+                    accepted.incrementAndGet();
+                    new HttpRequestReader(client.getInputStream()).readRequest();
+                    HttpResponse response = new HttpResponse(HttpStatus.OK);
+                    byte[] body = ("chunked " + i).getBytes(StandardCharsets.UTF_8);
+                    response.setBody(ResponseBody.ofStream(new ByteArrayInputStream(body), -1));
+                    client.getOutputStream().write(response.toBytes());
+                    client.close();
+                }
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        try (HttpClient client = new HttpClient()) {
+            assertEquals("chunked 0", client.send(new HttpRequest("GET", "http://localhost:" + testPort + "/a"))
+                    .getBodyAsString());
+            assertEquals("chunked 1", client.send(new HttpRequest("GET", "http://localhost:" + testPort + "/b"))
+                    .getBodyAsString());
+            assertEquals(2, accepted.get());
+        }
+    }
+
+    @Test
+    void testConnectionCloseResponseIsNotPooled() throws Exception {
+        serverThread = new Thread(() -> {
+            try {
+                Socket client = testServer.accept();
+                new HttpRequestReader(client.getInputStream()).readRequest();
+                HttpResponse response = new HttpResponse(HttpStatus.OK);
+                response.setHeader("Connection", "close");
+                response.setBody("bye");
+                client.getOutputStream().write(response.toBytes());
+                client.close();
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        try (HttpClient client = new HttpClient()) {
+            HttpResponse response = client.send(new HttpRequest("GET", "http://localhost:" + testPort + "/"));
+            assertEquals("bye", response.getBodyAsString());
+            assertEquals(0, client.getIdleConnectionCount());
+        }
+    }
+
+    @Test
+    void testSendBatchPipelinesRequests() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+
+        serverThread = new Thread(() -> {
+            try {
+                // 先读完全部请求再响应：只有流水线发送的客户端才能完成
+                Socket client = testServer.accept();
+                accepted.incrementAndGet();
+                client.setSoTimeout(5000);
+                HttpRequestReader reader = new HttpRequestReader(client.getInputStream());
+                List<HttpRequest> requests = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    requests.add(reader.readRequest());
+                }
+                ByteArrayOutputStream responses = new ByteArrayOutputStream();
+                for (HttpRequest request : requests) {
+                    HttpResponse response = new HttpResponse(HttpStatus.OK);
+                    byte[] body = ("batch " + request.getUri()).getBytes(StandardCharsets.UTF_8);
+                    if (request.getUri().endsWith("2")) {
+                        response.setBody(ResponseBody.ofStream(new ByteArrayInputStream(body), -1)); // chunked
+                    } else {
+                        response.setBody(body);
+                    }
+                    responses.write(response.toBytes());
+                }
+                // 全部响应一次写出，客户端必须保留读多了的字节
+                client.getOutputStream().write(responses.toByteArray());
+                while (reader.readRequest() != null) {
+                    // 等待客户端关闭连接
+                }
+                client.close();
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        List<HttpRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(new HttpRequest("GET", "http://localhost:" + testPort + "/item" + i));
+        }
+        try (HttpClient client = new HttpClient()) {
+            List<HttpResponse> responses = client.sendBatch(requests);
+            assertEquals(5, responses.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals("batch /item" + i, responses.get(i).getBodyAsString());
+            }
+            assertEquals(1, accepted.get(), "Batch should be pipelined on one connection");
+            assertEquals(1, client.getIdleConnectionCount());
+        }
+    }
+
+    @Test
+    void testSendBatchResendsAfterConnectionClose() throws Exception {
+        List<String> served = new ArrayList<>();
+
+        serverThread = new Thread(() -> {
+            try {
+                // 第一个连接只响应两个请求，第二个响应带Connection: close
+                for (int c = 0; c < 2; c++) {
+                    Socket client = testServer.accept();
+                    HttpRequestReader reader = new HttpRequestReader(client.getInputStream());
+                    OutputStream out = client.getOutputStream();
+                    HttpRequest request;
+                    int count = 0;
+                    while ((request = reader.readRequest()) != null) {
+                        synchronized (served) {
+                            served.add(c + " " + request.getMethod() + " " + request.getUri());
+                        }
+                        HttpResponse response = new HttpResponse(HttpStatus.OK);
+                        response.setBody(request.getMethod() + " " + request.getUri());
+                        if (c == 0 && ++count == 2) {
+                            response.setHeader("Connection", "close");
+                            out.write(response.toBytes());
+                            break;
+                        }
+                        out.write(response.toBytes());
+                        out.flush();
+                    }
+                    client.close();
+                }
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        List<HttpRequest> requests = new ArrayList<>();
+        requests.add(new HttpRequest("GET", "http://localhost:" + testPort + "/a"));
+        requests.add(new HttpRequest("GET", "http://localhost:" + testPort + "/b"));
+        requests.add(new HttpRequest("GET", "http://localhost:" + testPort + "/c"));
+        HttpRequest post = new HttpRequest("POST", "http://localhost:" + testPort + "/d");
+        post.setBody("data");
+        requests.add(post);
+        requests.add(new HttpRequest("GET", "http://localhost:" + testPort + "/e"));
+
+        try (HttpClient client = new HttpClient()) {
+            List<HttpResponse> responses = client.sendBatch(requests);
+            assertEquals("GET /a", responses.get(0).getBodyAsString());
+            assertEquals("GET /b", responses.get(1).getBodyAsString());
+            assertEquals("GET /c", responses.get(2).getBodyAsString());
+            assertEquals("POST /d", responses.get(3).getBodyAsString());
+            assertEquals("GET /e", responses.get(4).getBodyAsString());
+        }
+        // 没有响应的GET /c在第二个连接上重发，POST只执行一次
+        synchronized (served) {
+            assertTrue(served.contains("1 GET /c"));
+            assertEquals(1, served.stream().filter(line -> line.endsWith("POST /d")).count());
+        }
+    }
+
+    @Test
+    void testSendBatchDoesNotPipelineBodiesOrLargeRequests() throws Exception {
+        List<String> served = new ArrayList<>();
+
+        serverThread = new Thread(() -> {
+            try {
+                // 每读到一个请求时记录缓冲区里是否已经有下一个请求的数据
+                Socket client = testServer.accept();
+                HttpRequestReader reader = new HttpRequestReader(client.getInputStream());
+                OutputStream out = client.getOutputStream();
+                HttpRequest request;
+                while ((request = reader.readRequest()) != null) {
+                    synchronized (served) {
+                        served.add(request.getUri() + " " + reader.hasBufferedData());
+                    }
+                    HttpResponse response = new HttpResponse(HttpStatus.OK);
+                    response.setBody(request.getMethod() + " " + request.getUri());
+                    out.write(response.toBytes());
+                    out.flush();
+                }
+                client.close();
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        // 带请求体的PUT单独发送；两个各约9KB的请求超过流水线字节上限，也逐个发送
+        String padding = "x".repeat(9000);
+        List<HttpRequest> requests = new ArrayList<>();
+        requests.add(new HttpRequest("GET", "http://localhost:" + testPort + "/a"));
+        HttpRequest put = new HttpRequest("PUT", "http://localhost:" + testPort + "/b");
+        put.setBody("data");
+        requests.add(put);
+        for (String path : List.of("/c", "/d")) {
+            HttpRequest large = new HttpRequest("GET", "http://localhost:" + testPort + path);
+            large.setHeader("X-Padding", padding);
+            requests.add(large);
+        }
+
+        try (HttpClient client = new HttpClient()) {
+            List<HttpResponse> responses = client.sendBatch(requests);
+            assertEquals("PUT /b", responses.get(1).getBodyAsString());
+            assertEquals("GET /d", responses.get(3).getBodyAsString());
+        }
+        synchronized (served) {
+            assertEquals(List.of("/a false", "/b false", "/c false", "/d false"), served);
+        }
+    }
+
+    @Test
+    void testSendAsyncReusesConnection() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+
+        serverThread = new Thread(() -> {
+            try {
+                Socket client = testServer.accept();
+                accepted.incrementAndGet();
+                HttpRequestReader reader = new HttpRequestReader(client.getInputStream());
+                OutputStream out = client.getOutputStream();
+                HttpRequest request;
+                while ((request = reader.readRequest()) != null) {
+                    HttpResponse response;
+                    if (request.getUri().equals("/old")) {
+                        response = new HttpResponse(HttpStatus.MOVED_PERMANENTLY);
+                        response.setHeader("Location", "http://localhost:" + testPort + "/new");
+                        response.setHeader("Content-Length", "0");
+                    } else {
+                        response = new HttpResponse(HttpStatus.OK);
+                        response.setBody("async " + request.getUri());
+                    }
+                    out.write(response.toBytes());
+                    out.flush();
+                }
+                client.close();
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        try (HttpClient client = new HttpClient()) {
+            for (int i = 0; i < 3; i++) {
+                HttpResponse response = client.sendAsync(new HttpRequest("GET", "http://localhost:" + testPort + "/r" + i))
+                        .get(5, TimeUnit.SECONDS);
+                assertEquals("async /r" + i, response.getBodyAsString());
+            }
+            // 重定向在同一个future中完成
+            HttpResponse redirected = client.sendAsync(new HttpRequest("GET", "http://localhost:" + testPort + "/old"))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals("async /new", redirected.getBodyAsString());
+            assertEquals(1, accepted.get(), "All async requests should share one connection");
+        }
+    }
+
+    @Test
+    void testSendAsyncRespectsConnectionLimit() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+
+        serverThread = new Thread(() -> {
+            try {
+                while (serverRunning) {
+                    Socket client = testServer.accept();
+                    accepted.incrementAndGet();
+                    new Thread(() -> {
+                        try (Socket socket = client) {
+                            HttpRequestReader reader = new HttpRequestReader(socket.getInputStream());
+                            OutputStream out = socket.getOutputStream();
+                            HttpRequest request;
+                            while ((request = reader.readRequest()) != null) {
+                                Thread.sleep(50);
+                                HttpResponse response = new HttpResponse(HttpStatus.OK);
+                                response.setBody("limited " + request.getUri());
+                                out.write(response.toBytes());
+                                out.flush();
+                            }
+                        } catch (IOException | InterruptedException ignored) {
+                            // 客户端关闭连接
+                        }
+                    }).start();
+                }
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        try (HttpClient client = new HttpClient()) {
+            client.setMaxConnectionsPerRoute(1);
+            List<CompletableFuture<HttpResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(client.sendAsync(new HttpRequest("GET", "http://localhost:" + testPort + "/q" + i)));
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals("limited /q" + i, futures.get(i).get(5, TimeUnit.SECONDS).getBodyAsString());
+            }
+            assertEquals(1, accepted.get(), "Concurrent async requests should queue for the only connection");
+        }
+    }
+
+    @Test
+    void testSyncAndAsyncRequestsShareIdleConnections() throws Exception {
+        serverThread = new Thread(() -> {
+            try {
+                while (serverRunning) {
+                    Socket client = testServer.accept();
+                    new Thread(() -> {
+                        try (Socket socket = client) {
+                            HttpRequestReader reader = new HttpRequestReader(socket.getInputStream());
+                            OutputStream out = socket.getOutputStream();
+                            HttpRequest request;
+                            while ((request = reader.readRequest()) != null) {
+                                HttpResponse response = new HttpResponse(HttpStatus.OK);
+                                response.setBody("mixed " + request.getUri());
+                                out.write(response.toBytes());
+                                out.flush();
+                            }
+                        } catch (IOException ignored) {
+                            // 客户端关闭连接
+                        }
+                    }).start();
+                }
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        String base = "http://localhost:" + testPort;
+        try (HttpClient client = new HttpClient()) {
+            // 每个路由的名额都被异步请求的空闲连接占着，阻塞请求要请事件循环关闭其中一个
+            client.setMaxConnectionsPerRoute(2);
+            List<CompletableFuture<HttpResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(client.sendAsync(new HttpRequest("GET", base + "/a" + i)));
+            }
+            for (CompletableFuture<HttpResponse> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            long start = System.currentTimeMillis();
+            assertEquals("mixed /s0", client.send(new HttpRequest("GET", base + "/s0")).getBodyAsString());
+            assertTrue(System.currentTimeMillis() - start < 2000, "send() should reclaim an idle async connection");
+
+            // 总名额只有1个：阻塞和异步请求轮流让出对方的空闲连接
+            client.setMaxConnectionsTotal(1);
+            for (int i = 0; i < 2; i++) {
+                assertEquals("mixed /a" + i, client.sendAsync(new HttpRequest("GET", base + "/a" + i))
+                        .get(5, TimeUnit.SECONDS).getBodyAsString());
+                assertEquals("mixed /s" + i, client.send(new HttpRequest("GET", base + "/s" + i)).getBodyAsString());
+            }
+        }
+    }
+
+    @Test
+    void testSendAsyncTimeout() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+
+        serverThread = new Thread(() -> {
+            try {
+                // 读取请求但从不响应，等待客户端超时后关闭连接
+                Socket client = testServer.accept();
+                new HttpRequestReader(client.getInputStream()).readRequest();
+                if (client.getInputStream().read() == -1) {
+                    closed.countDown();
+                }
+                client.close();
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        try (HttpClient client = new HttpClient()) {
+            CompletableFuture<HttpResponse> future =
+                    client.sendAsync(new HttpRequest("GET", "http://localhost:" + testPort + "/slow"), 300);
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(SocketTimeoutException.class, exception.getCause());
+            assertTrue(closed.await(5, TimeUnit.SECONDS), "Timed out connection should be closed");
+        }
+    }
+
+    @Test
+    void testCancelledSendAsyncClosesConnection() throws Exception {
+        CountDownLatch received = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+
+        serverThread = new Thread(() -> {
+            try {
+                Socket client = testServer.accept();
+                new HttpRequestReader(client.getInputStream()).readRequest();
+                received.countDown();
+                if (client.getInputStream().read() == -1) {
+                    closed.countDown();
+                }
+                client.close();
+            } catch (IOException e) {
+                if (serverRunning) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        serverThread.start();
+
+        try (HttpClient client = new HttpClient()) {
+            CompletableFuture<HttpResponse> future =
+                    client.sendAsync(new HttpRequest("GET", "http://localhost:" + testPort + "/wait"));
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertTrue(future.cancel(true));
+            assertTrue(closed.await(5, TimeUnit.SECONDS), "Cancelled request should close its connection");
+        }
+    }
+
     @Test
     void testConnectionTimeout() {
         // 使用一个不存在的IP地址来触发连接超时
@@ -0,0 +1,50 @@
+package com.http.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+    @Test
+    void testParseSingleRanges() {
+        assertEquals(List.of(new ByteRange(0, 99)), ByteRange.parse("bytes=0-99", 1000));
+        assertEquals(List.of(new ByteRange(900, 999)), ByteRange.parse("bytes=900-", 1000));
+        assertEquals(List.of(new ByteRange(500, 999)), ByteRange.parse("bytes=-500", 1000));
+        // 结尾超出资源大小时截断
+        assertEquals(List.of(new ByteRange(990, 999)), ByteRange.parse("bytes=990-5000", 1000));
+        assertEquals(List.of(new ByteRange(0, 999)), ByteRange.parse("bytes=-5000", 1000));
+    }
+
+    @Test
+    void testParseMultipleRangesSortsAndCoalesces() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=500-599, 0-9, 5-20, 21-30", 1000);
+
+        assertEquals(List.of(new ByteRange(0, 30), new ByteRange(500, 599)), ranges);
+    }
+
+    @Test
+    void testUnsatisfiableRangesAreDropped() {
+        assertEquals(List.of(new ByteRange(0, 9)), ByteRange.parse("bytes=0-9,2000-3000", 1000));
+        assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 1000).isEmpty());
+    }
+
+    @Test
+    void testInvalidHeadersAreIgnored() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-9", 1000));
+        assertNull(ByteRange.parse("bytes=9-0", 1000));
+        assertNull(ByteRange.parse("bytes=abc", 1000));
+        assertNull(ByteRange.parse("bytes=0-9,x-y", 1000));
+        assertNull(ByteRange.parse("bytes=" + "0-0,".repeat(100), 1000));
+    }
+
+    @Test
+    void testContentRange() {
+        assertEquals("bytes 0-99/1000", new ByteRange(0, 99).toContentRange(1000));
+        assertEquals(100, new ByteRange(0, 99).getLength());
+    }
+}
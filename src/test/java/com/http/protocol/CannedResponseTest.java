@@ -0,0 +1,102 @@
+package com.http.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CannedResponseTest {
+
+    @Test
+    void testWireBytesMatchEncodedResponse() {
+        HttpResponse response = new HttpResponse(HttpStatus.FOUND);
+        response.setHeader("Location", "/new");
+        response.setBody("302 Found");
+        byte[] expected = response.toBytes();
+
+        CannedResponse canned = CannedResponse.of(response);
+        response.setHeader("Location", "/changed");
+
+        assertArrayEquals(expected, canned.toBytes());
+        ByteBuffer wire = canned.wireBytes();
+        assertTrue(wire.isReadOnly());
+        byte[] bytes = new byte[wire.remaining()];
+        wire.get(bytes);
+        assertArrayEquals(expected, bytes);
+        // 每次返回独立的位置
+        assertEquals(expected.length, canned.wireBytes().remaining());
+        assertEquals("/new", canned.getHeader("Location"));
+    }
+
+    @Test
+    void testConnectionHeaderIsSpliced() throws IOException {
+        CannedResponse canned = CannedResponse.text(HttpStatus.NOT_FOUND, "404 Not Found");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        canned.writeTo(output, true);
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("Connection: keep-alive\r\n\r\n404 Not Found"), text);
+        assertTrue(text.contains("\r\nDate: "), text);
+
+        StringBuilder joined = new StringBuilder();
+        for (ByteBuffer buffer : canned.toBuffers(false)) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            joined.append(new String(bytes, StandardCharsets.UTF_8));
+        }
+        assertTrue(joined.toString().startsWith("HTTP/1.1 404 Not Found\r\n"));
+        assertTrue(joined.toString().endsWith("Connection: close\r\n\r\n404 Not Found"), joined.toString());
+        assertFalse(canned.closesConnection());
+    }
+
+    @Test
+    void testOwnConnectionHeaderIsKept() throws IOException {
+        HttpResponse response = new HttpResponse(HttpStatus.INTERNAL_SERVER_ERROR);
+        response.setHeader("Connection", "close");
+        CannedResponse canned = CannedResponse.of(response);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        canned.writeTo(output, true);
+        assertTrue(canned.closesConnection());
+        assertFalse(output.toString(StandardCharsets.UTF_8).contains("keep-alive"));
+        // 只插入Date头
+        assertEquals(3, canned.toBuffers(true).length);
+    }
+
+    @Test
+    void testHeadResponseKeepsContentLength() {
+        CannedResponse canned = CannedResponse.text(HttpStatus.OK, "hello");
+        CannedResponse head = canned.headResponse();
+
+        String text = new String(head.toBytes(), StandardCharsets.UTF_8);
+        assertTrue(text.contains("Content-Length: 5\r\n"), text);
+        assertTrue(text.endsWith("\r\n\r\n"), text);
+        assertTrue(head.isBodyOmitted());
+        assertSame(head, head.headResponse());
+    }
+
+    @Test
+    void testImmutable() {
+        CannedResponse canned = CannedResponse.text(HttpStatus.OK, "hello");
+
+        assertThrows(UnsupportedOperationException.class, () -> canned.setHeader("X", "1"));
+        assertThrows(UnsupportedOperationException.class, () -> canned.setBody("changed"));
+        assertThrows(UnsupportedOperationException.class, () -> canned.getHeaders().put("X", "1"));
+
+        HttpResponse copy = canned.copy();
+        copy.setHeader("X", "1");
+        assertEquals("1", copy.getHeader("X"));
+        assertEquals("hello", copy.getBodyAsString());
+        assertNull(canned.getHeader("X"));
+
+        HttpResponse mutable = canned.mutable();
+        assertNotSame(canned, mutable);
+        mutable.setHeader("X", "2");
+        assertNull(canned.getHeader("X"));
+        assertSame(copy, copy.mutable());
+    }
+}
@@ -0,0 +1,62 @@
+package com.http.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionalRequestsTest {
+
+    private static final String ETAG = "\"1a-5f\"";
+    private static final long LAST_MODIFIED = 1729495680000L; // Mon, 21 Oct 2024 07:28:00 GMT
+
+    @Test
+    void testIfNoneMatchListAndWeakComparison() {
+        assertTrue(ConditionalRequests.matchesAny(ETAG, ETAG));
+        assertTrue(ConditionalRequests.matchesAny("\"other\", " + ETAG, ETAG));
+        assertTrue(ConditionalRequests.matchesAny("W/" + ETAG, ETAG));
+        assertTrue(ConditionalRequests.matchesAny("\"a,b\",W/" + ETAG, ETAG));
+        assertTrue(ConditionalRequests.matchesAny("*", ETAG));
+        assertFalse(ConditionalRequests.matchesAny("\"a,b\", \"1a\"", ETAG));
+    }
+
+    @Test
+    void testIfModifiedSinceComparesDates() {
+        String date = ConditionalRequests.formatDate(LAST_MODIFIED);
+        assertEquals("Mon, 21 Oct 2024 07:28:00 GMT", date);
+        assertEquals(LAST_MODIFIED, ConditionalRequests.parseDate(date));
+
+        assertTrue(isNotModified("If-Modified-Since", date));
+        // 修改时间的毫秒部分不影响比较
+        assertTrue(ConditionalRequests.isNotModified(request("If-Modified-Since", date), ETAG, LAST_MODIFIED + 999));
+        assertTrue(isNotModified("If-Modified-Since", "Tue, 22 Oct 2024 00:00:00 GMT"));
+        assertFalse(isNotModified("If-Modified-Since", "Sun, 20 Oct 2024 00:00:00 GMT"));
+        assertFalse(isNotModified("If-Modified-Since", "not a date"));
+        assertEquals("Thu, 01 Jan 2015 00:00:00 GMT", ConditionalRequests.formatDate(1420070400000L));
+    }
+
+    @Test
+    void testIfNoneMatchTakesPrecedence() {
+        HttpRequest request = request("If-None-Match", "\"stale\"");
+        request.setHeader("If-Modified-Since", ConditionalRequests.formatDate(LAST_MODIFIED));
+
+        assertFalse(ConditionalRequests.isNotModified(request, ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void testOnlyGetAndHeadAreConditional() {
+        HttpRequest post = new HttpRequest("POST", "/");
+        post.setHeader("If-None-Match", ETAG);
+
+        assertFalse(ConditionalRequests.isNotModified(post, ETAG, LAST_MODIFIED));
+    }
+
+    private static boolean isNotModified(String header, String value) {
+        return ConditionalRequests.isNotModified(request(header, value), ETAG, LAST_MODIFIED);
+    }
+
+    private static HttpRequest request(String header, String value) {
+        HttpRequest request = new HttpRequest("GET", "/");
+        request.setHeader(header, value);
+        return request;
+    }
+}
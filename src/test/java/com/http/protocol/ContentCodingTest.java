@@ -0,0 +1,69 @@
+package com.http.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentCodingTest {
+
+    private static final byte[] JSON = "{\"users\":[{\"name\":\"alice\",\"active\":true}]}".repeat(50)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testNegotiate() {
+        assertNull(ContentCoding.negotiate(null));
+        assertNull(ContentCoding.negotiate("identity"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip, deflate, br"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("gzip;q=0, *"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*"));
+        assertNull(ContentCoding.negotiate("*;q=0"));
+    }
+
+    @Test
+    void testIsAcceptedBy() {
+        assertTrue(ContentCoding.GZIP.isAcceptedBy("deflate, gzip;q=0.1"));
+        assertFalse(ContentCoding.GZIP.isAcceptedBy("deflate"));
+        assertFalse(ContentCoding.GZIP.isAcceptedBy("gzip;q=0"));
+        assertFalse(ContentCoding.GZIP.isAcceptedBy(null));
+    }
+
+    @Test
+    void testGzipRoundTrip() throws IOException {
+        // 多次压缩复用同一个Deflater，结果必须独立且正确
+        for (int i = 0; i < 3; i++) {
+            byte[] compressed = ContentCoding.GZIP.encode(JSON, 0, JSON.length);
+            assertTrue(compressed.length < JSON.length);
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                assertArrayEquals(JSON, in.readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testDeflateRoundTrip() throws IOException {
+        byte[] compressed = ContentCoding.DEFLATE.encode(JSON, 10, 500);
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] expected = new byte[500];
+            System.arraycopy(JSON, 10, expected, 0, 500);
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testIncompressibleDataRoundTrip() throws IOException {
+        byte[] random = new byte[100_000];
+        new java.util.Random(7).nextBytes(random);
+
+        byte[] compressed = ContentCoding.GZIP.encode(random, 0, random.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(random, in.readAllBytes());
+        }
+    }
+}
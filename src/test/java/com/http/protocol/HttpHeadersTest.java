@@ -0,0 +1,105 @@
+package com.http.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpHeadersTest {
+
+    @Test
+    void testCaseInsensitiveLookup() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.put("Content-Type", "text/html");
+
+        assertEquals("text/html", headers.get("content-type"));
+        assertEquals("text/html", headers.get("CONTENT-TYPE"));
+        assertTrue(headers.containsKey("Content-type"));
+        assertFalse(headers.contains("Content-Typ"));
+        assertNull(headers.get("Content-Length"));
+    }
+
+    @Test
+    void testPutReplacesAllAndKeepsOriginalName() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Tag", "a").add("Other", "b").add("x-tag", "c");
+
+        assertEquals("a", headers.put("X-TAG", "d"));
+        assertEquals(2, headers.size());
+        assertEquals(List.of("d"), headers.getAll("x-tag"));
+        List<String> names = new ArrayList<>(headers.keySet());
+        assertEquals(List.of("X-Tag", "Other"), names);
+    }
+
+    @Test
+    void testRepeatedHeadersAreKeptInOrder() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.SET_COOKIE, "a=1");
+        headers.add("Content-Type", "text/plain");
+        headers.add("set-cookie", "b=2");
+
+        assertEquals("a=1", headers.get("Set-Cookie"));
+        assertEquals(List.of("a=1", "b=2"), headers.getAll("SET-COOKIE"));
+        assertEquals(3, headers.entrySet().size());
+
+        assertEquals("a=1", headers.remove("Set-Cookie"));
+        assertEquals(1, headers.size());
+        assertTrue(headers.getAll("Set-Cookie").isEmpty());
+    }
+
+    @Test
+    void testRawSlicesDecodeLazily() {
+        byte[] block = "Host: example.com\r\nX-Name: 名字\r\n".getBytes(StandardCharsets.UTF_8);
+        HttpHeaders headers = new HttpHeaders(block);
+        headers.addRaw(0, 4, 6, 17);
+        headers.addRaw(19, 25, 27, block.length - 2);
+
+        assertEquals("example.com", headers.get("HOST"));
+        assertEquals("名字", headers.get("x-name"));
+        Map.Entry<String, String> first = headers.entrySet().iterator().next();
+        assertEquals("Host", first.getKey());
+
+        // 替换后不再从原始切片解码
+        headers.put("host", null);
+        assertNull(headers.get("Host"));
+        assertTrue(headers.contains("Host"));
+    }
+
+    @Test
+    void testIteratorRemoveAndCopy() {
+        Map<String, String> source = new LinkedHashMap<>();
+        source.put("A", "1");
+        source.put("B", "2");
+        HttpHeaders headers = new HttpHeaders(source);
+
+        Iterator<Map.Entry<String, String>> iterator = headers.entrySet().iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals("2", iterator.next().getValue());
+        assertFalse(iterator.hasNext());
+        assertEquals(Map.of("B", "2"), headers);
+    }
+
+    @Test
+    void testReadOnlyCopy() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Set-Cookie", "a=1").add("Set-Cookie", "b=2");
+        HttpHeaders readOnly = headers.toReadOnly();
+
+        assertEquals(List.of("a=1", "b=2"), readOnly.getAll("set-cookie"));
+        assertThrows(UnsupportedOperationException.class, () -> readOnly.put("X", "1"));
+        assertThrows(UnsupportedOperationException.class, () -> readOnly.add("X", "1"));
+        assertThrows(UnsupportedOperationException.class, () -> readOnly.remove("Set-Cookie"));
+        assertThrows(UnsupportedOperationException.class,
+                () -> readOnly.entrySet().iterator().next().setValue("c=3"));
+        // 原集合仍可修改
+        headers.put("X", "1");
+        assertFalse(readOnly.contains("X"));
+    }
+}
@@ -0,0 +1,329 @@
+package com.http.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRequestParserTest {
+
+    @Test
+    void testParseCompleteRequest() throws IOException {
+        String rawRequest = "GET /index.html HTTP/1.1\r\n" +
+                           "Host: localhost:8080\r\n" +
+                           "Connection: keep-alive\r\n" +
+                           "\r\n";
+
+        HttpRequestParser parser = new HttpRequestParser();
+        ByteBuffer buffer = ByteBuffer.wrap(rawRequest.getBytes(StandardCharsets.UTF_8));
+        HttpRequest request = parser.parse(buffer);
+
+        assertNotNull(request);
+        assertEquals("GET", request.getMethod());
+        assertEquals("/index.html", request.getUri());
+        assertEquals("HTTP/1.1", request.getVersion());
+        assertEquals("localhost:8080", request.getHeader("Host"));
+        assertEquals("keep-alive", request.getHeader("Connection"));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testParseIncrementallyByteByByte() throws IOException {
+        String body = "{\"username\":\"test\"}";
+        String rawRequest = "POST /api/login HTTP/1.1\r\n" +
+                           "Host: localhost\r\n" +
+                           "Content-Length: " + body.length() + "\r\n" +
+                           "\r\n" +
+                           body;
+        byte[] bytes = rawRequest.getBytes(StandardCharsets.UTF_8);
+
+        HttpRequestParser parser = new HttpRequestParser();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        HttpRequest request = null;
+        for (int i = 0; i < bytes.length; i++) {
+            assertNull(request, "Request should not complete before the last byte");
+            buffer.put(bytes[i]);
+            buffer.flip();
+            request = parser.parse(buffer);
+            buffer.compact();
+        }
+
+        assertNotNull(request);
+        assertEquals("POST", request.getMethod());
+        assertEquals(body, request.getBodyAsString());
+    }
+
+    @Test
+    void testBinaryAndMultiByteBodyCopiedExactly() throws IOException {
+        byte[] body = {(byte) 0xFF, 0x00, (byte) 0xE4, (byte) 0xB8, (byte) 0xAD, '\r', '\n', (byte) 0x80};
+        byte[] head = ("POST /upload HTTP/1.1\r\n" +
+                      "content-length: " + body.length + "\r\n" +
+                      "\r\n").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocate(head.length + body.length);
+        buffer.put(head).put(body).flip();
+
+        HttpRequest request = new HttpRequestParser().parse(buffer);
+
+        assertNotNull(request);
+        assertArrayEquals(body, request.getBody());
+    }
+
+    @Test
+    void testPipelinedRequestsFromOneBuffer() throws IOException {
+        String rawRequests = "GET /a HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                            "POST /b HTTP/1.1\r\nContent-Length: 2\r\n\r\nok" +
+                            "GET /c HTTP/1.1\r\n";
+        ByteBuffer buffer = ByteBuffer.wrap(rawRequests.getBytes(StandardCharsets.UTF_8));
+        HttpRequestParser parser = new HttpRequestParser();
+
+        assertEquals("/a", parser.parse(buffer).getUri());
+        HttpRequest second = parser.parse(buffer);
+        assertEquals("/b", second.getUri());
+        assertEquals("ok", second.getBodyAsString());
+        assertNull(parser.parse(buffer), "Third request is incomplete");
+        assertTrue(parser.isInProgress());
+    }
+
+    @Test
+    void testHeadersMaterializeOnDemand() throws IOException {
+        String rawRequest = "GET / HTTP/1.1\r\n" +
+                           "X-Test:   spaced value  \r\n" +
+                           "x-test: second\r\n" +
+                           "\r\n";
+        HttpRequest request = new HttpRequestParser().parse(
+                ByteBuffer.wrap(rawRequest.getBytes(StandardCharsets.UTF_8)));
+
+        // 同名头逐行保留，getHeader返回第一个
+        assertEquals("spaced value", request.getHeader("X-Test"));
+        assertEquals(List.of("spaced value", "second"), request.getHeaderValues("X-TEST"));
+        assertNull(request.getHeader("Missing"));
+        assertEquals(2, request.getHeaders().size());
+        request.setHeader("Added", "value");
+        assertEquals("value", request.getHeader("added"));
+        request.setHeader("X-Test", "replaced");
+        assertEquals(List.of("replaced"), request.getHeaderValues("X-Test"));
+    }
+
+    @Test
+    void testHeaderNamesAreCaseInsensitive() throws IOException {
+        String rawRequest = "POST /api/login HTTP/1.1\r\n" +
+                           "content-length: 5\r\n" +
+                           "CONNECTION: close\r\n" +
+                           "\r\n" +
+                           "hello";
+        HttpRequest request = new HttpRequestParser().parse(
+                ByteBuffer.wrap(rawRequest.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("hello", request.getBodyAsString());
+        assertEquals("5", request.getHeader("Content-Length"));
+        assertEquals("close", request.getHeader("Connection"));
+        assertTrue(request.getHeaders().containsKey("connection"));
+    }
+
+    @Test
+    void testReuseRequestsResetsState() throws IOException {
+        String rawRequests = "POST /a HTTP/1.1\r\n" +
+                            "X-First: 1\r\n" +
+                            "Content-Length: 2\r\n" +
+                            "\r\n" +
+                            "ok" +
+                            "GET /b HTTP/1.1\r\n" +
+                            "X-Second: " + "v".repeat(2000) + "\r\n" +
+                            "\r\n";
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.setReuseRequests(true);
+        ByteBuffer buffer = ByteBuffer.wrap(rawRequests.getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest first = parser.parse(buffer);
+        byte[] firstBody = first.getBody();
+        HttpResponse response = first.getResponse();
+        response.setStatus(HttpStatus.NOT_FOUND);
+        response.setHeader("X-Old", "1");
+        response.setBody("old");
+        response.setBodyOmitted(true);
+
+        HttpRequest second = parser.parse(buffer);
+        assertSame(first, second);
+        assertEquals("GET", second.getMethod());
+        assertEquals("/b", second.getPath());
+        assertNull(second.getHeader("X-First"));
+        assertEquals(2000, second.getHeader("X-Second").length());
+        assertEquals(0, second.getBody().length);
+        // 取出的请求体数组不受复用影响
+        assertEquals("ok", new String(firstBody, StandardCharsets.UTF_8));
+
+        assertSame(response, second.getResponse());
+        assertEquals(200, response.getStatusCode());
+        assertTrue(response.getHeaders().isEmpty());
+        assertEquals(0, response.getBody().length);
+        assertFalse(response.isBodyOmitted());
+    }
+
+    @Test
+    void testRequestLimits() {
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.setLimits(new RequestLimits(32, 128, 2, 100));
+
+        // 请求行在换行符到达之前就已超长
+        RequestTooLargeException e = assertThrows(RequestTooLargeException.class, () -> parser.parse(
+                ByteBuffer.wrap(("GET /" + "a".repeat(40)).getBytes(StandardCharsets.UTF_8))));
+        assertEquals(HttpStatus.URI_TOO_LONG, e.getStatus());
+
+        e = assertThrows(RequestTooLargeException.class, () -> parser.parse(ByteBuffer.wrap(
+                ("GET / HTTP/1.1\r\nX-Long: " + "v".repeat(200)).getBytes(StandardCharsets.UTF_8))));
+        assertEquals(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, e.getStatus());
+
+        e = assertThrows(RequestTooLargeException.class, () -> parser.parse(ByteBuffer.wrap(
+                "GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, e.getStatus());
+
+        // 请求体尚未到达就按Content-Length拒绝
+        e = assertThrows(RequestTooLargeException.class, () -> parser.parse(ByteBuffer.wrap(
+                "POST / HTTP/1.1\r\nContent-Length: 101\r\n\r\n".getBytes(StandardCharsets.UTF_8))));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+        assertEquals(413, e.toResponse().getStatusCode());
+    }
+
+    @Test
+    void testStreamingThresholdLeavesBodyInBuffer() throws IOException {
+        String rawRequest = "POST /upload HTTP/1.1\r\nContent-Length: 10\r\n\r\n0123456789";
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.setStreamingThreshold(5);
+        ByteBuffer buffer = ByteBuffer.wrap(rawRequest.getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest request = parser.parse(buffer);
+        assertNotNull(request);
+        assertEquals(10, request.getBodyStreamLength());
+        assertEquals(10, buffer.remaining(), "Body bytes stay for the caller");
+        assertFalse(parser.isInProgress());
+    }
+
+    @Test
+    void testChunkedBodyDecodedIncrementally() throws IOException {
+        String rawRequest = "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5;name=value\r\nHello\r\n7\r\n, World\r\n0\r\nX-Trailer: 1\r\n\r\n"
+                + "GET /next HTTP/1.1\r\n\r\n";
+        byte[] bytes = rawRequest.getBytes(StandardCharsets.UTF_8);
+        HttpRequestParser parser = new HttpRequestParser();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+
+        // 逐字节到达，块大小行、块数据和trailer都可能被截断
+        HttpRequest request = null;
+        int fed = 0;
+        while (request == null) {
+            buffer.put(bytes[fed++]);
+            buffer.flip();
+            request = parser.parse(buffer);
+            buffer.compact();
+        }
+        assertEquals("Hello, World", request.getBodyAsString());
+        assertTrue(request.isChunked());
+        assertFalse(parser.isInProgress());
+
+        buffer.put(bytes, fed, bytes.length - fed);
+        buffer.flip();
+        HttpRequest next = parser.parse(buffer);
+        assertEquals("/next", next.getUri());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testChunkedTakesPrecedenceOverContentLength() throws IOException {
+        String rawRequest = "POST / HTTP/1.1\r\nContent-Length: 100\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "3\r\nabc\r\n0\r\n\r\n";
+        HttpRequest request = new HttpRequestParser().parse(ByteBuffer.wrap(rawRequest.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("abc", request.getBodyAsString());
+        // 两个长度头同时出现可能是请求走私，处理完后关闭连接
+        assertEquals("close", request.getHeader("Connection"));
+    }
+
+    @Test
+    void testInvalidChunkedBody() {
+        String unsupported = "POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\n\r\n";
+        assertThrows(IOException.class, () -> new HttpRequestParser()
+                .parse(ByteBuffer.wrap(unsupported.getBytes(StandardCharsets.UTF_8))));
+
+        String badSize = "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n";
+        assertThrows(IOException.class, () -> new HttpRequestParser()
+                .parse(ByteBuffer.wrap(badSize.getBytes(StandardCharsets.UTF_8))));
+
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.setLimits(new RequestLimits(8192, 65536, 100, 4));
+        String tooLarge = "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n3\r\nabc\r\n2\r\nde\r\n0\r\n\r\n";
+        RequestTooLargeException e = assertThrows(RequestTooLargeException.class,
+                () -> parser.parse(ByteBuffer.wrap(tooLarge.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatus());
+    }
+
+    @Test
+    void testConflictingContentLengthRejected() throws IOException {
+        String conflicting = "POST / HTTP/1.1\r\nContent-Length: 3\r\nContent-Length: 5\r\n\r\nabcde";
+        assertThrows(IOException.class, () -> new HttpRequestParser()
+                .parse(ByteBuffer.wrap(conflicting.getBytes(StandardCharsets.UTF_8))));
+
+        // 重复但一致的Content-Length可以接受
+        String repeated = "POST / HTTP/1.1\r\nContent-Length: 3\r\nContent-Length: 3\r\n\r\nabc";
+        HttpRequest request = new HttpRequestParser()
+                .parse(ByteBuffer.wrap(repeated.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("abc", request.getBodyAsString());
+    }
+
+    @Test
+    void testUnsupportedTransferCodingReturns501() {
+        String raw = "POST / HTTP/1.1\r\nTransfer-Encoding: gzip, chunked\r\n\r\n0\r\n\r\n";
+        RequestRejectedException e = assertThrows(RequestRejectedException.class, () -> new HttpRequestParser()
+                .parse(ByteBuffer.wrap(raw.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, e.getStatus());
+        assertEquals(501, e.toResponse().getStatusCode());
+    }
+
+    @Test
+    void testInvalidContentLength() {
+        String rawRequest = "POST / HTTP/1.1\r\nContent-Length: abc\r\n\r\n";
+        ByteBuffer buffer = ByteBuffer.wrap(rawRequest.getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> new HttpRequestParser().parse(buffer));
+    }
+
+    @Test
+    void testZeroBodyLimitAllowsOnlyEmptyBodies() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new RequestLimits(8192, 65536, 100, -1));
+
+        HttpRequestParser parser = new HttpRequestParser();
+        parser.setLimits(new RequestLimits(8192, 65536, 100, 0));
+        assertNotNull(parser.parse(ByteBuffer.wrap("GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8))));
+        String withBody = "POST / HTTP/1.1\r\nContent-Length: 1\r\n\r\nx";
+        parser.reset();
+        assertThrows(RequestTooLargeException.class,
+                () -> parser.parse(ByteBuffer.wrap(withBody.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void testInvalidRequestLine() {
+        String rawRequest = "GET  /double-space HTTP/1.1\r\n\r\n";
+        ByteBuffer buffer = ByteBuffer.wrap(rawRequest.getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> new HttpRequestParser().parse(buffer));
+    }
+
+    @Test
+    void testReaderKeepsReadAheadBytesAcrossRequests() throws IOException {
+        String rawRequests = "GET /first HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                            "POST /second HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello";
+        HttpRequestReader reader = new HttpRequestReader(
+                new ByteArrayInputStream(rawRequests.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("/first", reader.readRequest().getUri());
+        assertTrue(reader.hasBufferedData(), "Second request should already be buffered");
+        HttpRequest second = reader.pollBufferedRequest();
+        assertEquals("/second", second.getUri());
+        assertEquals("hello", second.getBodyAsString());
+        assertNull(reader.readRequest(), "Clean end of stream between requests returns null");
+    }
+}
@@ -3,7 +3,9 @@ package com.http.protocol;
 import org.junit.jupiter.api.Test;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -84,4 +86,82 @@ class HttpRequestTest {
         
         assertThrows(IOException.class, () -> HttpRequest.parse(input));
     }
+
+    @Test
+    void testLargeBodyIsReadAsStream() throws IOException {
+        byte[] body = new byte[100 * 1024];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        byte[] head = ("POST /upload HTTP/1.1\r\nContent-Length: " + body.length + "\r\n\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] raw = new byte[head.length * 2 + body.length * 2];
+        System.arraycopy(head, 0, raw, 0, head.length);
+        System.arraycopy(body, 0, raw, head.length, body.length);
+        System.arraycopy(head, 0, raw, head.length + body.length, head.length);
+        System.arraycopy(body, 0, raw, head.length * 2 + body.length, body.length);
+        HttpRequestReader reader = new HttpRequestReader(new ByteArrayInputStream(raw));
+
+        HttpRequest first = reader.readRequest();
+        assertTrue(first.isBodyStreaming());
+        byte[] prefix = first.getBodyStream().readNBytes(10);
+        assertArrayEquals(Arrays.copyOf(body, 10), prefix);
+
+        // 第一个请求体没有读完，读取下一个请求时跳过剩余部分
+        HttpRequest second = reader.readRequest();
+        assertArrayEquals(body, second.getBody());
+        assertFalse(second.isBodyStreaming());
+        assertNull(reader.readRequest());
+    }
+
+    @Test
+    void testChunkedBodyIsReadAsStream() throws IOException {
+        String raw = "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "4\r\nWiki\r\n5\r\npedia\r\n0\r\n\r\n"
+                + "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "3\r\nabc\r\n3\r\ndef\r\n0\r\n\r\n"
+                + "GET /last HTTP/1.1\r\n\r\n";
+        // 很小的缓冲区，块数据需要多次从连接读取
+        HttpRequestReader reader = new HttpRequestReader(
+                new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)), 16);
+
+        HttpRequest first = reader.readRequest();
+        assertTrue(first.isBodyStreaming());
+        assertEquals("Wikipedia", new String(first.getBodyStream().readAllBytes(), StandardCharsets.UTF_8));
+
+        // 第二个请求体只读了一部分，剩余的块在读取下一个请求前跳过
+        HttpRequest second = reader.readRequest();
+        assertEquals("ab", new String(second.getBodyStream().readNBytes(2), StandardCharsets.UTF_8));
+
+        assertEquals("/last", reader.readRequest().getUri());
+        assertNull(reader.readRequest());
+    }
+
+    @Test
+    void testToBytesWithChunkedEncoding() throws IOException {
+        HttpRequest request = new HttpRequest("POST", "/upload");
+        request.setHeader("Transfer-Encoding", "chunked");
+        request.setBody("payload");
+
+        String raw = new String(request.toBytes(), StandardCharsets.UTF_8);
+        assertFalse(raw.contains("Content-Length"));
+        assertTrue(raw.endsWith("\r\n\r\n7\r\npayload\r\n0\r\n\r\n"));
+
+        HttpRequestParser parser = new HttpRequestParser();
+        HttpRequest parsed = parser.parse(ByteBuffer.wrap(request.toBytes()));
+        assertEquals("payload", parsed.getBodyAsString());
+    }
+
+    @Test
+    void testPathAndQuery() {
+        HttpRequest request = new HttpRequest("GET", "/api/login?next=/home&x=1#top");
+
+        assertEquals("/api/login", request.getPath());
+        assertEquals("next=/home&x=1", request.getQuery());
+
+        request.setUri("/index.html");
+        assertEquals("/index.html", request.getPath());
+        assertNull(request.getQuery());
+        assertTrue(request.getPathParameters().isEmpty());
+    }
 }
@@ -2,8 +2,14 @@ package com.http.protocol;
 
 import org.junit.jupiter.api.Test;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,6 +49,64 @@ class HttpResponseTest {
         assertEquals(0, response.getBody().length);
     }
 
+    @Test
+    void testParseLowercaseHeadersAndRepeatedCookies() throws IOException {
+        String rawResponse = "HTTP/1.1 200 OK\r\n" +
+                            "set-cookie: a=1\r\n" +
+                            "Set-Cookie: b=2\r\n" +
+                            "content-length: 2\r\n" +
+                            "\r\n" +
+                            "ok";
+
+        HttpResponse response = HttpResponse.parse(
+                new ByteArrayInputStream(rawResponse.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("ok", response.getBodyAsString());
+        assertEquals("2", response.getHeader("Content-Length"));
+        assertEquals(List.of("a=1", "b=2"), response.getHeaderValues("Set-Cookie"));
+    }
+
+    @Test
+    void testParseChunkedResponse() throws IOException {
+        byte[] body = new byte[20000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        HttpResponse streamed = new HttpResponse(HttpStatus.OK);
+        streamed.setBody(ResponseBody.ofStream(new ByteArrayInputStream(body), -1));
+
+        HttpResponse response = HttpResponse.parse(new ByteArrayInputStream(streamed.toBytes()));
+
+        assertEquals(200, response.getStatusCode());
+        assertArrayEquals(body, response.getBody());
+    }
+
+    @Test
+    void testReaderKeepsReadAheadBytesAcrossResponses() throws IOException {
+        String raw = "HTTP/1.1 100 Continue\r\n\r\n"
+                + "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n2\r\nok\r\n0\r\n\r\n"
+                + "HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\n"
+                + "HTTP/1.1 204 No Content\r\n\r\n"
+                + "HTTP/1.1 200 OK\r\n\r\nuntil close";
+        HttpResponseReader reader = new HttpResponseReader(
+                new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)), 16);
+
+        assertEquals("ok", reader.readResponse().getBodyAsString());
+        // HEAD响应声明了长度但没有响应体
+        assertEquals(0, reader.readResponse(true).getBody().length);
+        assertEquals(204, reader.readResponse().getStatusCode());
+        assertEquals("until close", reader.readResponse().getBodyAsString());
+        assertFalse(reader.hasBufferedData());
+    }
+
+    @Test
+    void testTruncatedBodyIsRejected() {
+        String raw = "HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nshort";
+
+        assertThrows(IOException.class,
+                () -> HttpResponse.parse(new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8))));
+    }
+
     @Test
     void testToBytesWithStatus() {
         HttpResponse response = new HttpResponse(HttpStatus.OK);
@@ -86,4 +150,99 @@ class HttpResponseTest {
         
         assertThrows(IOException.class, () -> HttpResponse.parse(input));
     }
+
+    @Test
+    void testStreamingBodyWithKnownLength() {
+        byte[] content = "streamed content".getBytes(StandardCharsets.UTF_8);
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.setBody(ResponseBody.ofStream(new ByteArrayInputStream(content), content.length));
+        
+        String result = new String(response.toBytes(), StandardCharsets.UTF_8);
+        
+        assertFalse(response.isChunked());
+        assertTrue(result.contains("Content-Length: " + content.length + "\r\n"));
+        assertFalse(result.contains("Transfer-Encoding"));
+        assertTrue(result.endsWith("\r\n\r\nstreamed content"));
+    }
+
+    @Test
+    void testStreamingBodyWithUnknownLengthUsesChunkedEncoding() {
+        // 超过一个内部缓冲区（8KB），会被编码为多个块
+        byte[] content = new byte[20000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.setBody(ResponseBody.ofStream(new ByteArrayInputStream(content), -1));
+        
+        String result = new String(response.toBytes(), StandardCharsets.ISO_8859_1);
+        int headerEnd = result.indexOf("\r\n\r\n");
+        
+        assertTrue(response.isChunked());
+        assertTrue(result.substring(0, headerEnd).contains("Transfer-Encoding: chunked"));
+        assertFalse(result.substring(0, headerEnd).contains("Content-Length"));
+        
+        // 解码chunked响应体并与原始内容比较
+        String encoded = result.substring(headerEnd + 4);
+        StringBuilder decoded = new StringBuilder();
+        int pos = 0;
+        while (true) {
+            int lineEnd = encoded.indexOf("\r\n", pos);
+            int size = Integer.parseInt(encoded.substring(pos, lineEnd), 16);
+            pos = lineEnd + 2;
+            if (size == 0) {
+                assertEquals("\r\n", encoded.substring(pos));
+                break;
+            }
+            decoded.append(encoded, pos, pos + size);
+            pos += size + 2;
+        }
+        assertEquals(new String(content, StandardCharsets.ISO_8859_1), decoded.toString());
+    }
+
+    @Test
+    void testStreamingBodyShorterThanContentLengthFails() {
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.setBody(ResponseBody.ofStream(new ByteArrayInputStream(new byte[3]), 10));
+        
+        assertThrows(RuntimeException.class, response::toBytes);
+    }
+
+    @Test
+    void testChannelBodyReturnsWhenSourceIsNotReady() throws IOException {
+        byte[] content = "ready".getBytes(StandardCharsets.UTF_8);
+        ReadableByteChannel source = new ReadableByteChannel() {
+            private int calls;
+
+            @Override
+            public int read(ByteBuffer dst) {
+                // 非阻塞数据源：第一次没有数据，第二次给出全部内容
+                switch (calls++) {
+                    case 0:
+                        return 0;
+                    case 1:
+                        dst.put(content);
+                        return content.length;
+                    default:
+                        return -1;
+                }
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ResponseBody body = ResponseBody.ofChannel(source, -1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WritableByteChannel target = Channels.newChannel(output);
+
+        assertFalse(body.writeTo(target), "A 0-byte read should report not ready instead of spinning");
+        assertTrue(body.writeTo(target));
+        assertArrayEquals(content, output.toByteArray());
+    }
 }
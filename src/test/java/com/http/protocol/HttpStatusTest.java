@@ -8,6 +8,8 @@ class HttpStatusTest {
     @Test
     void testStatusCodeValues() {
         assertEquals(200, HttpStatus.OK.getCode());
+        assertEquals(204, HttpStatus.NO_CONTENT.getCode());
+        assertEquals(206, HttpStatus.PARTIAL_CONTENT.getCode());
         assertEquals(301, HttpStatus.MOVED_PERMANENTLY.getCode());
         assertEquals(302, HttpStatus.FOUND.getCode());
         assertEquals(304, HttpStatus.NOT_MODIFIED.getCode());
@@ -15,6 +17,10 @@ class HttpStatusTest {
         assertEquals(401, HttpStatus.UNAUTHORIZED.getCode());
         assertEquals(404, HttpStatus.NOT_FOUND.getCode());
         assertEquals(405, HttpStatus.METHOD_NOT_ALLOWED.getCode());
+        assertEquals(413, HttpStatus.PAYLOAD_TOO_LARGE.getCode());
+        assertEquals(414, HttpStatus.URI_TOO_LONG.getCode());
+        assertEquals(416, HttpStatus.RANGE_NOT_SATISFIABLE.getCode());
+        assertEquals(431, HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE.getCode());
         assertEquals(500, HttpStatus.INTERNAL_SERVER_ERROR.getCode());
         assertEquals(503, HttpStatus.SERVICE_UNAVAILABLE.getCode());
     }
@@ -0,0 +1,90 @@
+package com.http.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseSerializerTest {
+
+    @Test
+    void testEncodesStatusLineHeadersAndContentLength() {
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.setHeader("Content-Type", "text/plain");
+        response.setHeader("X-Custom", "value");
+        response.setBody("hello world");
+
+        String head = decode(new ResponseSerializer().encodeHead(response));
+        assertTrue(head.startsWith("HTTP/1.1 200 OK\r\n"), head);
+        assertTrue(head.matches("(?s).*\r\nDate: \\w{3}, \\d{2} \\w{3} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT\r\n.*"), head);
+        assertTrue(head.contains("Content-Type: text/plain\r\n"), head);
+        assertTrue(head.contains("X-Custom: value\r\n"), head);
+        assertTrue(head.endsWith("Content-Length: 11\r\n\r\n"), head);
+    }
+
+    @Test
+    void testCustomStatusLineAndChunked() {
+        HttpResponse response = new HttpResponse(299, "Custom Reason");
+        response.setBody(ResponseBody.ofStream(new ByteArrayInputStream(new byte[10]), -1));
+
+        String head = decode(new ResponseSerializer().encodeHead(response));
+        assertTrue(head.startsWith("HTTP/1.1 299 Custom Reason\r\n"), head);
+        assertTrue(head.contains("Transfer-Encoding: chunked\r\n"), head);
+        assertFalse(head.contains("Content-Length"), head);
+    }
+
+    @Test
+    void testEncodedHeadersAndNonAsciiValues() {
+        HttpResponse response = new HttpResponse(HttpStatus.NOT_MODIFIED);
+        // 响应自带的Date头不重复添加
+        response.setHeader("Date", "Thu, 01 Jan 2026 00:00:00 GMT");
+        response.setEncodedHeaders(EncodedHeaders.of(Map.of("ETag", "\"abc\"")));
+        response.setHeader("X-Name", "名字");
+
+        String head = decode(new ResponseSerializer().encodeHead(response));
+        assertTrue(head.contains("ETag: \"abc\"\r\n"), head);
+        assertEquals(1, head.split("Date: ").length - 1, head);
+        assertTrue(head.contains("X-Name: 名字\r\n"), head);
+        // 304没有响应体，不声明长度
+        assertFalse(head.contains("Content-Length"), head);
+    }
+
+    @Test
+    void testRepeatedHeadersOnSeparateLines() {
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.addHeader("Set-Cookie", "a=1");
+        response.addHeader("Set-Cookie", "b=2");
+        // 名称不区分大小写：已有content-length时不再补充
+        response.setHeader("content-length", "0");
+
+        String head = decode(new ResponseSerializer().encodeHead(response));
+        assertTrue(head.contains("Set-Cookie: a=1\r\nSet-Cookie: b=2\r\n"), head);
+        assertFalse(head.contains("Content-Length"), head);
+        assertTrue(head.contains("content-length: 0\r\n"), head);
+    }
+
+    @Test
+    void testBufferIsReusedAndGrows() {
+        ResponseSerializer serializer = new ResponseSerializer(32, true, false);
+        HttpResponse large = new HttpResponse(HttpStatus.OK);
+        large.setHeader("X-Large", "x".repeat(500));
+        ByteBuffer first = serializer.encodeHead(large);
+        assertTrue(first.isDirect());
+        assertTrue(decode(first).contains("X-Large: " + "x".repeat(500) + "\r\n"));
+
+        HttpResponse small = new HttpResponse(HttpStatus.NOT_FOUND);
+        ByteBuffer second = serializer.encodeHead(small);
+        assertSame(first, second);
+        assertEquals("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n", decode(second));
+    }
+
+    private static String decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
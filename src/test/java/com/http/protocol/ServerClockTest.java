@@ -0,0 +1,34 @@
+package com.http.protocol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerClockTest {
+
+    @Test
+    void testNowMillisIsCloseToSystemTime() {
+        long now = ServerClock.nowMillis();
+        assertTrue(Math.abs(System.currentTimeMillis() - now) < 2000);
+        ServerClock.tick();
+        assertTrue(ServerClock.nowMillis() >= now);
+    }
+
+    @Test
+    void testDateHeaderMatchesHttpDate() {
+        ServerClock.tick();
+        String date = ServerClock.httpDate();
+        long parsed = ConditionalRequests.parseDate(date);
+        assertTrue(Math.abs(ServerClock.nowMillis() - parsed) < 1000);
+
+        ByteBuffer header = ServerClock.dateHeaderBuffer();
+        assertTrue(header.isReadOnly());
+        String encoded = StandardCharsets.ISO_8859_1.decode(header).toString();
+        assertTrue(encoded.startsWith("Date: ") && encoded.endsWith(" GMT\r\n"), encoded);
+        // 每次返回独立的位置
+        assertEquals(encoded.length(), ServerClock.dateHeaderBuffer().remaining());
+    }
+}
@@ -0,0 +1,76 @@
+package com.http.server;
+
+import com.http.protocol.HttpMethod;
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+import com.http.protocol.HttpStatus;
+import com.http.protocol.ServerClock;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogFilterTest {
+
+    @Test
+    void testLogsRequestLineStatusAndLength() {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        RequestRouter router = new RequestRouter();
+        router.addFilter(new AccessLogFilter(new PrintStream(log, true, StandardCharsets.UTF_8)));
+        router.get("/hello", request -> {
+            HttpResponse response = new HttpResponse(HttpStatus.OK);
+            response.setBody("hello");
+            return response;
+        });
+
+        router.route(new HttpRequest("GET", "/hello?x=1"));
+        router.route(new HttpRequest("GET", "/missing"));
+
+        String[] lines = log.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].matches("\\[\\w{3}, .* GMT\\] .*"), lines[0]);
+        assertTrue(lines[0].matches(".*\\] \"GET /hello\\?x=1 HTTP/1.1\" 200 5 \\d+ms"), lines[0]);
+        assertTrue(lines[1].contains("\"GET /missing HTTP/1.1\" 404 "), lines[1]);
+    }
+
+    @Test
+    void testLogsAsyncResponseOnCompletion() {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        RequestRouter router = new RequestRouter();
+        router.addFilter(new AccessLogFilter(new PrintStream(log, true, StandardCharsets.UTF_8)));
+        CompletableFuture<HttpResponse> pending = new CompletableFuture<>();
+        router.registerAsyncHandler(HttpMethod.GET, "/async", request -> pending);
+
+        CompletableFuture<HttpResponse> future = router.routeAsync(new HttpRequest("GET", "/async"));
+        assertEquals("", log.toString(StandardCharsets.UTF_8));
+
+        pending.complete(new HttpResponse(HttpStatus.NO_CONTENT));
+        future.join();
+        assertTrue(log.toString(StandardCharsets.UTF_8).contains("\"GET /async HTTP/1.1\" 204 0 "));
+    }
+
+    @Test
+    void testLogsHandlerFailureAs500() {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        RequestRouter router = new RequestRouter();
+        router.addFilter(new AccessLogFilter(new PrintStream(log, true, StandardCharsets.UTF_8)));
+        router.get("/broken", request -> {
+            throw new IllegalStateException("broken");
+        });
+        router.registerAsyncHandler(HttpMethod.GET, "/thrown", request -> {
+            throw new IllegalStateException("thrown before returning a future");
+        });
+
+        assertThrows(IllegalStateException.class, () -> router.route(new HttpRequest("GET", "/broken")));
+        assertTrue(router.routeAsync(new HttpRequest("GET", "/thrown")).isCompletedExceptionally());
+
+        String[] lines = log.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"GET /broken HTTP/1.1\" 500 - "), lines[0]);
+        assertTrue(lines[1].contains("\"GET /thrown HTTP/1.1\" 500 - "), lines[1]);
+    }
+}
@@ -0,0 +1,180 @@
+package com.http.server;
+
+import com.http.protocol.HttpResponse;
+import com.http.protocol.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ConnectionLimiter测试
+ * 包括LRU关闭空闲连接，以及两种引擎在连接数已满时返回503
+ */
+class ConnectionLimiterTest {
+
+    private static final int TEST_PORT = 8892;
+    private static final long SLOW_DELAY_MILLIS = 1000;
+
+    private static class FakeConnection implements ConnectionLimiter.Connection {
+        private final String name;
+        private final List<String> closed;
+
+        FakeConnection(String name, List<String> closed) {
+            this.name = name;
+            this.closed = closed;
+        }
+
+        @Override
+        public void closeIdle() {
+            closed.add(name);
+        }
+    }
+
+    @Test
+    void testEvictsLeastRecentlyIdleConnection() {
+        List<String> closed = new ArrayList<>();
+        ConnectionLimiter limiter = new ConnectionLimiter(2);
+        FakeConnection a = new FakeConnection("a", closed);
+        FakeConnection b = new FakeConnection("b", closed);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        limiter.markIdle(a);
+        limiter.markIdle(b);
+        // a处理了一个新请求后再次空闲，b成为最久空闲的连接
+        assertTrue(limiter.markBusy(a));
+        limiter.markIdle(a);
+
+        assertTrue(limiter.tryAcquire());
+        assertEquals(List.of("b"), closed);
+        limiter.release(b);
+        assertEquals(2, limiter.openConnections());
+
+        limiter.markBusy(a);
+        assertFalse(limiter.tryAcquire(), "No idle connection can be closed");
+        assertEquals(List.of("b"), closed);
+    }
+
+    @Test
+    void testEvictedConnectionCannotTurnBusy() {
+        List<String> closed = new ArrayList<>();
+        ConnectionLimiter limiter = new ConnectionLimiter(1);
+        FakeConnection a = new FakeConnection("a", closed);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.markIdle(a);
+        // a被选中关闭，关闭在a自己的线程中稍后进行，名额先让给新连接
+        assertTrue(limiter.tryAcquire());
+        assertEquals(List.of("a"), closed);
+
+        // 关闭之前a收到了下一个请求的数据：不能转而处理请求，必须关闭
+        assertFalse(limiter.markBusy(a));
+        assertFalse(limiter.tryAcquire(), "Connection being closed must not be evicted twice");
+        limiter.release(a);
+        assertEquals(1, limiter.openConnections());
+    }
+
+    @Test
+    void testBlockingEngineSheds() throws Exception {
+        assertOverloadHandling(ServerEngine.BLOCKING);
+    }
+
+    @Test
+    void testNioEngineSheds() throws Exception {
+        assertOverloadHandling(ServerEngine.NIO);
+    }
+
+    private void assertOverloadHandling(ServerEngine engine) throws Exception {
+        RequestRouter router = new RequestRouter();
+        router.get("/fast", request -> text("fast"));
+        router.get("/slow", request -> {
+            try {
+                Thread.sleep(SLOW_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return text("slow");
+        });
+        HttpServer server = new HttpServer(TEST_PORT, router, 4, engine, 1);
+        server.setMaxConnections(1);
+        server.start();
+        try {
+            // 空闲的长连接给新连接让位
+            try (Socket idle = new Socket("localhost", TEST_PORT)) {
+                send(idle, "GET /fast HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                assertTrue(readHead(idle.getInputStream()).startsWith("HTTP/1.1 200"));
+                Thread.sleep(100);
+
+                try (Socket next = new Socket("localhost", TEST_PORT)) {
+                    send(next, "GET /fast HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+                    assertTrue(readAll(next.getInputStream()).startsWith("HTTP/1.1 200"));
+                }
+                assertEquals(-1, idle.getInputStream().read(), "Idle connection should have been closed");
+            }
+            Thread.sleep(100);
+
+            // 唯一的连接正在处理请求，新连接立即收到503
+            try (Socket busy = new Socket("localhost", TEST_PORT)) {
+                send(busy, "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                Thread.sleep(200);
+                try (Socket rejected = new Socket("localhost", TEST_PORT)) {
+                    String response = readAll(rejected.getInputStream());
+                    assertTrue(response.startsWith("HTTP/1.1 503 Service Unavailable\r\n"), response);
+                    assertTrue(response.contains("Retry-After: 1\r\n"), response);
+                    assertTrue(response.contains("Connection: close\r\n"), response);
+                }
+                assertTrue(readHead(busy.getInputStream()).startsWith("HTTP/1.1 200"));
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static HttpResponse text(String body) {
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.setHeader("Content-Type", "text/plain");
+        response.setBody(body);
+        return response;
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        socket.setSoTimeout(5000);
+        OutputStream output = socket.getOutputStream();
+        output.write(request.getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    /**
+     * 读取响应头和长度已知的响应体
+     */
+    private static String readHead(InputStream input) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != -1) {
+            head.write(b);
+            if (head.toString(StandardCharsets.ISO_8859_1).endsWith("\r\n\r\n")) {
+                break;
+            }
+        }
+        String text = head.toString(StandardCharsets.ISO_8859_1);
+        int index = text.indexOf("Content-Length: ");
+        if (index >= 0) {
+            int length = Integer.parseInt(text.substring(index + 16, text.indexOf("\r\n", index)));
+            input.readNBytes(length);
+        }
+        return text;
+    }
+
+    private static String readAll(InputStream input) throws IOException {
+        return new String(input.readAllBytes(), StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,46 @@
+package com.http.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ExecutorMode单元测试
+ */
+class ExecutorModeTest {
+
+    @Test
+    void testPoolModeRunsTasks() throws Exception {
+        ExecutorService executor = ExecutorMode.POOL.createExecutor(2);
+        try {
+            Future<String> result = executor.submit(() -> "done");
+            assertEquals("done", result.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testVirtualModeRunsTasksOrFallsBack() throws Exception {
+        ExecutorService executor = ExecutorMode.VIRTUAL.createExecutor(2);
+        try {
+            // Java 21+上运行在虚拟线程，否则回退到线程池，两种情况任务都应正常执行
+            Future<Boolean> isDaemonOrPool = executor.submit(() -> Thread.currentThread().isDaemon()
+                    || Thread.currentThread().getName().startsWith("pool-"));
+            assertTrue(isDaemonOrPool.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testServerReportsExecutorMode() {
+        HttpServer server = new HttpServer(0, new RequestRouter(), 2, ExecutorMode.VIRTUAL);
+        assertEquals(ExecutorMode.VIRTUAL, server.getExecutorMode());
+        assertEquals(ServerEngine.BLOCKING, server.getEngine());
+    }
+}
@@ -0,0 +1,366 @@
+package com.http.server;
+
+import com.http.protocol.HttpMethod;
+import com.http.protocol.HttpResponse;
+import com.http.protocol.HttpStatus;
+import com.http.protocol.ResponseBody;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NioServerTest - NIO引擎测试
+ * 测试基于Selector事件循环的服务器引擎，包括长连接、流水线和空闲连接
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class NioServerTest {
+
+    private static HttpServer server;
+    private static final int TEST_PORT = 8890;
+    private static final String TEST_HOST = "localhost";
+    private static final String STATIC_RESOURCES_PATH = "src/main/resources/static";
+    private static final long SLOW_DELAY_MILLIS = 1000;
+    private static final byte[] STREAM_CONTENT = "chunk-".repeat(5000).getBytes(StandardCharsets.UTF_8);
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        UserRegistry userRegistry = new UserRegistry();
+
+        RequestRouter router = new RequestRouter();
+        router.registerHandler("/api/register", new RegisterHandler(userRegistry));
+        router.registerHandler("/api/login", new LoginHandler(userRegistry));
+        router.registerHandler("/stream", request -> {
+            // 长度未知的流式响应体，服务器应使用chunked编码
+            HttpResponse response = new HttpResponse(HttpStatus.OK);
+            response.setHeader("Content-Type", "text/plain");
+            response.setBody(ResponseBody.ofStream(new ByteArrayInputStream(STREAM_CONTENT), -1));
+            return response;
+        });
+        router.registerHandler("/slow-stream", request -> {
+            // 慢速数据源：第一次读取要等待，模拟上游调用或数据库游标
+            HttpResponse response = new HttpResponse(HttpStatus.OK);
+            response.setHeader("Content-Type", "text/plain");
+            response.setBody(ResponseBody.ofStream(new SequenceInputStream(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    try {
+                        Thread.sleep(SLOW_DELAY_MILLIS);
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    return -1;
+                }
+            }, new ByteArrayInputStream("slow-stream".getBytes(StandardCharsets.UTF_8))), -1));
+            return response;
+        });
+        router.registerAsyncHandler(HttpMethod.GET, "/slow", request -> CompletableFuture.supplyAsync(() -> {
+            // 模拟慢速后端：响应在其他线程中延迟完成，期间不占用工作线程
+            HttpResponse response = new HttpResponse(HttpStatus.OK);
+            response.setHeader("Content-Type", "text/plain");
+            response.setBody("slow");
+            return response;
+        }, CompletableFuture.delayedExecutor(SLOW_DELAY_MILLIS, TimeUnit.MILLISECONDS)));
+        router.setDefaultHandler(new StaticResourceHandler(STATIC_RESOURCES_PATH));
+
+        // 只有2个工作线程，验证空闲长连接不会占用工作线程
+        server = new HttpServer(TEST_PORT, router, 2, ServerEngine.NIO, 2);
+        server.start();
+        Thread.sleep(500);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("测试NIO引擎GET静态资源")
+    void testGetStaticResource() throws IOException {
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            send(socket, "GET /index.html HTTP/1.1\r\n" +
+                        "Host: localhost\r\n" +
+                        "Connection: close\r\n" +
+                        "\r\n");
+
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response.contains("HTTP/1.1 200 OK"), "Response should contain 200 OK status");
+            assertTrue(response.contains("Content-Type: text/html"), "Response should contain text/html content type");
+            assertTrue(response.contains("Connection: close"), "Response should indicate close");
+        }
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("测试NIO引擎分段到达的POST请求")
+    void testFragmentedPostRequest() throws Exception {
+        String jsonBody = "{\"username\":\"niouser\",\"password\":\"password123\"}";
+        String request = "POST /api/register HTTP/1.1\r\n" +
+                        "Host: localhost\r\n" +
+                        "Content-Type: application/json\r\n" +
+                        "Content-Length: " + jsonBody.length() + "\r\n" +
+                        "\r\n" +
+                        jsonBody;
+
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+
+            // 请求分三段发送，服务器必须等到请求完整后再路由
+            byte[] bytes = request.getBytes(StandardCharsets.UTF_8);
+            int first = 10;
+            int second = request.indexOf("\r\n\r\n") + 6;
+            out.write(bytes, 0, first);
+            out.flush();
+            Thread.sleep(100);
+            out.write(bytes, first, second - first);
+            out.flush();
+            Thread.sleep(100);
+            out.write(bytes, second, bytes.length - second);
+            out.flush();
+
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response.contains("HTTP/1.1 200 OK"), "Registration should return 200 OK");
+            assertTrue(response.contains("Registration successful"), "Response should contain success message");
+        }
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("测试NIO引擎流水线请求按顺序响应")
+    void testPipelinedRequests() throws IOException {
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            // 一次写出三个请求
+            send(socket, "GET /test.txt HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                        "GET /nonexistent.html HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                        "GET /data.json HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            InputStream in = socket.getInputStream();
+            String response1 = readResponse(in);
+            String response2 = readResponse(in);
+            String response3 = readResponse(in);
+
+            assertTrue(response1.contains("HTTP/1.1 200 OK") && response1.contains("text/plain"),
+                      "First response should be test.txt");
+            assertTrue(response2.contains("HTTP/1.1 404 Not Found"), "Second response should be 404");
+            assertTrue(response3.contains("HTTP/1.1 200 OK") && response3.contains("application/json"),
+                      "Third response should be data.json");
+        }
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("测试空闲长连接多于工作线程时仍能处理新请求")
+    void testIdleConnectionsDoNotStarveWorkers() throws IOException {
+        List<Socket> idleSockets = new ArrayList<>();
+        try {
+            // 打开多于工作线程数的空闲长连接
+            for (int i = 0; i < 10; i++) {
+                Socket idle = new Socket(TEST_HOST, TEST_PORT);
+                idle.setSoTimeout(5000);
+                send(idle, "GET /test.txt HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n");
+                assertTrue(readResponse(idle.getInputStream()).contains("HTTP/1.1 200 OK"));
+                idleSockets.add(idle);
+            }
+
+            try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+                socket.setSoTimeout(2000);
+                send(socket, "GET /index.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+                assertTrue(readResponse(socket.getInputStream()).contains("HTTP/1.1 200 OK"),
+                          "New connection should be served while idle connections are open");
+            }
+        } finally {
+            for (Socket idle : idleSockets) {
+                idle.close();
+            }
+        }
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("测试NIO引擎不支持的方法返回405")
+    void testMethodNotAllowed() throws IOException {
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            send(socket, "DELETE /api/register HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response.contains("HTTP/1.1 405 Method Not Allowed"),
+                      "Response should contain 405 Method Not Allowed status");
+        }
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("测试NIO引擎发送chunked流式响应体")
+    void testChunkedStreamingResponse() throws IOException {
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            send(socket, "GET /stream HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            byte[] raw = socket.getInputStream().readAllBytes();
+            String response = new String(raw, StandardCharsets.ISO_8859_1);
+            int headerEnd = response.indexOf("\r\n\r\n");
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(response.substring(0, headerEnd).contains("Transfer-Encoding: chunked"));
+
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            int pos = headerEnd + 4;
+            while (true) {
+                int lineEnd = response.indexOf("\r\n", pos);
+                int size = Integer.parseInt(response.substring(pos, lineEnd), 16);
+                pos = lineEnd + 2;
+                if (size == 0) {
+                    break;
+                }
+                decoded.write(raw, pos, size);
+                pos += size + 2;
+            }
+            assertArrayEquals(STREAM_CONTENT, decoded.toByteArray());
+        }
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("测试异步处理器不占用工作线程且流水线响应保持顺序")
+    void testAsyncHandlerParksConnection() throws IOException {
+        List<Socket> slowSockets = new ArrayList<>();
+        try {
+            // 慢请求多于工作线程数
+            for (int i = 0; i < 4; i++) {
+                Socket slow = new Socket(TEST_HOST, TEST_PORT);
+                slow.setSoTimeout(5000);
+                send(slow, "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+                           "GET /test.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+                slowSockets.add(slow);
+            }
+
+            long start = System.currentTimeMillis();
+            try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+                socket.setSoTimeout(5000);
+                send(socket, "GET /index.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+                assertTrue(readResponse(socket.getInputStream()).contains("HTTP/1.1 200 OK"));
+            }
+            assertTrue(System.currentTimeMillis() - start < SLOW_DELAY_MILLIS,
+                      "Pending async responses should not block the worker pool");
+
+            for (Socket slow : slowSockets) {
+                InputStream in = slow.getInputStream();
+                String first = readResponse(in);
+                String second = readResponse(in);
+                assertTrue(first.contains("HTTP/1.1 200 OK") && first.endsWith("slow"), first);
+                assertTrue(second.contains("HTTP/1.1 200 OK") && second.contains("text/plain"), second);
+            }
+        } finally {
+            for (Socket slow : slowSockets) {
+                slow.close();
+            }
+        }
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("测试NIO引擎解码分段到达的chunked请求体")
+    void testChunkedRequestBody() throws Exception {
+        String jsonBody = "{\"username\":\"chunkuser\",\"password\":\"password123\"}";
+        String request = "POST /api/register HTTP/1.1\r\n" +
+                        "Host: localhost\r\n" +
+                        "Content-Type: application/json\r\n" +
+                        "Transfer-Encoding: chunked\r\n" +
+                        "\r\n" +
+                        Integer.toHexString(10) + "\r\n" + jsonBody.substring(0, 10) + "\r\n" +
+                        Integer.toHexString(jsonBody.length() - 10) + "\r\n" + jsonBody.substring(10) + "\r\n" +
+                        "0\r\n\r\n" +
+                        "GET /test.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+
+            // 在第一个块中间断开，后续请求必须从chunked请求体结束处开始解析
+            byte[] bytes = request.getBytes(StandardCharsets.UTF_8);
+            int split = request.indexOf("\r\n\r\n") + 8;
+            out.write(bytes, 0, split);
+            out.flush();
+            Thread.sleep(100);
+            out.write(bytes, split, bytes.length - split);
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            String response = readResponse(in);
+            assertTrue(response.contains("Registration successful"), response);
+            String next = readResponse(in);
+            assertTrue(next.contains("HTTP/1.1 200 OK") && next.contains("text/plain"), next);
+        }
+    }
+
+    @Test
+    @Order(9)
+    @DisplayName("测试慢速流式响应体不阻塞事件循环上的其他连接")
+    void testSlowStreamingBodyDoesNotBlockEventLoop() throws IOException {
+        try (Socket slow = new Socket(TEST_HOST, TEST_PORT)) {
+            slow.setSoTimeout(5000);
+            send(slow, "GET /slow-stream HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            // 连接轮流分配给两个事件循环，其中一个与慢速响应共享事件循环
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 2; i++) {
+                try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+                    socket.setSoTimeout(5000);
+                    send(socket, "GET /test.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+                    assertTrue(readResponse(socket.getInputStream()).contains("HTTP/1.1 200 OK"));
+                }
+            }
+            assertTrue(System.currentTimeMillis() - start < SLOW_DELAY_MILLIS,
+                      "A slow response body source should not block the event loop");
+
+            String response = new String(slow.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+            assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+            assertTrue(response.endsWith("b\r\nslow-stream\r\n0\r\n\r\n"), response);
+        }
+    }
+
+    private void send(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 读取一个HTTP响应（请求头 + Content-Length指定长度的响应体）
+     */
+    private String readResponse(InputStream in) throws IOException {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        int b;
+        int matched = 0;
+        while (matched < 4 && (b = in.read()) != -1) {
+            response.write(b);
+            matched = (b == '\r' || b == '\n') ? matched + 1 : 0;
+        }
+
+        int contentLength = 0;
+        for (String line : response.toString(StandardCharsets.UTF_8).split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+
+        byte[] body = in.readNBytes(contentLength);
+        response.write(body, 0, body.length);
+        return response.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -45,6 +45,10 @@ class RedirectTest {
         router.registerHandler("/cached-resource", 
             new NotModifiedHandler(TEST_ETAG, TEST_LAST_MODIFIED, staticHandler));
         
+        // 304处理器包住返回预编码响应的重定向处理器
+        router.registerHandler("/cached-redirect",
+            new NotModifiedHandler(TEST_ETAG, TEST_LAST_MODIFIED, RedirectHandler.movedPermanently("/new-page")));
+        
         // 设置默认处理器
         router.setDefaultHandler(staticHandler);
         
@@ -316,4 +320,21 @@ class RedirectTest {
         assertFalse(response.contains("Location:"), 
                    "404 response should not contain Location header");
     }
+    
+    @Test
+    @Order(13)
+    @DisplayName("测试304处理器包住重定向处理器时添加缓存头")
+    void testNotModifiedHandlerWrapsRedirect() throws IOException {
+        String request = "GET /cached-redirect HTTP/1.1\r\n" +
+                        "Host: localhost\r\n" +
+                        "Connection: close\r\n" +
+                        "\r\n";
+        
+        String response = sendRawRequest(request);
+        
+        assertTrue(response.startsWith("HTTP/1.1 301 Moved Permanently"), response);
+        assertTrue(response.contains("Location: /new-page"));
+        assertTrue(response.contains("ETag: " + TEST_ETAG));
+        assertTrue(response.contains("Last-Modified: " + TEST_LAST_MODIFIED));
+    }
 }
@@ -0,0 +1,266 @@
+package com.http.server;
+
+import com.http.protocol.HttpMethod;
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+import com.http.protocol.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestRouterTest {
+
+    @Test
+    void testQueryStringDoesNotBreakExactRoute() {
+        RequestRouter router = new RequestRouter();
+        router.registerHandler("/api/login", request -> text("login"));
+        router.setDefaultHandler(request -> text("default"));
+
+        assertEquals("login", router.route(new HttpRequest("GET", "/api/login?x=1")).getBodyAsString());
+        assertEquals("default", router.route(new HttpRequest("GET", "/api/other")).getBodyAsString());
+    }
+
+    @Test
+    void testPathParametersArePassedToHandler() {
+        RequestRouter router = new RequestRouter();
+        router.registerHandler("/api/users/{id}", request -> text("user " + request.getPathParameter("id")));
+        router.registerHandler("/files/*", request -> text("file " + request.getPathParameter("*")));
+
+        assertEquals("user 42", router.route(new HttpRequest("GET", "/api/users/42?full=true")).getBodyAsString());
+        assertEquals("file a/b.txt", router.route(new HttpRequest("GET", "/files/a/b.txt")).getBodyAsString());
+    }
+
+    @Test
+    void testNoMatchWithoutDefaultHandlerReturns404() {
+        RequestRouter router = new RequestRouter();
+        router.registerHandler("/a", request -> text("a"));
+
+        assertEquals(404, router.route(new HttpRequest("GET", "/b")).getStatusCode());
+    }
+
+    @Test
+    void testDispatchByMethod() {
+        RequestRouter router = new RequestRouter();
+        router.get("/api/items/{id}", request -> text("get " + request.getPathParameter("id")));
+        router.delete("/api/items/{id}", request -> text("delete " + request.getPathParameter("id")));
+
+        assertEquals("get 7", router.route(new HttpRequest("GET", "/api/items/7")).getBodyAsString());
+        assertEquals("delete 7", router.route(new HttpRequest("DELETE", "/api/items/7")).getBodyAsString());
+
+        HttpResponse response = router.route(new HttpRequest("PUT", "/api/items/7"));
+        assertEquals(405, response.getStatusCode());
+        assertEquals("GET, DELETE, HEAD, OPTIONS", response.getHeader("Allow"));
+        assertEquals(405, router.route(new HttpRequest("PATCH", "/api/items/7")).getStatusCode());
+    }
+
+    @Test
+    void testLegacyRegistrationAllowsGetAndPost() {
+        RequestRouter router = new RequestRouter();
+        router.registerHandler("/api/login", request -> text("login"));
+
+        assertEquals("login", router.route(new HttpRequest("POST", "/api/login")).getBodyAsString());
+        String encoded = new String(router.route(new HttpRequest("DELETE", "/api/login")).encodeHead());
+        assertTrue(encoded.contains("Allow: GET, POST, HEAD, OPTIONS\r\n"), encoded);
+    }
+
+    @Test
+    void testHeadUsesGetHandlerWithoutBody() {
+        RequestRouter router = new RequestRouter();
+        router.get("/hello", request -> text("hello"));
+
+        HttpResponse response = router.route(new HttpRequest("HEAD", "/hello"));
+        assertEquals(200, response.getStatusCode());
+        assertTrue(response.isBodyOmitted());
+        String bytes = new String(response.toBytes());
+        assertTrue(bytes.contains("Content-Length: 5\r\n"), bytes);
+        assertTrue(bytes.endsWith("\r\n\r\n"), bytes);
+    }
+
+    @Test
+    void testOptionsAnsweredAutomatically() {
+        RequestRouter router = new RequestRouter();
+        router.post("/api/register", request -> text("register"));
+
+        HttpResponse response = router.route(new HttpRequest("OPTIONS", "/api/register"));
+        assertEquals(204, response.getStatusCode());
+        assertEquals("POST, OPTIONS", response.getHeader("Allow"));
+        assertFalse(new String(response.toBytes()).contains("Content-Length"));
+
+        router.registerHandler(HttpMethod.OPTIONS, "/api/register", request -> text("custom"));
+        assertEquals("custom", router.route(new HttpRequest("OPTIONS", "/api/register")).getBodyAsString());
+    }
+
+    @Test
+    void testFiltersRunInOrderAndWrapNotFound() {
+        RequestRouter router = new RequestRouter();
+        List<String> calls = new ArrayList<>();
+        router.addFilter((request, next) -> {
+            calls.add("outer");
+            HttpResponse response = next.handle(request);
+            calls.add("status " + response.getStatusCode());
+            return response;
+        });
+        router.addFilter((request, next) -> {
+            calls.add("inner");
+            return next.handle(request);
+        });
+        router.get("/a", request -> {
+            calls.add("handler");
+            return text("a");
+        });
+
+        assertEquals("a", router.route(new HttpRequest("GET", "/a")).getBodyAsString());
+        assertEquals(List.of("outer", "inner", "handler", "status 200"), calls);
+        calls.clear();
+        assertEquals(404, router.route(new HttpRequest("GET", "/missing")).getStatusCode());
+        assertEquals(List.of("outer", "inner", "status 404"), calls);
+    }
+
+    @Test
+    void testFilterCanSetHeadersOnCannedResponses() {
+        RequestRouter router = new RequestRouter();
+        router.addFilter((request, next) -> {
+            HttpResponse response = next.handle(request);
+            response.setHeader("Access-Control-Allow-Origin", "*");
+            return response;
+        });
+        router.post("/api/login", request -> text("ok"));
+
+        // 404、405和OPTIONS都是共享的预编码响应，过滤器拿到的是副本
+        HttpResponse notFound = router.route(new HttpRequest("GET", "/missing"));
+        assertEquals(404, notFound.getStatusCode());
+        assertEquals("*", notFound.getHeader("Access-Control-Allow-Origin"));
+        HttpResponse methodNotAllowed = router.route(new HttpRequest("GET", "/api/login"));
+        assertEquals(405, methodNotAllowed.getStatusCode());
+        assertEquals("*", methodNotAllowed.getHeader("Access-Control-Allow-Origin"));
+        HttpResponse options = router.route(new HttpRequest("OPTIONS", "/api/login"));
+        assertEquals("*", options.getHeader("Access-Control-Allow-Origin"));
+
+        // 共享响应本身没有被修改
+        assertNull(new RequestRouter().route(new HttpRequest("GET", "/missing"))
+                .getHeader("Access-Control-Allow-Origin"));
+    }
+
+    @Test
+    void testRouteFilterCanShortCircuit() {
+        RequestRouter router = new RequestRouter();
+        RequestFilter auth = (request, next) -> request.getHeader("Authorization") == null
+                ? new HttpResponse(HttpStatus.UNAUTHORIZED)
+                : next.handle(request);
+        router.addFilter("/admin/{page}", auth);
+        // 过滤器先于处理器添加时也对之后注册的处理器生效
+        router.get("/admin/{page}", request -> text("admin " + request.getPathParameter("page")));
+        router.get("/public", request -> text("public"));
+
+        assertEquals(401, router.route(new HttpRequest("GET", "/admin/users")).getStatusCode());
+        assertEquals(401, router.route(new HttpRequest("HEAD", "/admin/users")).getStatusCode());
+        HttpRequest authorized = new HttpRequest("GET", "/admin/users");
+        authorized.setHeader("Authorization", "Bearer x");
+        assertEquals("admin users", router.route(authorized).getBodyAsString());
+        assertEquals("public", router.route(new HttpRequest("GET", "/public")).getBodyAsString());
+    }
+
+    @Test
+    void testPathFilterWithoutHandlerDoesNotCreateRoute() {
+        RequestRouter router = new RequestRouter();
+        router.addFilter("/later", (request, next) -> {
+            HttpResponse response = next.handle(request);
+            response.setHeader("X-Filtered", "true");
+            return response;
+        });
+
+        // 只有过滤器的路径不参与匹配
+        assertEquals(404, router.route(new HttpRequest("GET", "/later")).getStatusCode());
+        router.setDefaultHandler(request -> text("default"));
+        HttpResponse fallback = router.route(new HttpRequest("GET", "/later"));
+        assertEquals("default", fallback.getBodyAsString());
+        assertNull(fallback.getHeader("X-Filtered"));
+
+        // 注册处理器之后过滤器生效
+        router.get("/later", request -> text("later"));
+        HttpResponse response = router.route(new HttpRequest("GET", "/later"));
+        assertEquals("later", response.getBodyAsString());
+        assertEquals("true", response.getHeader("X-Filtered"));
+        assertThrows(IllegalArgumentException.class, () -> router.addFilter("/bad/{", (request, next) -> null));
+    }
+
+    @Test
+    void testFiltersWrapAsyncHandler() {
+        RequestRouter router = new RequestRouter();
+        CompletableFuture<HttpResponse> pending = new CompletableFuture<>();
+        router.registerAsyncHandler(HttpMethod.GET, "/async", request -> pending);
+        router.addFilter((request, next) -> {
+            HttpResponse response = next.handle(request);
+            response.setHeader("X-Filtered", "true");
+            return response;
+        });
+
+        HttpRequest request = new HttpRequest("GET", "/async");
+        request.setHeader("Accept-Encoding", "gzip");
+        CompletableFuture<HttpResponse> future = CompletableFuture.supplyAsync(() -> router.route(request));
+        HttpResponse body = text("x".repeat(1000));
+        body.setHeader("Content-Type", "application/json");
+        pending.complete(body);
+
+        HttpResponse response = future.join();
+        assertEquals("true", response.getHeader("X-Filtered"));
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    void testSyncFilterOnAsyncRouteWarns() {
+        RequestFilter syncFilter = (request, next) -> next.handle(request);
+        assertFalse(RequestFilter.isAsync(syncFilter));
+        assertTrue(RequestFilter.isAsync(new AccessLogFilter(System.out)));
+
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream original = System.err;
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+        try {
+            RequestRouter router = new RequestRouter();
+            router.addFilter(new AccessLogFilter(new PrintStream(new ByteArrayOutputStream())));
+            router.addFilter("/sync", syncFilter);
+            router.get("/sync", request -> text("sync"));
+            assertEquals("", err.toString(StandardCharsets.UTF_8), "Sync routes may use sync filters");
+
+            router.addFilter(syncFilter);
+            router.registerAsyncHandler(HttpMethod.GET, "/async", request -> new CompletableFuture<>());
+            router.addFilter("/async", syncFilter);
+            String warnings = err.toString(StandardCharsets.UTF_8);
+            assertEquals(2, warnings.split("async route /async", -1).length - 1, warnings);
+        } finally {
+            System.setErr(original);
+        }
+    }
+
+    @Test
+    void testRouteAsyncPendingAndFailure() {
+        RequestRouter router = new RequestRouter();
+        CompletableFuture<HttpResponse> pending = new CompletableFuture<>();
+        router.registerAsyncHandler(HttpMethod.GET, "/async", request -> pending);
+
+        HttpRequest request = new HttpRequest("HEAD", "/async");
+        CompletableFuture<HttpResponse> future = router.routeAsync(request);
+        assertFalse(future.isDone());
+        pending.complete(text("later"));
+        assertTrue(future.join().isBodyOmitted());
+
+        router.registerAsyncHandler(HttpMethod.GET, "/failed",
+                r -> CompletableFuture.failedFuture(new IllegalStateException("backend down")));
+        assertThrows(IllegalStateException.class, () -> router.route(new HttpRequest("GET", "/failed")));
+    }
+
+    private static HttpResponse text(String body) {
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.setHeader("Content-Type", "text/plain");
+        response.setBody(body);
+        return response;
+    }
+}
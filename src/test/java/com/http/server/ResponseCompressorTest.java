@@ -0,0 +1,80 @@
+package com.http.server;
+
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+import com.http.protocol.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCompressorTest {
+
+    private static final String JSON = "{\"status\":\"success\",\"message\":\"ok\"}".repeat(20);
+
+    private final ResponseCompressor compressor = new ResponseCompressor();
+
+    @Test
+    void testCompressesJsonWhenAccepted() throws IOException {
+        HttpResponse response = compressor.compress(request("gzip, deflate"), jsonResponse(JSON));
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertEquals(JSON, new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    void testSkipsWhenNotAccepted() {
+        HttpResponse response = compressor.compress(request(null), jsonResponse(JSON));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(JSON, response.getBodyAsString());
+    }
+
+    @Test
+    void testSkipsSmallBodiesAndBinaryTypes() {
+        HttpResponse small = compressor.compress(request("gzip"), jsonResponse("{\"ok\":true}"));
+        assertNull(small.getHeader("Content-Encoding"));
+
+        HttpResponse image = jsonResponse(JSON);
+        image.setHeader("Content-Type", "image/png");
+        assertNull(compressor.compress(request("gzip"), image).getHeader("Content-Encoding"));
+    }
+
+    @Test
+    void testStrongEtagBecomesWeak() {
+        HttpResponse response = jsonResponse(JSON);
+        response.setHeader("ETag", "\"v1\"");
+
+        assertEquals("W/\"v1\"", compressor.compress(request("gzip"), response).getHeader("ETag"));
+    }
+
+    @Test
+    void testCompressibleTypes() {
+        assertTrue(ResponseCompressor.isCompressible("text/html"));
+        assertTrue(ResponseCompressor.isCompressible("application/json; charset=utf-8"));
+        assertFalse(ResponseCompressor.isCompressible("image/png"));
+        assertFalse(ResponseCompressor.isCompressible(null));
+    }
+
+    private static HttpRequest request(String acceptEncoding) {
+        HttpRequest request = new HttpRequest("POST", "/api/login");
+        if (acceptEncoding != null) {
+            request.setHeader("Accept-Encoding", acceptEncoding);
+        }
+        return request;
+    }
+
+    private static HttpResponse jsonResponse(String body) {
+        HttpResponse response = new HttpResponse(HttpStatus.OK);
+        response.setHeader("Content-Type", "application/json");
+        response.setBody(body);
+        return response;
+    }
+}
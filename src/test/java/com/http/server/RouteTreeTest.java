@@ -0,0 +1,114 @@
+package com.http.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteTreeTest {
+
+    @Test
+    void testStaticRoutesShareCompressedPrefixes() {
+        RouteTree<String> tree = new RouteTree<>();
+        tree.insert("/api/login", "login");
+        tree.insert("/api/logout", "logout");
+        tree.insert("/api", "api");
+        tree.insert("/about", "about");
+
+        assertEquals("login", find(tree, "/api/login"));
+        assertEquals("logout", find(tree, "/api/logout"));
+        assertEquals("api", find(tree, "/api"));
+        assertEquals("about", find(tree, "/about"));
+        assertNull(find(tree, "/api/log"));
+        assertNull(find(tree, "/api/login/extra"));
+        assertNull(find(tree, "/"));
+    }
+
+    @Test
+    void testPathParameters() {
+        RouteTree<String> tree = new RouteTree<>();
+        tree.insert("/api/users/{id}", "user");
+        tree.insert("/api/users/{id}/posts/{postId}", "post");
+
+        RouteTree.Match<String> match = tree.find("/api/users/42/posts/7", "/api/users/42/posts/7".length());
+        assertEquals("post", match.getValue());
+        assertEquals(Map.of("id", "42", "postId", "7"), match.getParameters());
+
+        assertEquals(Map.of("id", "alice"), tree.find("/api/users/alice", 16).getParameters());
+        assertNull(find(tree, "/api/users/"));
+    }
+
+    @Test
+    void testStaticBeatsParameterAndBacktracks() {
+        RouteTree<String> tree = new RouteTree<>();
+        tree.insert("/users/{id}/profile", "profile");
+        tree.insert("/users/me", "me");
+        tree.insert("/users/me/settings", "settings");
+
+        assertEquals("me", find(tree, "/users/me"));
+        assertEquals("settings", find(tree, "/users/me/settings"));
+        // 静态分支 "me" 无法继续匹配，回溯到参数分支
+        RouteTree.Match<String> match = tree.find("/users/me/profile", 17);
+        assertEquals("profile", match.getValue());
+        assertEquals("me", match.getParameters().get("id"));
+    }
+
+    @Test
+    void testWildcardMatchesRemainingPath() {
+        RouteTree<String> tree = new RouteTree<>();
+        tree.insert("/static/*", "static");
+        tree.insert("/static/special.txt", "special");
+
+        RouteTree.Match<String> match = tree.find("/static/css/site.css", 20);
+        assertEquals("static", match.getValue());
+        assertEquals("css/site.css", match.getParameters().get(RouteTree.WILDCARD));
+        assertEquals("special", find(tree, "/static/special.txt"));
+        assertEquals("", tree.find("/static/", 8).getParameters().get(RouteTree.WILDCARD));
+        assertNull(find(tree, "/static"));
+    }
+
+    @Test
+    void testLookupStopsAtGivenEnd() {
+        RouteTree<String> tree = new RouteTree<>();
+        tree.insert("/api/login", "login");
+
+        String uri = "/api/login?next=/home";
+        assertEquals("login", tree.find(uri, uri.indexOf('?')).getValue());
+        assertTrue(tree.find(uri, uri.indexOf('?')).getParameters().isEmpty());
+    }
+
+    @Test
+    void testInvalidPatterns() {
+        RouteTree<String> tree = new RouteTree<>();
+        tree.insert("/items/{id}", "item");
+
+        assertThrows(IllegalArgumentException.class, () -> tree.insert("/items/{name}/edit", "edit"));
+        assertThrows(IllegalArgumentException.class, () -> tree.insert("no-slash", "x"));
+        assertThrows(IllegalArgumentException.class, () -> tree.insert("/files/*/more", "x"));
+        assertThrows(IllegalArgumentException.class, () -> tree.insert("/files/x{id}", "x"));
+        assertThrows(IllegalArgumentException.class, () -> tree.insert("/files/{}", "x"));
+    }
+
+    @Test
+    void testManyRoutes() {
+        RouteTree<String> tree = new RouteTree<>();
+        for (int i = 0; i < 500; i++) {
+            tree.insert("/api/v1/resource" + i + "/{id}", "r" + i);
+            tree.insert("/api/v1/resource" + i, "list" + i);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals("list" + i, find(tree, "/api/v1/resource" + i));
+            RouteTree.Match<String> match = tree.find("/api/v1/resource" + i + "/x" + i,
+                    ("/api/v1/resource" + i + "/x" + i).length());
+            assertEquals("r" + i, match.getValue());
+            assertEquals("x" + i, match.getParameters().get("id"));
+        }
+    }
+
+    private static String find(RouteTree<String> tree, String path) {
+        RouteTree.Match<String> match = tree.find(path, path.length());
+        return match == null ? null : match.getValue();
+    }
+}
@@ -1,5 +1,6 @@
 package com.http.server;
 
+import com.http.protocol.HttpResponse;
 import org.junit.jupiter.api.*;
 
 import java.io.*;
@@ -29,6 +30,24 @@ class ServerIntegrationTest {
         RequestRouter router = new RequestRouter();
         router.registerHandler("/api/register", new RegisterHandler(userRegistry));
         router.registerHandler("/api/login", new LoginHandler(userRegistry));
+        router.post("/upload", request -> {
+            // 按流读取请求体，query为要读取的字节数上限，没有读完的部分由连接跳过
+            long limit = request.getQuery() == null ? Long.MAX_VALUE : Long.parseLong(request.getQuery());
+            long count = 0;
+            try (InputStream body = request.getBodyStream()) {
+                byte[] chunk = new byte[4096];
+                int read;
+                while (count < limit && (read = body.read(chunk, 0, (int) Math.min(chunk.length, limit - count))) != -1) {
+                    count += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            HttpResponse response = request.getResponse();
+            response.setHeader("Content-Type", "text/plain");
+            response.setBody((request.isBodyStreaming() ? "streamed " : "buffered ") + count);
+            return response;
+        });
         
         // 设置StaticResourceHandler为默认handler
         StaticResourceHandler staticHandler = new StaticResourceHandler(STATIC_RESOURCES_PATH);
@@ -270,6 +289,133 @@ class ServerIntegrationTest {
         }
     }
     
+    @Test
+    @Order(9)
+    @DisplayName("测试流水线 - 一次写出多个请求")
+    void testPipelinedRequests() throws IOException {
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+             OutputStream out = socket.getOutputStream();
+             InputStream in = socket.getInputStream()) {
+            
+            socket.setSoTimeout(5000);
+            
+            // 三个请求在同一次写入中发送，服务器不能丢失读多了的字节
+            String requests = "GET /test.txt HTTP/1.1\r\n" +
+                             "Host: localhost\r\n" +
+                             "\r\n" +
+                             "GET /nonexistent.html HTTP/1.1\r\n" +
+                             "Host: localhost\r\n" +
+                             "\r\n" +
+                             "GET /data.json HTTP/1.1\r\n" +
+                             "Host: localhost\r\n" +
+                             "Connection: close\r\n" +
+                             "\r\n";
+            
+            out.write(requests.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            
+            // 响应必须按请求顺序返回
+            String response1 = readResponse(in);
+            String response2 = readResponse(in);
+            String response3 = readResponse(in);
+            
+            assertTrue(response1.contains("HTTP/1.1 200 OK") && response1.contains("Content-Type: text/plain"), 
+                      "First pipelined request should return test.txt");
+            assertTrue(response2.contains("HTTP/1.1 404 Not Found"), 
+                      "Second pipelined request should return 404");
+            assertTrue(response3.contains("HTTP/1.1 200 OK") && response3.contains("Content-Type: application/json"), 
+                      "Third pipelined request should return data.json");
+        }
+    }
+    
+    @Test
+    @Order(10)
+    @DisplayName("测试请求大小限制 - 413和431")
+    void testRequestSizeLimits() throws IOException {
+        // 声明超大请求体的请求在请求体到达前就被拒绝
+        String response = sendRawRequest("POST /upload HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Length: 2147483648\r\n" +
+                "\r\n");
+        assertTrue(response.startsWith("HTTP/1.1 413 Payload Too Large"), response);
+        assertTrue(response.contains("Connection: close"), response);
+
+        StringBuilder headers = new StringBuilder("GET /test.txt HTTP/1.1\r\n");
+        for (int i = 0; i < 200; i++) {
+            headers.append("X-Header-").append(i).append(": value\r\n");
+        }
+        response = sendRawRequest(headers.append("\r\n").toString());
+        assertTrue(response.startsWith("HTTP/1.1 431 Request Header Fields Too Large"), response);
+    }
+
+    @Test
+    @Order(11)
+    @DisplayName("测试流式请求体 - 处理器按流读取，未读完的部分被跳过")
+    void testStreamingRequestBody() throws IOException {
+        byte[] body = new byte[200 * 1024];
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+             OutputStream out = socket.getOutputStream();
+             InputStream in = socket.getInputStream()) {
+
+            socket.setSoTimeout(5000);
+            String head = "POST /upload HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Content-Length: " + body.length + "\r\n" +
+                    "\r\n";
+            // 第一个请求读完整个请求体，第二个只读10字节，第三个请求必须仍能正确解析
+            out.write(head.getBytes(StandardCharsets.UTF_8));
+            out.write(body);
+            out.write(head.replace("/upload", "/upload?10").getBytes(StandardCharsets.UTF_8));
+            out.write(body);
+            out.write(("GET /test.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            String response1 = readResponse(in);
+            String response2 = readResponse(in);
+            String response3 = readResponse(in);
+            assertTrue(response1.endsWith("streamed " + body.length), response1);
+            assertTrue(response2.endsWith("streamed 10"), response2);
+            assertTrue(response3.contains("HTTP/1.1 200 OK") && response3.contains("Content-Type: text/plain"),
+                    response3);
+        }
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("测试chunked请求体 - 按流解码，长连接上的下一个请求不受影响")
+    void testChunkedRequestBody() throws IOException {
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT);
+             OutputStream out = socket.getOutputStream();
+             InputStream in = socket.getInputStream()) {
+
+            socket.setSoTimeout(5000);
+            StringBuilder chunks = new StringBuilder();
+            for (int i = 0; i < 100; i++) {
+                chunks.append("3e8\r\n").append("x".repeat(1000)).append("\r\n");
+            }
+            chunks.append("0\r\n\r\n");
+            String head = "POST /upload HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Transfer-Encoding: chunked\r\n" +
+                    "\r\n";
+            // 第二个请求只读10字节，剩余的块必须被跳过
+            out.write((head + chunks).getBytes(StandardCharsets.UTF_8));
+            out.write((head.replace("/upload", "/upload?10") + chunks).getBytes(StandardCharsets.UTF_8));
+            out.write(("GET /test.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            String response1 = readResponse(in);
+            String response2 = readResponse(in);
+            String response3 = readResponse(in);
+            assertTrue(response1.endsWith("streamed 100000"), response1);
+            assertTrue(response2.endsWith("streamed 10"), response2);
+            assertTrue(response3.contains("HTTP/1.1 200 OK") && response3.contains("Content-Type: text/plain"),
+                    response3);
+        }
+    }
+
     /**
      * 读取HTTP响应直到遇到Content-Length指定的长度
      */
@@ -0,0 +1,394 @@
+package com.http.server;
+
+import com.http.protocol.HttpRequest;
+import com.http.protocol.HttpResponse;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StaticResourceHandlerTest - 静态资源处理器测试
+ * 使用临时目录中的文件测试静态资源服务
+ */
+class StaticResourceHandlerTest {
+
+    private static final int TEST_PORT = 8891;
+    private static final String TEST_HOST = "localhost";
+
+    @TempDir
+    static Path root;
+
+    private static HttpServer server;
+    private static StaticResourceHandler handler;
+    private static byte[] largeContent;
+    private static final String PAGE = "<p>compressible page content</p>\n".repeat(100);
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        // 2MB随机二进制内容，验证大文件逐字节正确
+        largeContent = new byte[2 * 1024 * 1024];
+        new Random(42).nextBytes(largeContent);
+        Files.write(root.resolve("large.bin"), largeContent);
+        Files.writeString(root.resolve("index.html"), "<html>index</html>");
+        Files.writeString(root.resolve("page.html"), PAGE);
+        Files.writeString(root.resolve("notes.txt"), "uncompressed notes");
+        // 预压缩文件内容与原文件不同，用来确认发送的是.gz文件
+        Files.write(root.resolve("notes.txt.gz"), gzip("precompressed notes"));
+
+        handler = new StaticResourceHandler(root.toString());
+        RequestRouter router = new RequestRouter();
+        router.setDefaultHandler(handler);
+
+        server = new HttpServer(TEST_PORT, router);
+        server.start();
+        Thread.sleep(500);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("测试文件响应体不读入内存")
+    void testFileBodyIsStreamed() {
+        HttpResponse response = handler.handle(new HttpRequest("GET", "/large.bin"));
+
+        assertEquals(200, response.getStatusCode());
+        assertTrue(response.isStreaming(), "File content should be sent from disk, not buffered");
+        assertEquals(largeContent.length, response.getContentLength());
+        assertEquals(String.valueOf(largeContent.length), response.getHeader("Content-Length"));
+        response.getStreamingBody().close();
+    }
+
+    @Test
+    @DisplayName("测试通过Socket下载大文件内容完整")
+    void testLargeFileDownload() throws IOException {
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            send(socket, "GET /large.bin HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+            byte[] raw = socket.getInputStream().readAllBytes();
+            int headerEnd = indexOfHeaderEnd(raw);
+            String head = new String(raw, 0, headerEnd, StandardCharsets.ISO_8859_1);
+
+            assertTrue(head.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(head.contains("Content-Length: " + largeContent.length));
+            byte[] body = new byte[raw.length - headerEnd];
+            System.arraycopy(raw, headerEnd, body, 0, body.length);
+            assertArrayEquals(largeContent, body);
+        }
+    }
+
+    @Test
+    @DisplayName("测试文件路径中的目录不存在时返回404")
+    void testFileUnderRegularFileReturns404() {
+        HttpResponse response = handler.handle(new HttpRequest("GET", "/index.html/child"));
+
+        assertEquals(404, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("测试小文件命中缓存时共享响应体")
+    void testSmallFileServedFromCache() {
+        HttpResponse first = handler.handle(new HttpRequest("GET", "/index.html"));
+        HttpResponse second = handler.handle(new HttpRequest("GET", "/index.html"));
+
+        assertEquals(200, second.getStatusCode());
+        assertFalse(second.isStreaming());
+        assertEquals("<html>index</html>", second.getBodyAsString());
+        assertEquals("text/html", second.getHeader("Content-Type"));
+        assertSame(first.getBody(), second.getBody(), "Second request should reuse the cached body");
+
+        String raw = new String(second.toBytes(), StandardCharsets.UTF_8);
+        assertTrue(raw.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(raw.contains("Content-Length: 18\r\n"));
+        assertTrue(raw.endsWith("\r\n\r\n<html>index</html>"));
+    }
+
+    @Test
+    @DisplayName("测试修改缓存的响应头不影响其他响应")
+    void testOverridingCachedHeaderDoesNotLeak() {
+        HttpResponse first = handler.handle(new HttpRequest("GET", "/index.html"));
+        first.setHeader("Content-Type", "text/plain");
+
+        HttpResponse second = handler.handle(new HttpRequest("GET", "/index.html"));
+        assertEquals("text/plain", first.getHeader("Content-Type"));
+        assertEquals("text/html", second.getHeader("Content-Type"));
+    }
+
+    @Test
+    @DisplayName("测试文件修改后缓存失效")
+    void testModifiedFileInvalidatesCache() throws Exception {
+        Path file = root.resolve("changing.txt");
+        Files.writeString(file, "version 1");
+        assertEquals("version 1", handler.handle(new HttpRequest("GET", "/changing.txt")).getBodyAsString());
+
+        Files.writeString(file, "version 2 is longer");
+        // 文件变化事件是异步送达的
+        String body = null;
+        for (int i = 0; i < 100; i++) {
+            body = handler.handle(new HttpRequest("GET", "/changing.txt")).getBodyAsString();
+            if (body.equals("version 2 is longer")) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertEquals("version 2 is longer", body);
+
+        Files.delete(file);
+        int status = 0;
+        for (int i = 0; i < 100; i++) {
+            status = handler.handle(new HttpRequest("GET", "/changing.txt")).getStatusCode();
+            if (status == 404) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertEquals(404, status);
+    }
+
+    @Test
+    @DisplayName("测试缓存按总字节数淘汰最久未访问的文件")
+    void testCacheEvictsLeastRecentlyUsed() throws IOException {
+        Path dir = Files.createDirectory(root.resolve("lru"));
+        Files.write(dir.resolve("a.txt"), new byte[400]);
+        Files.write(dir.resolve("b.txt"), new byte[400]);
+        Files.write(dir.resolve("c.txt"), new byte[400]);
+        StaticResourceHandler small = new StaticResourceHandler(dir.toString(), 1000, 1000);
+        try {
+            byte[] a = small.handle(new HttpRequest("GET", "/a.txt")).getBody();
+            byte[] b = small.handle(new HttpRequest("GET", "/b.txt")).getBody();
+            assertSame(a, small.handle(new HttpRequest("GET", "/a.txt")).getBody());
+
+            // c放入后超过1000字节，最久未访问的b被淘汰
+            small.handle(new HttpRequest("GET", "/c.txt"));
+            assertSame(a, small.handle(new HttpRequest("GET", "/a.txt")).getBody());
+            assertNotSame(b, small.handle(new HttpRequest("GET", "/b.txt")).getBody());
+        } finally {
+            small.close();
+        }
+    }
+
+    @Test
+    @DisplayName("测试ETag匹配时返回304")
+    void testConditionalGetReturns304() {
+        for (String path : new String[] {"/index.html", "/large.bin"}) {
+            HttpResponse full = handler.handle(new HttpRequest("GET", path));
+            String etag = full.getHeader("ETag");
+            assertNotNull(etag, "Response should carry an ETag: " + path);
+            assertNotNull(full.getHeader("Last-Modified"));
+            if (full.isStreaming()) {
+                full.getStreamingBody().close();
+            }
+
+            HttpRequest conditional = new HttpRequest("GET", path);
+            conditional.setHeader("If-None-Match", "\"old\", W/" + etag);
+            HttpResponse notModified = handler.handle(conditional);
+
+            assertEquals(304, notModified.getStatusCode(), path);
+            assertEquals(etag, notModified.getHeader("ETag"));
+            assertEquals(0, notModified.getContentLength());
+            assertFalse(new String(notModified.toBytes(), StandardCharsets.UTF_8).contains("Content-Length"));
+        }
+    }
+
+    @Test
+    @DisplayName("测试If-Modified-Since按日期比较")
+    void testIfModifiedSinceUsesFileModificationTime() {
+        String lastModified = handler.handle(new HttpRequest("GET", "/index.html")).getHeader("Last-Modified");
+
+        HttpRequest unchanged = new HttpRequest("GET", "/index.html");
+        unchanged.setHeader("If-Modified-Since", lastModified);
+        assertEquals(304, handler.handle(unchanged).getStatusCode());
+
+        HttpRequest older = new HttpRequest("GET", "/index.html");
+        older.setHeader("If-Modified-Since", "Thu, 01 Jan 2015 00:00:00 GMT");
+        assertEquals(200, handler.handle(older).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("测试单个Range返回206和对应字节")
+    void testSingleRangeReturnsPartialContent() {
+        for (String path : new String[] {"/index.html", "/large.bin"}) {
+            HttpResponse full = handler.handle(new HttpRequest("GET", path));
+            byte[] content = path.equals("/index.html") ? full.getBody() : largeContent;
+            if (full.isStreaming()) {
+                full.getStreamingBody().close();
+            }
+
+            HttpRequest request = new HttpRequest("GET", path);
+            request.setHeader("Range", "bytes=5-10");
+            HttpResponse response = handler.handle(request);
+
+            assertEquals(206, response.getStatusCode(), path);
+            assertEquals("bytes 5-10/" + content.length, response.getHeader("Content-Range"));
+            assertEquals("6", response.getHeader("Content-Length"));
+            assertArrayEquals(Arrays.copyOfRange(content, 5, 11), bodyOf(response));
+        }
+    }
+
+    @Test
+    @DisplayName("测试多个Range返回multipart/byteranges")
+    void testMultipleRangesReturnMultipart() {
+        HttpRequest request = new HttpRequest("GET", "/large.bin");
+        request.setHeader("Range", "bytes=0-3,-4");
+        HttpResponse response = handler.handle(request);
+
+        assertEquals(206, response.getStatusCode());
+        String contentType = response.getHeader("Content-Type");
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+
+        byte[] body = bodyOf(response);
+        assertEquals(Long.parseLong(response.getHeader("Content-Length")), body.length);
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        assertTrue(text.contains("Content-Range: bytes 0-3/" + largeContent.length));
+        assertTrue(text.contains("Content-Range: bytes " + (largeContent.length - 4) + "-"
+                + (largeContent.length - 1) + "/" + largeContent.length));
+        assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+
+        int firstPart = text.indexOf("\r\n\r\n") + 4;
+        assertEquals(new String(largeContent, 0, 4, StandardCharsets.ISO_8859_1),
+                text.substring(firstPart, firstPart + 4));
+    }
+
+    @Test
+    @DisplayName("测试If-Range不匹配时返回完整内容，范围不可满足时返回416")
+    void testIfRangeAndUnsatisfiableRange() {
+        HttpRequest stale = new HttpRequest("GET", "/index.html");
+        stale.setHeader("Range", "bytes=0-3");
+        stale.setHeader("If-Range", "\"stale\"");
+        HttpResponse full = handler.handle(stale);
+        assertEquals(200, full.getStatusCode());
+        assertEquals("<html>index</html>", full.getBodyAsString());
+
+        HttpRequest current = new HttpRequest("GET", "/index.html");
+        current.setHeader("Range", "bytes=0-3");
+        current.setHeader("If-Range", full.getHeader("ETag"));
+        assertEquals(206, handler.handle(current).getStatusCode());
+
+        HttpRequest outside = new HttpRequest("GET", "/index.html");
+        outside.setHeader("Range", "bytes=100-");
+        HttpResponse unsatisfiable = handler.handle(outside);
+        assertEquals(416, unsatisfiable.getStatusCode());
+        assertEquals("bytes */18", unsatisfiable.getHeader("Content-Range"));
+        assertTrue(new String(unsatisfiable.toBytes(), StandardCharsets.UTF_8).contains("Content-Length: 0\r\n"));
+    }
+
+    @Test
+    @DisplayName("测试通过Socket续传大文件")
+    void testResumeDownloadOverSocket() throws IOException {
+        int offset = largeContent.length - 100_000;
+        try (Socket socket = new Socket(TEST_HOST, TEST_PORT)) {
+            socket.setSoTimeout(5000);
+            send(socket, "GET /large.bin HTTP/1.1\r\nHost: localhost\r\nRange: bytes=" + offset + "-\r\n" +
+                    "Connection: close\r\n\r\n");
+
+            byte[] raw = socket.getInputStream().readAllBytes();
+            int headerEnd = indexOfHeaderEnd(raw);
+            String head = new String(raw, 0, headerEnd, StandardCharsets.ISO_8859_1);
+
+            assertTrue(head.startsWith("HTTP/1.1 206 Partial Content"));
+            assertTrue(head.contains("Content-Length: 100000"));
+            assertArrayEquals(Arrays.copyOfRange(largeContent, offset, largeContent.length),
+                    Arrays.copyOfRange(raw, headerEnd, raw.length));
+        }
+    }
+
+    @Test
+    @DisplayName("测试文本文件按Accept-Encoding返回gzip")
+    void testGzipVariantForCompressibleFile() throws IOException {
+        HttpRequest request = new HttpRequest("GET", "/page.html");
+        request.setHeader("Accept-Encoding", "gzip, deflate");
+        HttpResponse compressed = handler.handle(request);
+
+        assertEquals(200, compressed.getStatusCode());
+        assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", compressed.getHeader("Vary"));
+        assertEquals(String.valueOf(compressed.getBody().length), compressed.getHeader("Content-Length"));
+        assertTrue(compressed.getBody().length < PAGE.length());
+        assertEquals(PAGE, gunzip(compressed.getBody()));
+
+        HttpResponse plain = handler.handle(new HttpRequest("GET", "/page.html"));
+        assertNull(plain.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", plain.getHeader("Vary"));
+        assertEquals(PAGE, plain.getBodyAsString());
+        assertNotEquals(plain.getHeader("ETag"), compressed.getHeader("ETag"));
+
+        // 两种表示分别按自己的ETag验证
+        HttpRequest revalidate = new HttpRequest("GET", "/page.html");
+        revalidate.setHeader("Accept-Encoding", "gzip");
+        revalidate.setHeader("If-None-Match", compressed.getHeader("ETag"));
+        assertEquals(304, handler.handle(revalidate).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("测试优先发送.gz预压缩文件，范围请求使用原始内容")
+    void testPrecompressedSiblingAndRangeUseIdentity() throws IOException {
+        HttpRequest request = new HttpRequest("GET", "/notes.txt");
+        request.setHeader("Accept-Encoding", "gzip");
+        HttpResponse response = handler.handle(request);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("precompressed notes", gunzip(response.getBody()));
+
+        HttpRequest range = new HttpRequest("GET", "/notes.txt");
+        range.setHeader("Accept-Encoding", "gzip");
+        range.setHeader("Range", "bytes=0-11");
+        HttpResponse partial = handler.handle(range);
+        assertEquals(206, partial.getStatusCode());
+        assertNull(partial.getHeader("Content-Encoding"));
+        assertEquals("uncompressed", new String(bodyOf(partial), StandardCharsets.UTF_8));
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 取出响应体（内存或流式）
+     */
+    private static byte[] bodyOf(HttpResponse response) {
+        byte[] raw = response.toBytes();
+        int headerEnd = indexOfHeaderEnd(raw);
+        return Arrays.copyOfRange(raw, headerEnd, raw.length);
+    }
+
+    private void send(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static int indexOfHeaderEnd(byte[] raw) {
+        for (int i = 3; i < raw.length; i++) {
+            if (raw[i - 3] == '\r' && raw[i - 2] == '\n' && raw[i - 1] == '\r' && raw[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}